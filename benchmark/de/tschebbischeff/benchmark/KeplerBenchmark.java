@@ -0,0 +1,87 @@
+package de.tschebbischeff.benchmark;
+
+import de.tschebbischeff.model.KeplerSolver;
+import de.tschebbischeff.model.KeplerTable;
+
+/**
+ * Measures the throughput of the position anomaly calculation, comparing the former direct use of the mean anomaly
+ * with solving Kepler's equation iteratively and with a lookup table.
+ * Each evaluation includes the sine and cosine needed to place the body on its orbit, which the iterative solver
+ * provides alongside the solution.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class KeplerBenchmark {
+
+    /**
+     * The number of evaluations per measurement.
+     */
+    private static final int SAMPLES = 10000000;
+    /**
+     * The number of measurements, of which the first ones warm up the JIT compiler.
+     */
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        double[] eccentricities = new double[]{0.0167d, 0.2056d, 0.2488d, 0.6d};
+        for (double eccentricity : eccentricities) {
+            KeplerTable table = new KeplerTable(eccentricity, 1024);
+            double direct = 0.0d, solver = 0.0d, lookup = 0.0d;
+            for (int round = 0; round < ROUNDS; round++) {
+                direct = measureDirect();
+                solver = measureSolver(eccentricity);
+                lookup = measureTable(table);
+            }
+            System.out.println(String.format("e = %.4f   direct: %6.2f ns   solver: %6.2f ns   table: %6.2f ns",
+                    eccentricity, direct, solver, lookup));
+        }
+    }
+
+    private static double measureDirect() {
+        long start = System.nanoTime();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            double anomaly = i * 1.0e-3d;
+            sink += Math.sin(anomaly) + Math.cos(anomaly);
+        }
+        return report(start, sink);
+    }
+
+    private static double measureSolver(double eccentricity) {
+        double[] sinCos = new double[2];
+        long start = System.nanoTime();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            KeplerSolver.eccentricAnomaly(i * 1.0e-3d, eccentricity, sinCos, 0);
+            sink += sinCos[0] + sinCos[1];
+        }
+        return report(start, sink);
+    }
+
+    private static double measureTable(KeplerTable table) {
+        long start = System.nanoTime();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            double anomaly = table.eccentricAnomaly(i * 1.0e-3d);
+            sink += Math.sin(anomaly) + Math.cos(anomaly);
+        }
+        return report(start, sink);
+    }
+
+    /**
+     * Calculates the time per evaluation and consumes the result, so the loop can not be eliminated.
+     *
+     * @param start The time at which the measurement started, in nanoseconds.
+     * @param sink  The accumulated results of the measurement.
+     * @return The average time per evaluation, in nanoseconds.
+     */
+    private static double report(long start, double sink) {
+        double nanos = (System.nanoTime() - start) / (double) SAMPLES;
+        if (sink == Double.NEGATIVE_INFINITY) {
+            System.out.println(sink);
+        }
+        return nanos;
+    }
+
+}
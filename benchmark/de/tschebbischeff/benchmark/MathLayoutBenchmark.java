@@ -0,0 +1,139 @@
+package de.tschebbischeff.benchmark;
+
+import de.tschebbischeff.math.Matrix3d;
+import de.tschebbischeff.math.Quat4d;
+import de.tschebbischeff.math.Vector3d;
+import de.tschebbischeff.model.CelestialBody;
+import de.tschebbischeff.model.Orbit;
+import de.tschebbischeff.model.Scales;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the time and the heap allocated per evaluation of the math types in the hot paths of {@link Orbit} and
+ * {@link CelestialBody}. Temporaries which the JIT compiler replaces by scalars do not show up as allocated bytes,
+ * so a chain of operations which keeps its intermediate results local should allocate nothing once compiled.
+ * Results which are stored in a cache escape and are always allocated.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class MathLayoutBenchmark {
+
+    /**
+     * The number of evaluations per measurement.
+     */
+    private static final int SAMPLES = 5000000;
+    /**
+     * The number of measurements, of which the first ones warm up the JIT compiler.
+     */
+    private static final int ROUNDS = 5;
+    /**
+     * Measures the bytes allocated by the current thread, if the virtual machine supports it.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        CelestialBody star = new CelestialBody()
+                .setRadius(6.957E8d * Scales.meter())
+                .setMass(332946.0d * Scales.earthMass());
+        CelestialBody planet = new CelestialBody(new Orbit(star)
+                .setSemiMajorAxis(1.496E11d * Scales.meter())
+                .setEccentricity(0.0167d)
+                .setInclination(7.155d)
+                .setLongitudeOfAscendingNode(-11.26d)
+                .setArgumentOfPeriapsis(114.2d))
+                .setRadius(6371000.0d * Scales.meter())
+                .setMass(1.0d * Scales.earthMass())
+                .setRotationalPeriod(Scales.day());
+        String[] names = new String[]{"vector chain", "quaternion chain", "matrix chain", "orbit position", "surface position"};
+        double[][] results = new double[names.length][];
+        for (int round = 0; round < ROUNDS; round++) {
+            results[0] = measureVectors();
+            results[1] = measureQuaternions();
+            results[2] = measureMatrices();
+            results[3] = measureOrbit(planet.getOrbit());
+            results[4] = measureSurface(planet);
+        }
+        for (int i = 0; i < names.length; i++) {
+            System.out.println(String.format("%-18s %7.2f ns   %7.1f B", names[i], results[i][0], results[i][1]));
+        }
+    }
+
+    private static double[] measureVectors() {
+        Vector3d axis = new Vector3d(0.3d, -0.2d, 0.9d);
+        long[] start = start();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            Vector3d v = new Vector3d(i, 1.0d, 2.0d);
+            sink += v.cross(axis).add(v).normalize().scale(3.0d).dot(axis);
+        }
+        return report(start, sink);
+    }
+
+    private static double[] measureQuaternions() {
+        Vector3d v = new Vector3d(1.0d, 2.0d, 3.0d);
+        long[] start = start();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            sink += Quat4d.identity().yaw(i * 1.0e-3d).pitch(12.5d).rotateVector(v).getZ();
+        }
+        return report(start, sink);
+    }
+
+    private static double[] measureMatrices() {
+        Quat4d q = new Quat4d(10.0d, 20.0d, 30.0d);
+        long[] start = start();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            Matrix3d m = q.toRotationMatrix();
+            sink += m.mult(m).mult(new Vector3d(i, 1.0d, 0.0d)).getY();
+        }
+        return report(start, sink);
+    }
+
+    private static double[] measureOrbit(Orbit orbit) {
+        long[] start = start();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            sink += orbit.getOrbitalPositionByTrueAnomaly(i * 1.0e-3d).getX();
+        }
+        return report(start, sink);
+    }
+
+    private static double[] measureSurface(CelestialBody body) {
+        long[] start = start();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            sink += body.getPositionOnSurface(i * 60.0d, 45.0d, 30.0d).getX();
+        }
+        return report(start, sink);
+    }
+
+    /**
+     * Records the time and the bytes allocated by the current thread at the start of a measurement.
+     *
+     * @return The time in nanoseconds and the allocated bytes.
+     */
+    private static long[] start() {
+        return new long[]{System.nanoTime(), THREADS.getThreadAllocatedBytes(Thread.currentThread().getId())};
+    }
+
+    /**
+     * Calculates the time and the bytes allocated per evaluation and consumes the result, so the loop can not be
+     * eliminated.
+     *
+     * @param start The time and allocated bytes at the start of the measurement, see {@link MathLayoutBenchmark#start()}.
+     * @param sink  The accumulated results of the measurement.
+     * @return The average time per evaluation in nanoseconds and the average allocated bytes per evaluation.
+     */
+    private static double[] report(long[] start, double sink) {
+        double nanos = (System.nanoTime() - start[0]) / (double) SAMPLES;
+        double bytes = (THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - start[1]) / (double) SAMPLES;
+        if (sink == Double.NEGATIVE_INFINITY) {
+            System.out.println(sink);
+        }
+        return new double[]{nanos, bytes};
+    }
+
+}
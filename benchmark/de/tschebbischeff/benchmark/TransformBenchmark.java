@@ -0,0 +1,196 @@
+package de.tschebbischeff.benchmark;
+
+import com.andreaskahler.math.Matrix4f;
+import com.andreaskahler.math.Vector4f;
+import de.tschebbischeff.math.Matrix3d;
+import de.tschebbischeff.math.Quat4d;
+import de.tschebbischeff.math.TransformKernels;
+
+/**
+ * Measures the throughput of the kernels of {@link TransformKernels} against the object based operations of
+ * {@link Matrix3d} and {@link Matrix4f}: matrix products, the model matrix of a celestial body as built by the
+ * visualizer, and transforming points.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class TransformBenchmark {
+
+    /**
+     * The number of evaluations per measurement.
+     */
+    private static final int SAMPLES = 5000000;
+    /**
+     * The number of measurements, of which the first ones warm up the JIT compiler.
+     */
+    private static final int ROUNDS = 5;
+    /**
+     * The number of points transformed per evaluation of the point transforms.
+     */
+    private static final int POINTS = 1024;
+
+    public static void main(String[] args) {
+        String[] names = new String[]{"3x3 product", "4x4 product", "model matrix", "points (per point)"};
+        double[][] results = new double[names.length][];
+        for (int round = 0; round < ROUNDS; round++) {
+            results[0] = new double[]{measureMatrix3d(), measureMult3()};
+            results[1] = new double[]{measureMatrix4f(), measureMult4()};
+            results[2] = new double[]{measureModelMatrix4f(), measureModelAffine()};
+            results[3] = new double[]{measureVector4f(), measureTransformPoints()};
+        }
+        for (int i = 0; i < names.length; i++) {
+            System.out.println(String.format("%-18s objects: %6.2f ns   kernels: %6.2f ns", names[i], results[i][0], results[i][1]));
+        }
+    }
+
+    private static double measureMatrix3d() {
+        Matrix3d a = new Quat4d(10.0d, 20.0d, 30.0d).toRotationMatrix();
+        Matrix3d b = new Quat4d(40.0d, 50.0d, 60.0d).toRotationMatrix();
+        long start = System.nanoTime();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            a = a.mult(b);
+        }
+        sink += a.getColumn1().getX();
+        return report(start, sink, SAMPLES);
+    }
+
+    private static double measureMult3() {
+        double[] a = new Quat4d(10.0d, 20.0d, 30.0d).toRotationMatrix().get(new double[9], 0);
+        double[] b = new Quat4d(40.0d, 50.0d, 60.0d).toRotationMatrix().get(new double[9], 0);
+        long start = System.nanoTime();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            TransformKernels.mult3(a, b, a);
+        }
+        sink += a[0];
+        return report(start, sink, SAMPLES);
+    }
+
+    private static double measureMatrix4f() {
+        Matrix4f a = Matrix4f.rotate(10.0f, 0.0f, 0.6f, 0.8f);
+        Matrix4f b = Matrix4f.rotate(40.0f, 0.8f, 0.6f, 0.0f);
+        long start = System.nanoTime();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            a = a.multiply(b);
+        }
+        sink += a.getData()[0];
+        return report(start, sink, SAMPLES);
+    }
+
+    private static double measureMult4() {
+        float[] a = Matrix4f.rotate(10.0f, 0.0f, 0.6f, 0.8f).getData();
+        float[] b = Matrix4f.rotate(40.0f, 0.8f, 0.6f, 0.0f).getData();
+        long start = System.nanoTime();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            TransformKernels.mult4(a, b, a);
+        }
+        sink += a[0];
+        return report(start, sink, SAMPLES);
+    }
+
+    private static double measureModelMatrix4f() {
+        Quat4d rotation = new Quat4d(10.0d, 20.0d, 30.0d);
+        long start = System.nanoTime();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            rotation.setK(i * 1.0e-7d);
+            //As built by the visualizer before the kernels: level * translation * rotation * scale
+            float[] model = Quat4d.identity().roll(90).toGlRotationMatrix().multiply(
+                    new Matrix4f(
+                            new Vector4f(1f, 0f, 0f, (float) i),
+                            new Vector4f(0f, 1f, 0f, 2f),
+                            new Vector4f(0f, 0f, 1f, 3f),
+                            new Vector4f(0f, 0f, 0f, 1f)
+                    ).transpose().multiply(rotation.toGlRotationMatrix()).multiply(Matrix4f.scale(2f, 2f, 2f))
+            ).getData();
+            sink += model[12];
+        }
+        return report(start, sink, SAMPLES);
+    }
+
+    private static double measureModelAffine() {
+        Quat4d rotation = new Quat4d(10.0d, 20.0d, 30.0d);
+        double[] level = Quat4d.identity().roll(90).toRotationMatrix().get(new double[9], 0);
+        Matrix3d matrix = Matrix3d.identity();
+        double[] composed = new double[9];
+        double[] translation = new double[3];
+        float[] model = new float[16];
+        long start = System.nanoTime();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            rotation.setK(i * 1.0e-7d);
+            translation[0] = i;
+            translation[1] = 2.0d;
+            translation[2] = 3.0d;
+            TransformKernels.transformPoints(level, 0.0d, 0.0d, 0.0d, translation, translation, 1);
+            TransformKernels.mult3(level, rotation.toRotationMatrix(matrix).get(composed, 0), composed);
+            TransformKernels.affine(composed, 2.0d, translation[0], translation[1], translation[2], model);
+            sink += model[12];
+        }
+        return report(start, sink, SAMPLES);
+    }
+
+    private static double measureVector4f() {
+        Matrix4f matrix = Matrix4f.rotate(10.0f, 0.0f, 0.6f, 0.8f).multiply(Matrix4f.translate(1.0f, 2.0f, 3.0f));
+        float[] points = points();
+        int evaluations = SAMPLES / POINTS;
+        long start = System.nanoTime();
+        double sink = 0.0d;
+        for (int i = 0; i < evaluations; i++) {
+            for (int o = 0; o < 3 * POINTS; o += 3) {
+                Vector4f point = matrix.multiply(new Vector4f(points[o], points[o + 1], points[o + 2], 1.0f));
+                points[o] = point.x;
+                points[o + 1] = point.y;
+                points[o + 2] = point.z;
+            }
+            sink += points[0];
+        }
+        return report(start, sink, evaluations * POINTS);
+    }
+
+    private static double measureTransformPoints() {
+        float[] matrix = Matrix4f.rotate(10.0f, 0.0f, 0.6f, 0.8f).multiply(Matrix4f.translate(1.0f, 2.0f, 3.0f)).getData();
+        float[] points = points();
+        int evaluations = SAMPLES / POINTS;
+        long start = System.nanoTime();
+        double sink = 0.0d;
+        for (int i = 0; i < evaluations; i++) {
+            TransformKernels.transformPoints(matrix, points, points, POINTS);
+            sink += points[0];
+        }
+        return report(start, sink, evaluations * POINTS);
+    }
+
+    /**
+     * Creates the points to transform.
+     *
+     * @return The points as consecutive x, y and z triplets.
+     */
+    private static float[] points() {
+        float[] points = new float[3 * POINTS];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = (float) Math.sin(i);
+        }
+        return points;
+    }
+
+    /**
+     * Calculates the time per evaluation and consumes the result, so the loop can not be eliminated.
+     *
+     * @param start       The time at which the measurement started, in nanoseconds.
+     * @param sink        The accumulated results of the measurement.
+     * @param evaluations The number of evaluations.
+     * @return The average time per evaluation, in nanoseconds.
+     */
+    private static double report(long start, double sink, int evaluations) {
+        double nanos = (System.nanoTime() - start) / (double) evaluations;
+        if (sink == Double.NEGATIVE_INFINITY) {
+            System.out.println(sink);
+        }
+        return nanos;
+    }
+
+}
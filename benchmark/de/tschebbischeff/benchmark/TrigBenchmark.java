@@ -0,0 +1,134 @@
+package de.tschebbischeff.benchmark;
+
+import de.tschebbischeff.math.FastTrig;
+
+/**
+ * Measures the throughput of calculating sine and cosine of the same angle, comparing {@link Math} and
+ * {@link StrictMath} with the polynomial kernels of {@link FastTrig}, for angles in radians as well as in degrees.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class TrigBenchmark {
+
+    /**
+     * The number of evaluations per measurement.
+     */
+    private static final int SAMPLES = 10000000;
+    /**
+     * The number of measurements, of which the first ones warm up the JIT compiler.
+     */
+    private static final int ROUNDS = 5;
+    /**
+     * The number of distinct angles, which are precomputed so their generation is not measured.
+     */
+    private static final int ANGLES = 4096;
+
+    public static void main(String[] args) {
+        FastTrig.setEnabled(true);
+        double[] ranges = new double[]{Math.PI, 100.0d, 1.0e5d};
+        for (double range : ranges) {
+            double math = 0.0d, strict = 0.0d, fast = 0.0d;
+            for (int round = 0; round < ROUNDS; round++) {
+                math = measureMath(range);
+                strict = measureStrictMath(range);
+                fast = measureFastTrig(range);
+            }
+            System.out.println(String.format("|x| < %8.0e   Math: %6.2f ns   StrictMath: %6.2f ns   FastTrig: %6.2f ns",
+                    range, math, strict, fast));
+        }
+        double radians = 0.0d, degrees = 0.0d;
+        for (int round = 0; round < ROUNDS; round++) {
+            radians = measureToRadians();
+            degrees = measureDegrees();
+        }
+        System.out.println(String.format("degrees        Math.toRadians: %6.2f ns   FastTrig: %6.2f ns", radians, degrees));
+    }
+
+    /**
+     * Calculates angles sweeping a range in steps which are not commensurate with pi.
+     *
+     * @param range The largest absolute angle.
+     * @return The angles.
+     */
+    private static double[] angles(double range) {
+        double[] angles = new double[ANGLES];
+        for (int i = 0; i < ANGLES; i++) {
+            angles[i] = range * (2.0d * ((i * 0.6180339887498949d) % 1.0d) - 1.0d);
+        }
+        return angles;
+    }
+
+    private static double measureMath(double range) {
+        double[] angles = angles(range);
+        long start = System.nanoTime();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            double angle = angles[i & (ANGLES - 1)];
+            sink += Math.sin(angle) + Math.cos(angle);
+        }
+        return report(start, sink);
+    }
+
+    private static double measureStrictMath(double range) {
+        double[] angles = angles(range);
+        long start = System.nanoTime();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            double angle = angles[i & (ANGLES - 1)];
+            sink += StrictMath.sin(angle) + StrictMath.cos(angle);
+        }
+        return report(start, sink);
+    }
+
+    private static double measureFastTrig(double range) {
+        double[] sinCos = new double[2];
+        double[] angles = angles(range);
+        long start = System.nanoTime();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            FastTrig.sincos(angles[i & (ANGLES - 1)], sinCos, 0);
+            sink += sinCos[0] + sinCos[1];
+        }
+        return report(start, sink);
+    }
+
+    private static double measureToRadians() {
+        double[] angles = angles(360.0d);
+        long start = System.nanoTime();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            double angle = Math.toRadians(angles[i & (ANGLES - 1)]);
+            sink += Math.sin(angle) + Math.cos(angle);
+        }
+        return report(start, sink);
+    }
+
+    private static double measureDegrees() {
+        double[] sinCos = new double[2];
+        double[] angles = angles(360.0d);
+        long start = System.nanoTime();
+        double sink = 0.0d;
+        for (int i = 0; i < SAMPLES; i++) {
+            FastTrig.sincosDegrees(angles[i & (ANGLES - 1)], sinCos, 0);
+            sink += sinCos[0] + sinCos[1];
+        }
+        return report(start, sink);
+    }
+
+    /**
+     * Calculates the time per evaluation and consumes the result, so the loop can not be eliminated.
+     *
+     * @param start The time at which the measurement started, in nanoseconds.
+     * @param sink  The accumulated results of the measurement.
+     * @return The average time per evaluation, in nanoseconds.
+     */
+    private static double report(long start, double sink) {
+        double nanos = (System.nanoTime() - start) / (double) SAMPLES;
+        if (sink == Double.NEGATIVE_INFINITY) {
+            System.out.println(sink);
+        }
+        return nanos;
+    }
+
+}
@@ -4,16 +4,22 @@ import de.tschebbischeff.math.Vector3d;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Java port of Andreas Kahler's C# IcoSphereCreator class.
  * Creates an icosahedric sphere of a chosen resolution with radius one.
+ * The sphere is available as a list of triangles or as an indexed mesh, which is shared by all callers requesting
+ * the same resolution, see {@link IcoSphereCreator#getIndexedIcoSphere(int)}.
  *
  * @author Andreas Kahler
  * @version 1.0.0
  */
 public class IcoSphereCreator {
 
+    // indexed meshes by recursion level, built once per process
+    private static final ConcurrentHashMap<Integer, IndexedIcoSphere> indexedIcoSpheres = new ConcurrentHashMap<>();
+
     private ArrayList<Vector3d> vertices;
     private int index;
     private HashMap<Long, Integer> middlePointIndexCache;
@@ -53,6 +59,51 @@ public class IcoSphereCreator {
     }
 
     public ArrayList<Vector3d> createIcoSphere(int recursionLevel) {
+        ArrayList<int[]> faces = this.createFaces(recursionLevel);
+
+        ArrayList<Vector3d> mesh = new ArrayList<>();
+        // done, now add triangles to mesh
+        for(int[] tri: faces) {
+            mesh.add(this.vertices.get(tri[0]));
+            mesh.add(this.vertices.get(tri[1]));
+            mesh.add(this.vertices.get(tri[2]));
+        }
+
+        return mesh;
+    }
+
+    /**
+     * Gets the indexed mesh of an icosahedric sphere with radius one. Each vertex is stored once, instead of once for
+     * every triangle it belongs to. The mesh is only created on the first request for a recursion level and shared
+     * afterwards, so its arrays must not be modified.
+     *
+     * @param recursionLevel The number of times the triangles of the icosahedron are subdivided.
+     * @return The indexed mesh.
+     */
+    public static IndexedIcoSphere getIndexedIcoSphere(int recursionLevel) {
+        return indexedIcoSpheres.computeIfAbsent(recursionLevel, level -> new IcoSphereCreator().createIndexedIcoSphere(level));
+    }
+
+    private IndexedIcoSphere createIndexedIcoSphere(int recursionLevel) {
+        ArrayList<int[]> faces = this.createFaces(recursionLevel);
+
+        float[] positions = new float[3 * this.vertices.size()];
+        for(int i = 0; i < this.vertices.size(); i++) {
+            Vector3d vertex = this.vertices.get(i);
+            positions[3 * i] = (float) vertex.getX();
+            positions[3 * i + 1] = (float) vertex.getY();
+            positions[3 * i + 2] = (float) vertex.getZ();
+        }
+        int[] indices = new int[3 * faces.size()];
+        for(int i = 0; i < faces.size(); i++) {
+            System.arraycopy(faces.get(i), 0, indices, 3 * i, 3);
+        }
+
+        return new IndexedIcoSphere(positions, indices);
+    }
+
+    // create the vertices and return the triangles, as indices into the vertices
+    private ArrayList<int[]> createFaces(int recursionLevel) {
         this.vertices = new ArrayList<>();
         this.middlePointIndexCache = new HashMap<>();
         this.index = 0;
@@ -125,14 +176,47 @@ public class IcoSphereCreator {
             faces = faces2;
         }
 
-        ArrayList<Vector3d> mesh = new ArrayList<>();
-        // done, now add triangles to mesh
-        for(int[] tri: faces) {
-            mesh.add(this.vertices.get(tri[0]));
-            mesh.add(this.vertices.get(tri[1]));
-            mesh.add(this.vertices.get(tri[2]));
+        return faces;
+    }
+
+    /**
+     * An icosahedric sphere with radius one, as a vertex array and the triangles indexing into it.
+     */
+    public static class IndexedIcoSphere {
+
+        private final float[] vertices;
+        private final int[] indices;
+
+        private IndexedIcoSphere(float[] vertices, int[] indices) {
+            this.vertices = vertices;
+            this.indices = indices;
         }
 
-        return mesh;
+        /**
+         * Gets the positions of the vertices as consecutive x, y and z coordinates.
+         *
+         * @return The positions of the vertices, which must not be modified.
+         */
+        public float[] getVertices() {
+            return this.vertices;
+        }
+
+        /**
+         * Gets the number of vertices.
+         *
+         * @return The number of vertices.
+         */
+        public int getVertexCount() {
+            return this.vertices.length / 3;
+        }
+
+        /**
+         * Gets the triangles as three consecutive indices into the vertices each.
+         *
+         * @return The indices of the triangles, which must not be modified.
+         */
+        public int[] getIndices() {
+            return this.indices;
+        }
     }
 }
\ No newline at end of file
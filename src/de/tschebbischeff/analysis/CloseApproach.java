@@ -0,0 +1,86 @@
+package de.tschebbischeff.analysis;
+
+import de.tschebbischeff.model.CelestialBody;
+
+/**
+ * A close approach of two bodies found by the {@link CloseApproachFinder}.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class CloseApproach {
+
+    /**
+     * The body with the lower index.
+     */
+    private final CelestialBody first;
+    /**
+     * The body with the higher index.
+     */
+    private final CelestialBody second;
+    /**
+     * The time of the smallest distance.
+     */
+    private final double time;
+    /**
+     * The smallest distance between both bodies.
+     */
+    private final double distance;
+
+    /**
+     * Creates a new close approach.
+     *
+     * @param first    The body with the lower index.
+     * @param second   The body with the higher index.
+     * @param time     The time of the smallest distance.
+     * @param distance The smallest distance between both bodies.
+     */
+    public CloseApproach(CelestialBody first, CelestialBody second, double time, double distance) {
+        this.first = first;
+        this.second = second;
+        this.time = time;
+        this.distance = distance;
+    }
+
+    /**
+     * Gets the first body of the approach.
+     *
+     * @return The body with the lower index in the searched snapshot.
+     */
+    public CelestialBody getFirst() {
+        return this.first;
+    }
+
+    /**
+     * Gets the second body of the approach.
+     *
+     * @return The body with the higher index in the searched snapshot.
+     */
+    public CelestialBody getSecond() {
+        return this.second;
+    }
+
+    /**
+     * Gets the time at which both bodies are closest.
+     *
+     * @return The absolute time of the approach.
+     */
+    public double getTime() {
+        return this.time;
+    }
+
+    /**
+     * Gets the smallest distance between both bodies.
+     *
+     * @return The distance at the time of the approach.
+     */
+    public double getDistance() {
+        return this.distance;
+    }
+
+    @Override
+    public String toString() {
+        return "close approach at " + this.time + ", distance " + this.distance;
+    }
+
+}
@@ -0,0 +1,960 @@
+package de.tschebbischeff.analysis;
+
+import de.tschebbischeff.model.CelestialBody;
+import de.tschebbischeff.model.Scales;
+import de.tschebbischeff.model.ephemeris.SystemEphemeris;
+import de.tschebbischeff.model.ephemeris.SystemSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Finds all pairs of bodies of a system, which come closer than a threshold distance within a span of time.
+ * The search runs in three stages, each discarding most of the pairs left by the previous one:
+ * <ol>
+ * <li>Before searching, the geometry of the orbits rules out pairs which can never meet. Below every parent, the
+ * range of distance of each descendant to that parent is a band around the orbit of the child it descends from, and
+ * a sweep over the sorted bands yields the pairs whose bands overlap. Of those, pairs whose ranges of distance to
+ * the star do not overlap and pairs whose orbits, or those of their ancestors, never come close, bounded below by a
+ * sampled minimum orbit intersection distance, are ruled out as well.</li>
+ * <li>The span of time is split into windows. Within each window every body is enclosed in an axis aligned box,
+ * which it can not leave, and the boxes are intersected by sweep and prune along the x-axis. The order of the boxes
+ * is kept between windows, so sorting them is close to linear.</li>
+ * <li>The distance of each pair whose boxes overlap is bounded on every sub-step of the window, using the maximum
+ * speed of both bodies, and the minima of sub-steps which may fall below the threshold are refined with a golden
+ * section search.</li>
+ * </ol>
+ * Windows are searched by the workers of a {@link ForkJoinPool} on a shared immutable snapshot.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class CloseApproachFinder {
+
+    /**
+     * The number of points at which each orbit is sampled to bound the minimum orbit intersection distance.
+     */
+    private static final int ORBIT_SAMPLES = 128;
+    /**
+     * The number of consecutive samples of an orbit, which are enclosed in a common bounding sphere.
+     */
+    private static final int ORBIT_BLOCK = 8;
+    /**
+     * Bounds the distance of any point on an orbit to its closest sample, relative to the longest chord between two
+     * neighbouring samples. Half the length of the arc between two samples bounds this distance, and with the
+     * number of samples above, no arc is more than ten percent longer than its chord.
+     */
+    private static final double CHORD_FACTOR = 0.55d;
+    /**
+     * The fraction of an interval at which the golden section search places its first point.
+     */
+    private static final double GOLDEN_SECTION = (3.0d - Math.sqrt(5.0d)) / 2.0d;
+
+    /**
+     * The snapshot of the searched system.
+     */
+    private final SystemSnapshot snapshot;
+    /**
+     * The ephemeris of the searched system.
+     */
+    private final SystemEphemeris ephemeris;
+    /**
+     * The number of bodies, including the star.
+     */
+    private final int count;
+    /**
+     * The number of ancestors of each body.
+     */
+    private final int[] depth;
+    /**
+     * The periapsis distance of each body to its parent.
+     */
+    private final double[] periapsis;
+    /**
+     * The apoapsis distance of each body to its parent.
+     */
+    private final double[] apoapsis;
+    /**
+     * The smallest possible distance of each body to the star.
+     */
+    private final double[] minimumRadius;
+    /**
+     * The largest possible distance of each body to the star.
+     */
+    private final double[] maximumRadius;
+    /**
+     * An upper bound of the speed of each body relative to the star.
+     */
+    private final double[] speed;
+    /**
+     * Points on the orbit of each body relative to its parent, as consecutive x, y and z triplets.
+     */
+    private final double[][] orbitSamples;
+    /**
+     * Spheres enclosing each block of consecutive points on the orbit of each body, as consecutive quadruples of the
+     * x, y and z-coordinate of the center and the radius.
+     */
+    private final double[][] orbitBlocks;
+    /**
+     * The bound of the distance of any point on the orbit of each body to its closest sample.
+     */
+    private final double[] orbitSampleError;
+    /**
+     * The pool executing the search.
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    /**
+     * The length of a window.
+     */
+    private double windowLength = Scales.day();
+    /**
+     * The number of sub-steps per window.
+     */
+    private int substeps = 16;
+    /**
+     * The maximum number of windows a single task searches, before it is split further.
+     */
+    private long batchSize = 64L;
+    /**
+     * The precision, to which the times of the approaches are refined.
+     */
+    private double tolerance = Scales.second();
+
+    /**
+     * Creates a new close approach finder on a snapshot of the system of the given body.
+     *
+     * @param body Any body of the system, the whole system of its star is searched.
+     */
+    public CloseApproachFinder(CelestialBody body) {
+        this(body.createSnapshot());
+    }
+
+    /**
+     * Creates a new close approach finder.
+     *
+     * @param snapshot The snapshot of the searched system.
+     */
+    public CloseApproachFinder(SystemSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.ephemeris = snapshot.getEphemeris();
+        this.count = snapshot.getBodyCount();
+        this.depth = new int[this.count];
+        this.periapsis = new double[this.count];
+        this.apoapsis = new double[this.count];
+        this.minimumRadius = new double[this.count];
+        this.maximumRadius = new double[this.count];
+        this.speed = new double[this.count];
+        this.orbitSamples = new double[this.count][];
+        this.orbitBlocks = new double[this.count][];
+        this.orbitSampleError = new double[this.count];
+        //Parents precede their children, so their bounds are known first
+        for (int i = 1; i < this.count; i++) {
+            int parent = this.ephemeris.getParentIndex(i);
+            double a = this.ephemeris.getSemiMajorAxis(i);
+            double e = this.ephemeris.getEccentricity(i);
+            this.depth[i] = this.depth[parent] + 1;
+            this.periapsis[i] = a * (1.0d - e);
+            this.apoapsis[i] = a * (1.0d + e);
+            this.minimumRadius[i] = parent == 0 ? this.periapsis[i] : Math.max(0.0d, this.minimumRadius[parent] - this.apoapsis[i]);
+            this.maximumRadius[i] = this.maximumRadius[parent] + this.apoapsis[i];
+            //The speed of a Keplerian orbit peaks at periapsis
+            this.speed[i] = this.speed[parent] + this.ephemeris.getMeanMotion(i) * a * Math.sqrt((1.0d + e) / (1.0d - e));
+            double[] samples = new double[3 * ORBIT_SAMPLES];
+            for (int s = 0; s < ORBIT_SAMPLES; s++) {
+                this.ephemeris.getOrbitalPosition(i, 2.0d * Math.PI * s / ORBIT_SAMPLES, samples, 3 * s);
+            }
+            double chord = 0.0d;
+            for (int s = 0; s < ORBIT_SAMPLES; s++) {
+                int n = 3 * ((s + 1) % ORBIT_SAMPLES);
+                chord = Math.max(chord, distance(samples, 3 * s, samples, n));
+            }
+            double[] blocks = new double[4 * (ORBIT_SAMPLES / ORBIT_BLOCK)];
+            for (int k = 0; k < ORBIT_SAMPLES / ORBIT_BLOCK; k++) {
+                int first = 3 * ORBIT_BLOCK * k, last = first + 3 * ORBIT_BLOCK;
+                double x = 0.0d, y = 0.0d, z = 0.0d;
+                for (int s = first; s < last; s += 3) {
+                    x += samples[s];
+                    y += samples[s + 1];
+                    z += samples[s + 2];
+                }
+                blocks[4 * k] = x / ORBIT_BLOCK;
+                blocks[4 * k + 1] = y / ORBIT_BLOCK;
+                blocks[4 * k + 2] = z / ORBIT_BLOCK;
+                for (int s = first; s < last; s += 3) {
+                    blocks[4 * k + 3] = Math.max(blocks[4 * k + 3], distance(blocks, 4 * k, samples, s));
+                }
+            }
+            this.orbitSamples[i] = samples;
+            this.orbitBlocks[i] = blocks;
+            this.orbitSampleError[i] = CHORD_FACTOR * chord;
+        }
+    }
+
+    /**
+     * Gets the snapshot of the searched system.
+     *
+     * @return The snapshot this finder searches.
+     */
+    public SystemSnapshot getSnapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * Sets the pool executing the search. Defaults to the common pool.
+     *
+     * @param pool The pool to use.
+     * @return This close approach finder for fluent method calls.
+     */
+    public CloseApproachFinder setPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Gets the length of a window.
+     *
+     * @return The span of time covered by a single window.
+     */
+    public double getWindowLength() {
+        return this.windowLength;
+    }
+
+    /**
+     * Sets the length of a window. Longer windows need fewer sorts, but enclose the bodies in larger boxes.
+     * Defaults to one day.
+     *
+     * @param windowLength The span of time covered by a single window, must be greater than zero.
+     * @return This close approach finder for fluent method calls.
+     */
+    public CloseApproachFinder setWindowLength(double windowLength) {
+        if (!(windowLength > 0.0d)) {
+            throw new IllegalArgumentException("The window length must be greater than zero.");
+        }
+        this.windowLength = windowLength;
+        return this;
+    }
+
+    /**
+     * Gets the number of sub-steps per window.
+     *
+     * @return The number of sub-steps.
+     */
+    public int getSubsteps() {
+        return this.substeps;
+    }
+
+    /**
+     * Sets the number of sub-steps per window. Each sub-step may hold at most one approach of the same pair, so the
+     * sub-steps must be shorter than the time between two approaches. Defaults to 16.
+     *
+     * @param substeps The number of sub-steps. The minimum value is one.
+     * @return This close approach finder for fluent method calls.
+     */
+    public CloseApproachFinder setSubsteps(int substeps) {
+        this.substeps = Math.max(1, substeps);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of windows a single task searches.
+     *
+     * @param batchSize The new maximum number of windows per task. The minimum value is one.
+     * @return This close approach finder for fluent method calls.
+     */
+    public CloseApproachFinder setBatchSize(long batchSize) {
+        this.batchSize = Math.max(1L, batchSize);
+        return this;
+    }
+
+    /**
+     * Gets the precision to which the times of the approaches are refined.
+     *
+     * @return The tolerance of the refinement.
+     */
+    public double getTolerance() {
+        return this.tolerance;
+    }
+
+    /**
+     * Sets the precision to which the times of the approaches are refined. Defaults to one second.
+     *
+     * @param tolerance The tolerance of the refinement, must be greater than zero.
+     * @return This close approach finder for fluent method calls.
+     */
+    public CloseApproachFinder setTolerance(double tolerance) {
+        if (!(tolerance > 0.0d)) {
+            throw new IllegalArgumentException("The tolerance must be greater than zero.");
+        }
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    /**
+     * Counts the pairs of bodies, which are not ruled out by the geometry of their orbits.
+     *
+     * @param threshold The threshold distance.
+     * @return The number of pairs searched for the given threshold.
+     */
+    public long countCandidates(double threshold) {
+        return this.candidates(threshold).size();
+    }
+
+    /**
+     * Searches all approaches closer than the threshold in the interval [t0, t1] and passes each approach to the
+     * sink as soon as it is found. Every local minimum of the distance of a pair below the threshold is reported
+     * once, unless it shares its sub-step with another extremum of the distance. The sink is called concurrently from
+     * several threads and in no particular order, it must therefore be thread-safe.
+     *
+     * @param t0        The beginning of the searched interval.
+     * @param t1        The end of the searched interval.
+     * @param threshold The threshold distance between the centers of two bodies.
+     * @param sink      Receives the found approaches.
+     */
+    public void find(double t0, double t1, double threshold, Consumer<CloseApproach> sink) {
+        if (!(t1 > t0)) {
+            throw new IllegalArgumentException("The end of the interval must lie after its beginning.");
+        }
+        if (!(threshold >= 0.0d)) {
+            throw new IllegalArgumentException("The threshold must not be negative.");
+        }
+        double step = this.windowLength / this.substeps;
+        long intervals = (long) Math.ceil((t1 - t0) / step);
+        long windows = (intervals + this.substeps - 1) / this.substeps;
+        Candidates candidates = this.candidates(threshold);
+        this.pool.invoke(new Windows(new Search(t0, t1, step, intervals, threshold, candidates, sink), 0L, windows));
+    }
+
+    /**
+     * Searches all approaches closer than the threshold in the interval [t0, t1], see
+     * {@link CloseApproachFinder#find(double, double, double, Consumer)}.
+     *
+     * @param t0        The beginning of the searched interval.
+     * @param t1        The end of the searched interval.
+     * @param threshold The threshold distance between the centers of two bodies.
+     * @return All found approaches, sorted by time.
+     */
+    public List<CloseApproach> findAll(double t0, double t1, double threshold) {
+        List<CloseApproach> approaches = Collections.synchronizedList(new ArrayList<>());
+        this.find(t0, t1, threshold, approaches::add);
+        ArrayList<CloseApproach> sorted = new ArrayList<>(approaches);
+        sorted.sort(Comparator.comparingDouble(CloseApproach::getTime));
+        return sorted;
+    }
+
+    /**
+     * Determines the pairs of bodies, which are not ruled out by the geometry of their orbits.
+     * Every body takes part in the sweep below each of its ancestors and the sweep below itself, so the sweeps hold
+     * as many bands as there are pairs of a body and an ancestor. Each sweep only compares bands, which overlap.
+     *
+     * @param threshold The threshold distance.
+     * @return The candidate pairs.
+     */
+    private Candidates candidates(double threshold) {
+        //The bands below each parent are stored consecutively, each parent adds a band of zero width for itself
+        int[] start = new int[this.count + 1];
+        for (int i = 0; i < this.count; i++) {
+            start[i + 1]++;
+            for (int c = i; c != 0; c = this.ephemeris.getParentIndex(c)) {
+                start[this.ephemeris.getParentIndex(c) + 1]++;
+            }
+        }
+        for (int p = 0; p < this.count; p++) {
+            start[p + 1] += start[p];
+        }
+        int bands = start[this.count];
+        double[] lower = new double[bands];
+        double[] upper = new double[bands];
+        int[] body = new int[bands];
+        int[] branch = new int[bands];
+        int[] next = Arrays.copyOf(start, this.count);
+        for (int i = 0; i < this.count; i++) {
+            int k = next[i]++;
+            body[k] = i;
+            branch[k] = i;
+            //Walks up the ancestors, summing the apoapses left behind
+            double slack = 0.0d;
+            for (int c = i; c != 0; c = this.ephemeris.getParentIndex(c)) {
+                k = next[this.ephemeris.getParentIndex(c)]++;
+                lower[k] = this.periapsis[c] - slack;
+                upper[k] = this.apoapsis[c] + slack;
+                body[k] = i;
+                branch[k] = c;
+                slack += this.apoapsis[c];
+            }
+        }
+        long[] pairs = new long[Math.max(16, bands)];
+        int size = 0;
+        int[] active = new int[bands];
+        for (int p = 0; p < this.count; p++) {
+            int first = start[p], last = start[p + 1];
+            if (last - first < 2) {
+                continue;
+            }
+            Integer[] order = new Integer[last - first];
+            for (int k = first; k < last; k++) {
+                order[k - first] = k;
+            }
+            Arrays.sort(order, Comparator.comparingDouble(k -> lower[k]));
+            //Bands of the same branch are compared below the child they descend from
+            int actives = 0;
+            for (int k : order) {
+                int kept = 0;
+                for (int l = 0; l < actives; l++) {
+                    int other = active[l];
+                    if (upper[other] + threshold < lower[k]) {
+                        continue;
+                    }
+                    active[kept++] = other;
+                    if (branch[other] != branch[k]) {
+                        if (size == pairs.length) {
+                            pairs = Arrays.copyOf(pairs, 2 * size);
+                        }
+                        int i = Math.min(body[k], body[other]), j = Math.max(body[k], body[other]);
+                        pairs[size++] = (long) i << 32 | j;
+                    }
+                }
+                actives = kept;
+                active[actives++] = k;
+            }
+        }
+        this.pool.invoke(new Pairs(pairs, threshold, 0, size));
+        int kept = 0;
+        for (int k = 0; k < size; k++) {
+            if (pairs[k] >= 0L) {
+                pairs[kept++] = pairs[k];
+            }
+        }
+        Arrays.sort(pairs, 0, kept);
+        int[] offsets = new int[this.count + 1];
+        int[] partners = new int[kept];
+        for (int k = 0; k < kept; k++) {
+            offsets[(int) (pairs[k] >>> 32) + 1]++;
+            partners[k] = (int) pairs[k];
+        }
+        for (int i = 0; i < this.count; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        return new Candidates(offsets, partners);
+    }
+
+    /**
+     * Checks whether the geometry of the orbits of two bodies rules out an approach, given that their bands of
+     * distance to their closest common ancestor overlap.
+     *
+     * @param i         The index of the first body.
+     * @param j         The index of the second body.
+     * @param threshold The threshold distance.
+     * @return True if the distance of both bodies always exceeds the threshold.
+     */
+    private boolean separated(int i, int j, double threshold) {
+        if (this.minimumRadius[i] > this.maximumRadius[j] + threshold || this.minimumRadius[j] > this.maximumRadius[i] + threshold) {
+            return true;
+        }
+        //Walks up to the children of the closest common ancestor, summing the apoapses left behind
+        int a = i, b = j;
+        double slackA = 0.0d, slackB = 0.0d;
+        while (this.depth[a] > this.depth[b]) {
+            if (this.ephemeris.getParentIndex(a) == b) {
+                return false;
+            }
+            slackA += this.apoapsis[a];
+            a = this.ephemeris.getParentIndex(a);
+        }
+        while (this.depth[b] > this.depth[a]) {
+            if (this.ephemeris.getParentIndex(b) == a) {
+                return false;
+            }
+            slackB += this.apoapsis[b];
+            b = this.ephemeris.getParentIndex(b);
+        }
+        while (this.ephemeris.getParentIndex(a) != this.ephemeris.getParentIndex(b)) {
+            slackA += this.apoapsis[a];
+            a = this.ephemeris.getParentIndex(a);
+            slackB += this.apoapsis[b];
+            b = this.ephemeris.getParentIndex(b);
+        }
+        //A sampled distance bounds the minimum orbit intersection distance from above, less the sample errors of
+        //both orbits it bounds it from below
+        double limit = threshold + slackA + slackB + this.orbitSampleError[a] + this.orbitSampleError[b];
+        double[] first = this.orbitSamples[a], second = this.orbitSamples[b];
+        double[] firstBlocks = this.orbitBlocks[a], secondBlocks = this.orbitBlocks[b];
+        double squared = limit * limit;
+        //Samples of two blocks can only be closer than the limit, if the spheres enclosing the blocks are
+        for (int k = 0; k < firstBlocks.length; k += 4) {
+            for (int l = 0; l < secondBlocks.length; l += 4) {
+                double reach = limit + firstBlocks[k + 3] + secondBlocks[l + 3];
+                double dx = firstBlocks[k] - secondBlocks[l];
+                double dy = firstBlocks[k + 1] - secondBlocks[l + 1];
+                double dz = firstBlocks[k + 2] - secondBlocks[l + 2];
+                if (dx * dx + dy * dy + dz * dz > reach * reach) {
+                    continue;
+                }
+                for (int s = 3 * ORBIT_BLOCK * (k / 4), end = s + 3 * ORBIT_BLOCK; s < end; s += 3) {
+                    for (int t = 3 * ORBIT_BLOCK * (l / 4), stop = t + 3 * ORBIT_BLOCK; t < stop; t += 3) {
+                        dx = first[s] - second[t];
+                        dy = first[s + 1] - second[t + 1];
+                        dz = first[s + 2] - second[t + 2];
+                        if (dx * dx + dy * dy + dz * dz <= squared) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Bounds the speed of two bodies relative to each other.
+     *
+     * @param i The index of the first body.
+     * @param j The index of the second body.
+     * @return An upper bound of the rate at which the distance of both bodies changes.
+     */
+    private double relativeSpeed(int i, int j) {
+        int a = i, b = j;
+        while (a != b) {
+            if (this.depth[a] >= this.depth[b]) {
+                a = this.ephemeris.getParentIndex(a);
+            } else {
+                b = this.ephemeris.getParentIndex(b);
+            }
+        }
+        //The motion of the common ancestor moves both bodies alike
+        return this.speed[i] + this.speed[j] - 2.0d * this.speed[a];
+    }
+
+    /**
+     * Calculates the distance between two points.
+     *
+     * @param first  The buffer holding the first point.
+     * @param i      The index of the x-coordinate of the first point.
+     * @param second The buffer holding the second point.
+     * @param j      The index of the x-coordinate of the second point.
+     * @return The distance between both points.
+     */
+    private static double distance(double[] first, int i, double[] second, int j) {
+        double dx = first[i] - second[j];
+        double dy = first[i + 1] - second[j + 1];
+        double dz = first[i + 2] - second[j + 2];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * The pairs of bodies, which are not ruled out by the geometry of their orbits, in compressed rows.
+     */
+    private static class Candidates {
+
+        /**
+         * The index of the first partner of each body, followed by the number of partners.
+         */
+        private final int[] offsets;
+        /**
+         * The partners j of each body i with i &lt; j, in ascending order per body.
+         */
+        private final int[] partners;
+
+        /**
+         * Creates the candidate pairs.
+         *
+         * @param offsets  The index of the first partner of each body, followed by the number of partners.
+         * @param partners The partners j of each body i with i &lt; j, in ascending order per body.
+         */
+        private Candidates(int[] offsets, int[] partners) {
+            this.offsets = offsets;
+            this.partners = partners;
+        }
+
+        /**
+         * Gets the number of candidate pairs.
+         *
+         * @return The number of pairs.
+         */
+        private int size() {
+            return this.partners.length;
+        }
+
+        /**
+         * Checks whether a pair of bodies is a candidate.
+         *
+         * @param i The index of the first body.
+         * @param j The index of the second body, greater than i.
+         * @return True if the pair is a candidate.
+         */
+        private boolean contains(int i, int j) {
+            return Arrays.binarySearch(this.partners, this.offsets[i], this.offsets[i + 1], j) >= 0;
+        }
+    }
+
+    /**
+     * A range of pairs with overlapping bands, which is either checked directly or split in halves.
+     * Pairs ruled out by the geometry of their orbits are marked by a negative value.
+     */
+    private class Pairs extends RecursiveAction {
+
+        /**
+         * The version of the serialized form, which is never used, as tasks are not serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The pairs, each with the index of the first body in the upper and the index of the second body in the
+         * lower half.
+         */
+        private final long[] pairs;
+        /**
+         * The threshold distance.
+         */
+        private final double threshold;
+        /**
+         * The index of the first pair.
+         */
+        private final int first;
+        /**
+         * The index after the last pair.
+         */
+        private final int last;
+
+        /**
+         * Creates a new range of pairs.
+         *
+         * @param pairs     The pairs, each with the index of the first body in the upper and the index of the second
+         *                  body in the lower half.
+         * @param threshold The threshold distance.
+         * @param first     The index of the first pair.
+         * @param last      The index after the last pair.
+         */
+        private Pairs(long[] pairs, double threshold, int first, int last) {
+            this.pairs = pairs;
+            this.threshold = threshold;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.last - this.first > 1024) {
+                int middle = (this.first + this.last) >>> 1;
+                invokeAll(new Pairs(this.pairs, this.threshold, this.first, middle),
+                        new Pairs(this.pairs, this.threshold, middle, this.last));
+                return;
+            }
+            for (int k = this.first; k < this.last; k++) {
+                if (CloseApproachFinder.this.separated((int) (this.pairs[k] >>> 32), (int) this.pairs[k], this.threshold)) {
+                    this.pairs[k] = -1L;
+                }
+            }
+        }
+    }
+
+    /**
+     * The parameters of a single search, shared by all of its tasks.
+     */
+    private static class Search {
+
+        /**
+         * The beginning of the searched interval.
+         */
+        private final double t0;
+        /**
+         * The end of the searched interval.
+         */
+        private final double t1;
+        /**
+         * The length of a sub-step.
+         */
+        private final double step;
+        /**
+         * The number of sub-steps in the searched interval.
+         */
+        private final long intervals;
+        /**
+         * The threshold distance.
+         */
+        private final double threshold;
+        /**
+         * The candidate pairs.
+         */
+        private final Candidates candidates;
+        /**
+         * Receives the found approaches.
+         */
+        private final Consumer<CloseApproach> sink;
+
+        /**
+         * Creates the parameters of a search.
+         *
+         * @param t0         The beginning of the searched interval.
+         * @param t1         The end of the searched interval.
+         * @param step       The length of a sub-step.
+         * @param intervals  The number of sub-steps in the searched interval.
+         * @param threshold  The threshold distance.
+         * @param candidates The candidate pairs.
+         * @param sink       Receives the found approaches.
+         */
+        private Search(double t0, double t1, double step, long intervals, double threshold, Candidates candidates, Consumer<CloseApproach> sink) {
+            this.t0 = t0;
+            this.t1 = t1;
+            this.step = step;
+            this.intervals = intervals;
+            this.threshold = threshold;
+            this.candidates = candidates;
+            this.sink = sink;
+        }
+
+        /**
+         * Gets the time at the beginning of a sub-step.
+         *
+         * @param index The index of the sub-step.
+         * @return The time of the sub-step, the last sub-step ends at the end of the searched interval.
+         */
+        private double time(long index) {
+            return Math.min(this.t1, this.t0 + index * this.step);
+        }
+    }
+
+    /**
+     * A range of windows, which is either searched directly or split in halves.
+     */
+    private class Windows extends RecursiveAction {
+
+        /**
+         * The version of the serialized form, which is never used, as tasks are not serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The parameters of the search.
+         */
+        private final Search search;
+        /**
+         * The index of the first window.
+         */
+        private final long first;
+        /**
+         * The index after the last window.
+         */
+        private final long last;
+        /**
+         * The positions of all bodies at the sub-steps of the current window.
+         */
+        private double[] samples;
+        /**
+         * The lower corners of the boxes of all bodies.
+         */
+        private double[] lower;
+        /**
+         * The upper corners of the boxes of all bodies.
+         */
+        private double[] upper;
+        /**
+         * The bodies sorted by the lower x-coordinate of their boxes.
+         */
+        private int[] order;
+        /**
+         * Holds the positions of two bodies during the refinement.
+         */
+        private final double[] scratch = new double[6];
+
+        /**
+         * Creates a new range of windows.
+         *
+         * @param search The parameters of the search.
+         * @param first  The index of the first window.
+         * @param last   The index after the last window.
+         */
+        private Windows(Search search, long first, long last) {
+            this.search = search;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.last - this.first > CloseApproachFinder.this.batchSize) {
+                long middle = this.first + (this.last - this.first) / 2;
+                invokeAll(new Windows(this.search, this.first, middle), new Windows(this.search, middle, this.last));
+                return;
+            }
+            int count = CloseApproachFinder.this.count;
+            int substeps = CloseApproachFinder.this.substeps;
+            this.samples = new double[3 * count * (substeps + 1)];
+            this.lower = new double[3 * count];
+            this.upper = new double[3 * count];
+            this.order = new int[count];
+            for (int i = 0; i < count; i++) {
+                this.order[i] = i;
+            }
+            for (long window = this.first; window < this.last; window++) {
+                long begin = window * substeps;
+                long end = Math.min(begin + substeps, this.search.intervals);
+                this.searchWindow(begin, end);
+            }
+        }
+
+        /**
+         * Searches a single window.
+         *
+         * @param begin The index of the first sub-step of the window.
+         * @param end   The index after the last sub-step of the window.
+         */
+        private void searchWindow(long begin, long end) {
+            int count = CloseApproachFinder.this.count;
+            int stride = 3 * count;
+            int points = (int) (end - begin) + 1;
+            for (int s = 0; s < points; s++) {
+                CloseApproachFinder.this.ephemeris.evaluate(this.search.time(begin + s), this.samples, s * stride);
+            }
+            //Between two sub-steps a body stays within half a sub-step of travel of one of them
+            for (int i = 0; i < count; i++) {
+                double padding = 0.5d * (CloseApproachFinder.this.speed[i] * this.search.step + this.search.threshold);
+                for (int c = 0; c < 3; c++) {
+                    double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+                    for (int s = 0, o = 3 * i + c; s < points; s++, o += stride) {
+                        min = Math.min(min, this.samples[o]);
+                        max = Math.max(max, this.samples[o]);
+                    }
+                    this.lower[3 * i + c] = min - padding;
+                    this.upper[3 * i + c] = max + padding;
+                }
+            }
+            //The order of the previous window is nearly sorted, which suits insertion sort
+            for (int k = 1; k < count; k++) {
+                int body = this.order[k];
+                double key = this.lower[3 * body];
+                int l = k - 1;
+                while (l >= 0 && this.lower[3 * this.order[l]] > key) {
+                    this.order[l + 1] = this.order[l];
+                    l--;
+                }
+                this.order[l + 1] = body;
+            }
+            for (int k = 0; k < count; k++) {
+                int a = this.order[k];
+                double limit = this.upper[3 * a];
+                for (int l = k + 1; l < count; l++) {
+                    int b = this.order[l];
+                    if (this.lower[3 * b] > limit) {
+                        break;
+                    }
+                    if (this.lower[3 * a + 1] > this.upper[3 * b + 1] || this.lower[3 * b + 1] > this.upper[3 * a + 1]
+                            || this.lower[3 * a + 2] > this.upper[3 * b + 2] || this.lower[3 * b + 2] > this.upper[3 * a + 2]) {
+                        continue;
+                    }
+                    int i = Math.min(a, b), j = Math.max(a, b);
+                    if (this.search.candidates.contains(i, j)) {
+                        this.refine(i, j, begin, points);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Searches the sub-steps of a window for approaches of a pair of bodies.
+         * A minimum, which lies within the tolerance of the boundary of two sub-steps, is reported by the sub-step on
+         * the side in which the distance decreases towards the boundary, so it is reported exactly once.
+         *
+         * @param i      The index of the first body.
+         * @param j      The index of the second body.
+         * @param begin  The index of the first sub-step of the window.
+         * @param points The number of sampled points in the window.
+         */
+        private void refine(int i, int j, long begin, int points) {
+            double speed = CloseApproachFinder.this.relativeSpeed(i, j);
+            double tolerance = CloseApproachFinder.this.tolerance;
+            int stride = 3 * CloseApproachFinder.this.count;
+            double previous = CloseApproachFinder.distance(this.samples, 3 * i, this.samples, 3 * j);
+            for (int s = 1; s < points; s++) {
+                double current = CloseApproachFinder.distance(this.samples, s * stride + 3 * i, this.samples, s * stride + 3 * j);
+                double before = previous;
+                previous = current;
+                long index = begin + s - 1;
+                double a = this.search.time(index);
+                double b = this.search.time(index + 1);
+                //Neither body can close the gap faster than their relative speed
+                if (0.5d * (before + current - speed * (b - a)) > this.search.threshold) {
+                    continue;
+                }
+                double time = this.minimize(i, j, a, b);
+                double distance = this.distance(i, j, time);
+                if (distance > this.search.threshold) {
+                    continue;
+                }
+                if (time - a < 2.0d * tolerance && index > 0 && this.slope(i, j, a) > 0.0d) {
+                    continue;
+                }
+                if (b - time < 2.0d * tolerance && index + 1 < this.search.intervals && !(this.slope(i, j, b) > 0.0d)) {
+                    continue;
+                }
+                this.search.sink.accept(new CloseApproach(CloseApproachFinder.this.snapshot.getBody(i), CloseApproachFinder.this.snapshot.getBody(j), time, distance));
+            }
+        }
+
+        /**
+         * Minimizes the distance of two bodies within an interval with a golden section search.
+         *
+         * @param i The index of the first body.
+         * @param j The index of the second body.
+         * @param a The beginning of the interval.
+         * @param b The end of the interval.
+         * @return The time of the smallest distance, within the tolerance.
+         */
+        private double minimize(int i, int j, double a, double b) {
+            double x = a + GOLDEN_SECTION * (b - a);
+            double y = b - GOLDEN_SECTION * (b - a);
+            double fx = this.distance(i, j, x);
+            double fy = this.distance(i, j, y);
+            while (b - a > CloseApproachFinder.this.tolerance) {
+                if (fx < fy) {
+                    b = y;
+                    y = x;
+                    fy = fx;
+                    x = a + GOLDEN_SECTION * (b - a);
+                    fx = this.distance(i, j, x);
+                } else {
+                    a = x;
+                    x = y;
+                    fx = fy;
+                    y = b - GOLDEN_SECTION * (b - a);
+                    fy = this.distance(i, j, y);
+                }
+            }
+            return 0.5d * (a + b);
+        }
+
+        /**
+         * Estimates in which direction the distance of two bodies changes at the given time. Both sub-steps adjacent
+         * to the time calculate the same value, as it only depends on the time.
+         *
+         * @param i    The index of the first body.
+         * @param j    The index of the second body.
+         * @param time The absolute time.
+         * @return A value, which is positive if the distance grows.
+         */
+        private double slope(int i, int j, double time) {
+            double delta = 0.5d * CloseApproachFinder.this.tolerance;
+            return this.distance(i, j, time + delta) - this.distance(i, j, time - delta);
+        }
+
+        /**
+         * Calculates the distance of two bodies.
+         *
+         * @param i    The index of the first body.
+         * @param j    The index of the second body.
+         * @param time The absolute time.
+         * @return The distance of both bodies at the given time.
+         */
+        private double distance(int i, int j, double time) {
+            CloseApproachFinder.this.ephemeris.evaluateBody(i, time, this.scratch, 0);
+            CloseApproachFinder.this.ephemeris.evaluateBody(j, time, this.scratch, 3);
+            return CloseApproachFinder.distance(this.scratch, 0, this.scratch, 3);
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package de.tschebbischeff.analysis;
+
+import de.tschebbischeff.model.ephemeris.SystemSnapshot;
+
+/**
+ * Evaluates the positions of a snapshot for event functions. Each thread searching for events owns its own context,
+ * which remembers the positions of the last evaluated time, so several event functions can share them.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class EventContext {
+
+    /**
+     * The snapshot of the searched system.
+     */
+    private final SystemSnapshot snapshot;
+    /**
+     * The positions of all bodies at the last evaluated time.
+     */
+    private final double[] positions;
+    /**
+     * The last evaluated time.
+     */
+    private double time = Double.NaN;
+
+    /**
+     * Creates a new context.
+     *
+     * @param snapshot The snapshot of the searched system.
+     */
+    public EventContext(SystemSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.positions = snapshot.createBuffer();
+    }
+
+    /**
+     * Gets the snapshot of the searched system.
+     *
+     * @return The snapshot this context evaluates.
+     */
+    public SystemSnapshot getSnapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * Gets the positions of all bodies at the given time, see {@link SystemSnapshot#evaluate(double, double[])}.
+     *
+     * @param time The absolute time.
+     * @return The positions of all bodies. The buffer is overwritten by the next call with a different time and must
+     * not be retained.
+     */
+    public double[] getPositions(double time) {
+        if (time != this.time) {
+            this.snapshot.evaluate(time, this.positions);
+            this.time = time;
+        }
+        return this.positions;
+    }
+
+}
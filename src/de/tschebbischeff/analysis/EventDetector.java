@@ -0,0 +1,259 @@
+package de.tschebbischeff.analysis;
+
+import de.tschebbischeff.math.FastTrig;
+import de.tschebbischeff.model.KeplerSolver;
+import de.tschebbischeff.model.ephemeris.SystemEphemeris;
+
+/**
+ * Describes a kind of event by the roots of an event function, see {@link EventFinder}.
+ * A detector may only accept roots in one direction and may require a condition to hold at the root.
+ * Bodies are referred to by their index in the searched {@link de.tschebbischeff.model.ephemeris.SystemSnapshot}.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class EventDetector {
+
+    /**
+     * The directions in which an event function may cross zero.
+     */
+    public enum Direction {
+        /**
+         * From negative to positive.
+         */
+        RISING,
+        /**
+         * From positive to negative.
+         */
+        FALLING,
+        /**
+         * In both directions.
+         */
+        BOTH
+    }
+
+    /**
+     * The name of the detected events.
+     */
+    private final String name;
+    /**
+     * The function whose roots are the events.
+     */
+    private final EventFunction function;
+    /**
+     * The direction of the accepted roots.
+     */
+    private final Direction direction;
+    /**
+     * A function, which must be positive at a root for it to be accepted, null to accept all roots.
+     */
+    private final EventFunction condition;
+
+    /**
+     * Creates a new detector.
+     *
+     * @param name      The name of the detected events.
+     * @param function  The function whose roots are the events.
+     * @param direction The direction of the accepted roots.
+     * @param condition A function, which must be positive at a root for it to be accepted, null to accept all roots.
+     */
+    public EventDetector(String name, EventFunction function, Direction direction, EventFunction condition) {
+        this.name = name;
+        this.function = function;
+        this.direction = direction;
+        this.condition = condition;
+    }
+
+    /**
+     * Gets the name of the detected events.
+     *
+     * @return The name of this detector.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Gets the function whose roots are the events.
+     *
+     * @return The event function.
+     */
+    public EventFunction getFunction() {
+        return this.function;
+    }
+
+    /**
+     * Checks whether a root is accepted by this detector.
+     *
+     * @param context The context of the calling thread.
+     * @param time    The time of the root.
+     * @param rising  Whether the function changed from negative to positive.
+     * @return True if the root is an event of this detector.
+     */
+    boolean accepts(EventContext context, double time, boolean rising) {
+        if (this.direction == Direction.RISING && !rising || this.direction == Direction.FALLING && rising) {
+            return false;
+        }
+        return this.condition == null || this.condition.value(context, time) > 0.0d;
+    }
+
+    /**
+     * Detects the passages of a body through the periapsis of its orbit.
+     *
+     * @param body The index of the orbiting body, must not be the star.
+     * @return A new detector.
+     */
+    public static EventDetector periapsis(int body) {
+        requireOrbit(body);
+        return new EventDetector("periapsis " + body, rangeRate(body), Direction.RISING, null);
+    }
+
+    /**
+     * Detects the passages of a body through the apoapsis of its orbit.
+     *
+     * @param body The index of the orbiting body, must not be the star.
+     * @return A new detector.
+     */
+    public static EventDetector apoapsis(int body) {
+        requireOrbit(body);
+        return new EventDetector("apoapsis " + body, rangeRate(body), Direction.FALLING, null);
+    }
+
+    /**
+     * Detects conjunctions of two bodies as seen from an observing body, i.e. the times at which both appear in the
+     * same direction, projected onto the global x-y plane.
+     *
+     * @param first    The index of the first body.
+     * @param second   The index of the second body.
+     * @param observer The index of the observing body.
+     * @return A new detector.
+     */
+    public static EventDetector conjunction(int first, int second, int observer) {
+        return new EventDetector("conjunction " + first + "-" + second + " from " + observer, longitudeDifference(first, second, observer), Direction.BOTH, alignment(first, second, observer));
+    }
+
+    /**
+     * Detects oppositions of two bodies as seen from an observing body, i.e. the times at which both appear in
+     * opposite directions, projected onto the global x-y plane.
+     *
+     * @param first    The index of the first body.
+     * @param second   The index of the second body.
+     * @param observer The index of the observing body.
+     * @return A new detector.
+     */
+    public static EventDetector opposition(int first, int second, int observer) {
+        EventFunction alignment = alignment(first, second, observer);
+        return new EventDetector("opposition " + first + "-" + second + " from " + observer, longitudeDifference(first, second, observer), Direction.BOTH, (context, time) -> -alignment.value(context, time));
+    }
+
+    /**
+     * Detects occultations of one body by another as seen from an observing body. The event function is the angular
+     * separation of both bodies minus the sum of their angular radii, so falling events mark the beginning and
+     * rising events mark the end of an overlap of their discs.
+     *
+     * @param front    The index of the occulting body.
+     * @param back     The index of the occulted body.
+     * @param observer The index of the observing body.
+     * @return A new detector.
+     */
+    public static EventDetector occultation(int front, int back, int observer) {
+        EventFunction overlap = (context, time) -> {
+            double[] positions = context.getPositions(time);
+            double ax = positions[3 * front] - positions[3 * observer];
+            double ay = positions[3 * front + 1] - positions[3 * observer + 1];
+            double az = positions[3 * front + 2] - positions[3 * observer + 2];
+            double bx = positions[3 * back] - positions[3 * observer];
+            double by = positions[3 * back + 1] - positions[3 * observer + 1];
+            double bz = positions[3 * back + 2] - positions[3 * observer + 2];
+            double cx = ay * bz - az * by;
+            double cy = az * bx - ax * bz;
+            double cz = ax * by - ay * bx;
+            double separation = Math.atan2(Math.sqrt(cx * cx + cy * cy + cz * cz), ax * bx + ay * by + az * bz);
+            double frontRadius = Math.asin(Math.min(1.0d, context.getSnapshot().getRadius(front) / Math.sqrt(ax * ax + ay * ay + az * az)));
+            double backRadius = Math.asin(Math.min(1.0d, context.getSnapshot().getRadius(back) / Math.sqrt(bx * bx + by * by + bz * bz)));
+            return separation - frontRadius - backRadius;
+        };
+        //The occulting body must be the closer one
+        EventFunction inFront = (context, time) -> {
+            double[] positions = context.getPositions(time);
+            double frontDistance = 0.0d, backDistance = 0.0d;
+            for (int c = 0; c < 3; c++) {
+                double f = positions[3 * front + c] - positions[3 * observer + c];
+                double b = positions[3 * back + c] - positions[3 * observer + c];
+                frontDistance += f * f;
+                backDistance += b * b;
+            }
+            return backDistance - frontDistance;
+        };
+        return new EventDetector("occultation of " + back + " by " + front + " from " + observer, overlap, Direction.BOTH, inFront);
+    }
+
+    /**
+     * Checks that a body has an orbit, i.e. that it is not the star at index zero.
+     *
+     * @param body The index of the body.
+     */
+    private static void requireOrbit(int body) {
+        if (body <= 0) {
+            throw new IllegalArgumentException("The body must orbit a parent, the star has no periapsis or apoapsis.");
+        }
+    }
+
+    /**
+     * Creates a function with the sign of the rate at which the distance of a body to its parent changes.
+     * On a Keplerian orbit that rate is proportional to e sin(E), which is evaluated directly from the eccentric
+     * anomaly, so it vanishes exactly at periapsis and apoapsis. It is zero throughout a circular orbit, which has
+     * no apsides.
+     *
+     * @param body The index of the orbiting body.
+     * @return A new event function.
+     */
+    private static EventFunction rangeRate(int body) {
+        return (context, time) -> {
+            SystemEphemeris ephemeris = context.getSnapshot().getEphemeris();
+            double eccentricity = ephemeris.getEccentricity(body);
+            double meanAnomaly = ephemeris.getMeanMotion(body) * time + ephemeris.getPhase(body);
+            return eccentricity * FastTrig.sin(KeplerSolver.eccentricAnomaly(meanAnomaly, eccentricity));
+        };
+    }
+
+    /**
+     * Creates a function proportional to the sine of the difference in longitude of two bodies, as seen from an
+     * observing body. Its roots are conjunctions and oppositions.
+     *
+     * @param first    The index of the first body.
+     * @param second   The index of the second body.
+     * @param observer The index of the observing body.
+     * @return A new event function.
+     */
+    private static EventFunction longitudeDifference(int first, int second, int observer) {
+        return (context, time) -> {
+            double[] positions = context.getPositions(time);
+            double ax = positions[3 * first] - positions[3 * observer];
+            double ay = positions[3 * first + 1] - positions[3 * observer + 1];
+            double bx = positions[3 * second] - positions[3 * observer];
+            double by = positions[3 * second + 1] - positions[3 * observer + 1];
+            return ax * by - ay * bx;
+        };
+    }
+
+    /**
+     * Creates a function, which is positive while two bodies appear on the same side of an observing body.
+     *
+     * @param first    The index of the first body.
+     * @param second   The index of the second body.
+     * @param observer The index of the observing body.
+     * @return A new event function.
+     */
+    private static EventFunction alignment(int first, int second, int observer) {
+        return (context, time) -> {
+            double[] positions = context.getPositions(time);
+            double ax = positions[3 * first] - positions[3 * observer];
+            double ay = positions[3 * first + 1] - positions[3 * observer + 1];
+            double bx = positions[3 * second] - positions[3 * observer];
+            double by = positions[3 * second + 1] - positions[3 * observer + 1];
+            return ax * bx + ay * by;
+        };
+    }
+
+}
@@ -0,0 +1,355 @@
+package de.tschebbischeff.analysis;
+
+import de.tschebbischeff.model.CelestialBody;
+import de.tschebbischeff.model.Scales;
+import de.tschebbischeff.model.ephemeris.SystemSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Finds the times of events in a system over long spans of time, in parallel.
+ * Each event function is sampled on an evenly spaced grid, every sign change between two neighbouring samples
+ * brackets a root, which is then refined with Brent's method. The grid is split into windows, which are searched
+ * by the workers of a {@link ForkJoinPool}, each with its own {@link EventContext} on a shared immutable snapshot.
+ * Events shorter than the grid step may be missed, so the step must be chosen below the shortest expected event.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class EventFinder {
+
+    /**
+     * The maximum number of iterations of Brent's method per root.
+     */
+    private static final int MAX_ITERATIONS = 100;
+
+    /**
+     * The snapshot of the searched system.
+     */
+    private final SystemSnapshot snapshot;
+    /**
+     * The pool executing the search.
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    /**
+     * The distance between two samples of the grid.
+     */
+    private double step = Scales.day();
+    /**
+     * The maximum number of grid intervals a single window searches, before it is split further.
+     */
+    private long windowSize = 4096L;
+    /**
+     * The precision, to which the times of the events are refined.
+     */
+    private double tolerance = Scales.second();
+
+    /**
+     * Creates a new event finder on a snapshot of the system of the given body.
+     *
+     * @param body Any body of the system, the whole system of its star is searched.
+     */
+    public EventFinder(CelestialBody body) {
+        this(body.createSnapshot());
+    }
+
+    /**
+     * Creates a new event finder.
+     *
+     * @param snapshot The snapshot of the searched system.
+     */
+    public EventFinder(SystemSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Gets the snapshot of the searched system.
+     *
+     * @return The snapshot this finder searches.
+     */
+    public SystemSnapshot getSnapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * Sets the pool executing the search. Defaults to the common pool.
+     *
+     * @param pool The pool to use.
+     * @return This event finder for fluent method calls.
+     */
+    public EventFinder setPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Gets the distance between two samples of the grid.
+     *
+     * @return The step of the grid.
+     */
+    public double getStep() {
+        return this.step;
+    }
+
+    /**
+     * Sets the distance between two samples of the grid. Two roots of the same event function closer than the step
+     * may be missed. Defaults to one day.
+     *
+     * @param step The step of the grid, must be greater than zero.
+     * @return This event finder for fluent method calls.
+     */
+    public EventFinder setStep(double step) {
+        if (!(step > 0.0d)) {
+            throw new IllegalArgumentException("The step must be greater than zero.");
+        }
+        this.step = step;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of grid intervals a single window searches.
+     *
+     * @param windowSize The new maximum number of intervals per window. The minimum value is one.
+     * @return This event finder for fluent method calls.
+     */
+    public EventFinder setWindowSize(long windowSize) {
+        this.windowSize = Math.max(1L, windowSize);
+        return this;
+    }
+
+    /**
+     * Gets the precision to which the times of the events are refined.
+     *
+     * @return The tolerance of the refinement.
+     */
+    public double getTolerance() {
+        return this.tolerance;
+    }
+
+    /**
+     * Sets the precision to which the times of the events are refined. Defaults to one second.
+     *
+     * @param tolerance The tolerance of the refinement, must be greater than zero.
+     * @return This event finder for fluent method calls.
+     */
+    public EventFinder setTolerance(double tolerance) {
+        if (!(tolerance > 0.0d)) {
+            throw new IllegalArgumentException("The tolerance must be greater than zero.");
+        }
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    /**
+     * Searches the events of the given detectors in the interval [t0, t1] and passes each event to the sink as soon
+     * as it is found. The sink is called concurrently from several threads and in no particular order, it must
+     * therefore be thread-safe.
+     *
+     * @param t0        The beginning of the searched interval.
+     * @param t1        The end of the searched interval.
+     * @param detectors The detectors of the events to find.
+     * @param sink      Receives the found events.
+     */
+    public void find(double t0, double t1, List<EventDetector> detectors, Consumer<OrbitalEvent> sink) {
+        if (!(t1 > t0)) {
+            throw new IllegalArgumentException("The end of the interval must lie after its beginning.");
+        }
+        long intervals = (long) Math.ceil((t1 - t0) / this.step);
+        EventDetector[] searched = detectors.toArray(new EventDetector[0]);
+        this.pool.invoke(new Window(t0, t1, 0L, intervals, searched, sink));
+    }
+
+    /**
+     * Searches the events of the given detectors in the interval [t0, t1], see
+     * {@link EventFinder#find(double, double, List, Consumer)}.
+     *
+     * @param t0        The beginning of the searched interval.
+     * @param t1        The end of the searched interval.
+     * @param detectors The detectors of the events to find.
+     * @return All found events, sorted by time.
+     */
+    public List<OrbitalEvent> findAll(double t0, double t1, List<EventDetector> detectors) {
+        List<OrbitalEvent> events = Collections.synchronizedList(new ArrayList<>());
+        this.find(t0, t1, detectors, events::add);
+        ArrayList<OrbitalEvent> sorted = new ArrayList<>(events);
+        sorted.sort(Comparator.comparingDouble(OrbitalEvent::getTime));
+        return sorted;
+    }
+
+    /**
+     * Refines a bracketed root of an event function with Brent's method, which combines inverse quadratic
+     * interpolation and secant steps with bisection, so it never converges slower than bisection.
+     *
+     * @param function The event function.
+     * @param context  The context of the calling thread.
+     * @param a        One end of the bracket.
+     * @param fa       The value of the function at a.
+     * @param b        The other end of the bracket.
+     * @param fb       The value of the function at b, of opposite sign or zero.
+     * @return The time of the root.
+     */
+    private double refine(EventFunction function, EventContext context, double a, double fa, double b, double fb) {
+        double c = a, fc = fa;
+        double d = b - a, e = d;
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            if (Math.abs(fc) < Math.abs(fb)) {
+                a = b;
+                b = c;
+                c = a;
+                fa = fb;
+                fb = fc;
+                fc = fa;
+            }
+            double tolerance = 2.0d * Math.ulp(b) + 0.5d * this.tolerance;
+            double m = 0.5d * (c - b);
+            if (Math.abs(m) <= tolerance || fb == 0.0d) {
+                break;
+            }
+            if (Math.abs(e) < tolerance || Math.abs(fa) <= Math.abs(fb)) {
+                d = m;
+                e = m;
+            } else {
+                double s = fb / fa, p, q;
+                if (a == c) {
+                    p = 2.0d * m * s;
+                    q = 1.0d - s;
+                } else {
+                    double r = fb / fc;
+                    q = fa / fc;
+                    p = s * (2.0d * m * q * (q - r) - (b - a) * (r - 1.0d));
+                    q = (q - 1.0d) * (r - 1.0d) * (s - 1.0d);
+                }
+                if (p > 0.0d) {
+                    q = -q;
+                } else {
+                    p = -p;
+                }
+                if (2.0d * p < Math.min(3.0d * m * q - Math.abs(tolerance * q), Math.abs(e * q))) {
+                    e = d;
+                    d = p / q;
+                } else {
+                    d = m;
+                    e = m;
+                }
+            }
+            a = b;
+            fa = fb;
+            b += Math.abs(d) > tolerance ? d : (m > 0.0d ? tolerance : -tolerance);
+            fb = function.value(context, b);
+            if ((fb > 0.0d) == (fc > 0.0d)) {
+                c = a;
+                fc = fa;
+                d = b - a;
+                e = d;
+            }
+        }
+        return b;
+    }
+
+    /**
+     * A range of grid intervals, which is either searched directly or split in halves.
+     */
+    private class Window extends RecursiveAction {
+
+        /**
+         * The version of the serialized form, which is never used, as tasks are not serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The beginning of the whole searched interval.
+         */
+        private final double t0;
+        /**
+         * The end of the whole searched interval.
+         */
+        private final double t1;
+        /**
+         * The index of the first grid interval of this window.
+         */
+        private final long first;
+        /**
+         * The index after the last grid interval of this window.
+         */
+        private final long last;
+        /**
+         * The detectors of the events to find.
+         */
+        private final EventDetector[] detectors;
+        /**
+         * Receives the found events.
+         */
+        private final Consumer<OrbitalEvent> sink;
+
+        /**
+         * Creates a new window.
+         *
+         * @param t0        The beginning of the whole searched interval.
+         * @param t1        The end of the whole searched interval.
+         * @param first     The index of the first grid interval.
+         * @param last      The index after the last grid interval.
+         * @param detectors The detectors of the events to find.
+         * @param sink      Receives the found events.
+         */
+        private Window(double t0, double t1, long first, long last, EventDetector[] detectors, Consumer<OrbitalEvent> sink) {
+            this.t0 = t0;
+            this.t1 = t1;
+            this.first = first;
+            this.last = last;
+            this.detectors = detectors;
+            this.sink = sink;
+        }
+
+        /**
+         * Gets the time of a point of the grid.
+         *
+         * @param index The index of the point.
+         * @return The time of the point, the last point lies at the end of the searched interval.
+         */
+        private double time(long index) {
+            return Math.min(this.t1, this.t0 + index * EventFinder.this.step);
+        }
+
+        @Override
+        protected void compute() {
+            if (this.last - this.first > EventFinder.this.windowSize) {
+                long middle = this.first + (this.last - this.first) / 2;
+                invokeAll(new Window(this.t0, this.t1, this.first, middle, this.detectors, this.sink),
+                        new Window(this.t0, this.t1, middle, this.last, this.detectors, this.sink));
+                return;
+            }
+            EventContext context = new EventContext(EventFinder.this.snapshot);
+            double[] values = new double[this.detectors.length];
+            double a = this.time(this.first);
+            for (int j = 0; j < this.detectors.length; j++) {
+                values[j] = this.detectors[j].getFunction().value(context, a);
+            }
+            for (long index = this.first + 1; index <= this.last; index++) {
+                double b = this.time(index);
+                for (int j = 0; j < this.detectors.length; j++) {
+                    EventDetector detector = this.detectors[j];
+                    double fa = values[j];
+                    double fb = detector.getFunction().value(context, b);
+                    values[j] = fb;
+                    //A root on a grid point belongs to the interval ending there
+                    if (fa == 0.0d || (fa > 0.0d) == (fb > 0.0d) && fb != 0.0d) {
+                        continue;
+                    }
+                    double root = EventFinder.this.refine(detector.getFunction(), context, a, fa, b, fb);
+                    boolean rising = fa < 0.0d;
+                    if (detector.accepts(context, root, rising)) {
+                        this.sink.accept(new OrbitalEvent(detector, root, rising));
+                    }
+                }
+                a = b;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package de.tschebbischeff.analysis;
+
+/**
+ * A continuous function of time, whose roots mark the events to find.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+@FunctionalInterface
+public interface EventFunction {
+
+    /**
+     * Evaluates the function.
+     *
+     * @param context The context providing the positions of the bodies, owned by the calling thread.
+     * @param time    The absolute time at which to evaluate the function.
+     * @return The value of the function, which changes its sign at an event.
+     */
+    double value(EventContext context, double time);
+}
@@ -0,0 +1,69 @@
+package de.tschebbischeff.analysis;
+
+/**
+ * An event found by the {@link EventFinder}.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class OrbitalEvent {
+
+    /**
+     * The detector which found the event.
+     */
+    private final EventDetector detector;
+    /**
+     * The time of the event.
+     */
+    private final double time;
+    /**
+     * Whether the event function changed from negative to positive.
+     */
+    private final boolean rising;
+
+    /**
+     * Creates a new event.
+     *
+     * @param detector The detector which found the event.
+     * @param time     The time of the event.
+     * @param rising   Whether the event function changed from negative to positive.
+     */
+    public OrbitalEvent(EventDetector detector, double time, boolean rising) {
+        this.detector = detector;
+        this.time = time;
+        this.rising = rising;
+    }
+
+    /**
+     * Gets the detector which found this event.
+     *
+     * @return The detector of this event.
+     */
+    public EventDetector getDetector() {
+        return this.detector;
+    }
+
+    /**
+     * Gets the time of this event.
+     *
+     * @return The absolute time at which the event occurs.
+     */
+    public double getTime() {
+        return this.time;
+    }
+
+    /**
+     * Gets the direction in which the event function crossed zero, e.g. the beginning or end of an occultation.
+     *
+     * @return True if the function changed from negative to positive, false otherwise.
+     */
+    public boolean isRising() {
+        return this.rising;
+    }
+
+    @Override
+    public String toString() {
+        return this.detector.getName() + (this.rising ? " (rising)" : " (falling)") + " at " + this.time;
+    }
+
+}
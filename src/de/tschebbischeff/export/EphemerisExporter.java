@@ -0,0 +1,429 @@
+package de.tschebbischeff.export;
+
+import de.tschebbischeff.math.Quat4d;
+import de.tschebbischeff.math.Vector3d;
+import de.tschebbischeff.model.CelestialBody;
+import de.tschebbischeff.model.ephemeris.SystemEphemeris;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Exports the positions and optionally the rotations of all bodies of a system at evenly spaced times.
+ * The calling thread evaluates the model in batches of samples, while a second thread encodes finished batches
+ * and writes them to the output, so computation and I/O overlap. The batches are recycled between both threads,
+ * which keeps the memory use constant regardless of the number of samples.
+ * <p>
+ * The CSV format has a header line, followed by one line per sample: the time, then x, y and z of every body and,
+ * if enabled, w, i, j and k of its global rotation. The binary format holds the same values as little-endian
+ * doubles, preceded by a header of 16 bytes: the magic number, the format version, the number of bodies and
+ * whether rotations are included, as four integers.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class EphemerisExporter {
+
+    /**
+     * The formats the exporter can write.
+     */
+    public enum Format {
+        /**
+         * Comma separated text.
+         */
+        CSV,
+        /**
+         * Little-endian doubles.
+         */
+        BINARY
+    }
+
+    /**
+     * Identifies binary exports, the bytes "OMEX" read as a little-endian integer.
+     */
+    private static final int MAGIC = 0x58454D4F;
+    /**
+     * The version of the binary format.
+     */
+    private static final int VERSION = 1;
+    /**
+     * The size of the buffer through which the output is written.
+     */
+    private static final int BUFFER_SIZE = 1 << 18;
+    /**
+     * Tells the writing thread that no more batches follow.
+     */
+    private static final Batch END = new Batch(0);
+
+    /**
+     * The exported bodies, in topological order.
+     */
+    private final CelestialBody[] bodies;
+    /**
+     * The format of the output.
+     */
+    private Format format = Format.CSV;
+    /**
+     * Whether the rotations of the bodies are exported alongside their positions.
+     */
+    private boolean rotations = false;
+    /**
+     * The number of samples per batch.
+     */
+    private int batchSize = 1024;
+    /**
+     * The number of batches cycling between the evaluating and the writing thread.
+     */
+    private int batchCount = 4;
+
+    /**
+     * Creates a new exporter.
+     *
+     * @param body Any body of the system, the whole system of its star is exported.
+     */
+    public EphemerisExporter(CelestialBody body) {
+        this.bodies = new SystemEphemeris(body).getBodies().toArray(new CelestialBody[0]);
+    }
+
+    /**
+     * Gets the format of the output.
+     *
+     * @return The format written by this exporter.
+     */
+    public Format getFormat() {
+        return this.format;
+    }
+
+    /**
+     * Sets the format of the output. Defaults to CSV.
+     *
+     * @param format The format to write.
+     * @return This exporter for fluent method calls.
+     */
+    public EphemerisExporter setFormat(Format format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * Gets whether the rotations of the bodies are exported.
+     *
+     * @return True if rotations are exported alongside the positions.
+     */
+    public boolean isExportingRotations() {
+        return this.rotations;
+    }
+
+    /**
+     * Sets whether the rotations of the bodies are exported, see {@link CelestialBody#getGlobalRotation(double)}.
+     * Defaults to false.
+     *
+     * @param rotations True to export rotations alongside the positions.
+     * @return This exporter for fluent method calls.
+     */
+    public EphemerisExporter setExportingRotations(boolean rotations) {
+        this.rotations = rotations;
+        return this;
+    }
+
+    /**
+     * Sets the number of samples, which are evaluated before they are handed to the writing thread.
+     *
+     * @param batchSize The number of samples per batch. The minimum value is one.
+     * @return This exporter for fluent method calls.
+     */
+    public EphemerisExporter setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        return this;
+    }
+
+    /**
+     * Sets the number of batches, which cycle between the evaluating and the writing thread. Together with the
+     * batch size this bounds the memory used by an export.
+     *
+     * @param batchCount The number of batches. The minimum value is two.
+     * @return This exporter for fluent method calls.
+     */
+    public EphemerisExporter setBatchCount(int batchCount) {
+        this.batchCount = Math.max(2, batchCount);
+        return this;
+    }
+
+    /**
+     * Exports the system into a file. The samples are placed evenly on the interval [t0, t1], including both ends.
+     * Must be called on the thread which modifies the model.
+     *
+     * @param t0      The time of the first sample.
+     * @param t1      The time of the last sample.
+     * @param samples The number of samples, must be at least one.
+     * @param path    The path of the file, which is replaced if it exists.
+     * @throws IOException If the file can not be written.
+     */
+    public void export(double t0, double t1, long samples, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            this.export(t0, t1, samples, channel);
+        }
+    }
+
+    /**
+     * Exports the system into a channel, see {@link EphemerisExporter#export(double, double, long, Path)}.
+     * The channel is not closed.
+     *
+     * @param t0      The time of the first sample.
+     * @param t1      The time of the last sample.
+     * @param samples The number of samples, must be at least one.
+     * @param channel The channel to write to.
+     * @throws IOException If the channel can not be written.
+     */
+    public void export(double t0, double t1, long samples, WritableByteChannel channel) throws IOException {
+        if (samples < 1) {
+            throw new IllegalArgumentException("At least one sample is required.");
+        }
+        int stride = 1 + (this.rotations ? 7 : 3) * this.bodies.length;
+        ArrayBlockingQueue<Batch> free = new ArrayBlockingQueue<>(this.batchCount);
+        ArrayBlockingQueue<Batch> full = new ArrayBlockingQueue<>(this.batchCount + 1);
+        for (int i = 0; i < this.batchCount; i++) {
+            free.add(new Batch(this.batchSize * stride));
+        }
+        Writer writer = new Writer(channel, stride, free, full);
+        Thread thread = new Thread(writer, "EphemerisExporter");
+        thread.start();
+        double step = samples > 1 ? (t1 - t0) / (samples - 1) : 0.0d;
+        try {
+            for (long sample = 0; sample < samples && writer.failure == null; ) {
+                Batch batch = free.take();
+                batch.count = (int) Math.min(this.batchSize, samples - sample);
+                for (int s = 0, o = 0; s < batch.count; s++, sample++) {
+                    double time = t0 + sample * step;
+                    batch.values[o++] = time;
+                    for (CelestialBody body : this.bodies) {
+                        Vector3d position = body.getPosition(time);
+                        batch.values[o++] = position.getX();
+                        batch.values[o++] = position.getY();
+                        batch.values[o++] = position.getZ();
+                        if (this.rotations) {
+                            Quat4d rotation = body.getGlobalRotation(time);
+                            batch.values[o++] = rotation.getW();
+                            batch.values[o++] = rotation.getI();
+                            batch.values[o++] = rotation.getJ();
+                            batch.values[o++] = rotation.getK();
+                        }
+                    }
+                }
+                full.put(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.failure = new IOException("The export was interrupted.", e);
+        } finally {
+            //The queue has room for the end marker in addition to all batches
+            full.add(END);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (writer.failure != null) {
+            throw writer.failure;
+        }
+    }
+
+    /**
+     * A number of consecutive samples, stored as consecutive strides of values.
+     */
+    private static class Batch {
+
+        /**
+         * The values of all samples.
+         */
+        private final double[] values;
+        /**
+         * The number of samples in this batch.
+         */
+        private int count = 0;
+
+        /**
+         * Creates a new batch.
+         *
+         * @param size The number of values this batch can hold.
+         */
+        private Batch(int size) {
+            this.values = new double[size];
+        }
+    }
+
+    /**
+     * Encodes and writes finished batches on its own thread.
+     */
+    private class Writer implements Runnable {
+
+        /**
+         * The channel to write to.
+         */
+        private final WritableByteChannel channel;
+        /**
+         * The number of values per sample.
+         */
+        private final int stride;
+        /**
+         * The batches, which can be filled again.
+         */
+        private final ArrayBlockingQueue<Batch> free;
+        /**
+         * The batches, which are ready to be written.
+         */
+        private final ArrayBlockingQueue<Batch> full;
+        /**
+         * The buffer through which the output is written.
+         */
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        /**
+         * Formats the values of a single line of CSV output.
+         */
+        private final StringBuilder line = new StringBuilder();
+        /**
+         * The first error which occurred, either while writing or on the evaluating thread.
+         */
+        private volatile IOException failure = null;
+
+        /**
+         * Creates a new writer.
+         *
+         * @param channel The channel to write to.
+         * @param stride  The number of values per sample.
+         * @param free    The batches, which can be filled again.
+         * @param full    The batches, which are ready to be written.
+         */
+        private Writer(WritableByteChannel channel, int stride, ArrayBlockingQueue<Batch> free, ArrayBlockingQueue<Batch> full) {
+            this.channel = channel;
+            this.stride = stride;
+            this.free = free;
+            this.full = full;
+        }
+
+        @Override
+        public void run() {
+            try {
+                this.writeHeader();
+                for (Batch batch = this.full.take(); batch != END; batch = this.full.take()) {
+                    //After a failure, batches are only recycled, so the evaluating thread does not block
+                    if (this.failure == null) {
+                        try {
+                            this.write(batch);
+                        } catch (IOException e) {
+                            this.failure = e;
+                        }
+                    }
+                    this.free.put(batch);
+                }
+                if (this.failure == null) {
+                    this.flush();
+                }
+            } catch (IOException e) {
+                this.failure = e;
+                this.drain();
+            } catch (InterruptedException e) {
+                this.failure = new IOException("The export was interrupted.", e);
+                this.drain();
+            }
+        }
+
+        /**
+         * Recycles all remaining batches until the end marker arrives, after the writer failed.
+         */
+        private void drain() {
+            try {
+                for (Batch batch = this.full.take(); batch != END; batch = this.full.take()) {
+                    this.free.put(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Writes the header of the chosen format.
+         *
+         * @throws IOException If the channel can not be written.
+         */
+        private void writeHeader() throws IOException {
+            if (EphemerisExporter.this.format == Format.BINARY) {
+                this.buffer.putInt(MAGIC).putInt(VERSION).putInt(EphemerisExporter.this.bodies.length).putInt(EphemerisExporter.this.rotations ? 1 : 0);
+            } else {
+                this.line.setLength(0);
+                this.line.append("time");
+                for (int i = 0; i < EphemerisExporter.this.bodies.length; i++) {
+                    this.line.append(",x").append(i).append(",y").append(i).append(",z").append(i);
+                    if (EphemerisExporter.this.rotations) {
+                        this.line.append(",qw").append(i).append(",qi").append(i).append(",qj").append(i).append(",qk").append(i);
+                    }
+                }
+                this.line.append('\n');
+                this.writeLine();
+            }
+        }
+
+        /**
+         * Encodes a batch into the buffer, writing the buffer whenever it is full.
+         *
+         * @param batch The batch to write.
+         * @throws IOException If the channel can not be written.
+         */
+        private void write(Batch batch) throws IOException {
+            int length = batch.count * this.stride;
+            if (EphemerisExporter.this.format == Format.BINARY) {
+                for (int i = 0; i < length; i++) {
+                    if (this.buffer.remaining() < 8) {
+                        this.flush();
+                    }
+                    this.buffer.putDouble(batch.values[i]);
+                }
+            } else {
+                for (int i = 0; i < length; i += this.stride) {
+                    this.line.setLength(0);
+                    this.line.append(batch.values[i]);
+                    for (int v = 1; v < this.stride; v++) {
+                        this.line.append(',').append(batch.values[i + v]);
+                    }
+                    this.line.append('\n');
+                    this.writeLine();
+                }
+            }
+        }
+
+        /**
+         * Copies the current line into the buffer. The line only consists of ASCII characters.
+         *
+         * @throws IOException If the channel can not be written.
+         */
+        private void writeLine() throws IOException {
+            for (int c = 0; c < this.line.length(); c++) {
+                if (!this.buffer.hasRemaining()) {
+                    this.flush();
+                }
+                this.buffer.put((byte) this.line.charAt(c));
+            }
+        }
+
+        /**
+         * Writes the content of the buffer to the channel and clears the buffer.
+         *
+         * @throws IOException If the channel can not be written.
+         */
+        private void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+    }
+
+}
@@ -0,0 +1,316 @@
+package de.tschebbischeff.math;
+
+/**
+ * Sine and cosine evaluated by polynomial kernels, which trade the last bits of precision of {@link Math} for speed.
+ * An angle is reduced to [-pi/4, pi/4] once and both functions are calculated from the reduced angle, so callers
+ * needing sine and cosine of the same angle share the range reduction. Angles in degrees are reduced exactly before
+ * they are converted to radians, so multiples of 90 degrees yield exact results.
+ * <p>
+ * The kernels are the minimax polynomials of fdlibm. The reduction subtracts a three part representation of pi/2,
+ * whose first part has 33 bits, so it is exact up to the final rounding while the quadrant fits into 20 bits, i.e.
+ * for angles up to {@value #REDUCTION_LIMIT} radians. Larger angles, infinities and NaN are passed to {@link Math}.
+ * Measured against the exact values, the results differ by at most 1.5 ulp over [-2pi, 2pi] and by at most 2.5 ulp
+ * up to the reduction limit, compared to 0.5 ulp of {@link Math}. Angles in degrees stay within 2 ulp, whereas
+ * converting them with {@link Math#toRadians(double)} first loses all relative precision close to the roots, e.g.
+ * the sine of 180 degrees is exactly zero. All of this is far below a relative error of 1e-12.
+ * <p>
+ * The kernels are only used while enabled, see {@link FastTrig#setEnabled(boolean)}, otherwise all methods delegate
+ * to {@link Math}, so the model evaluates bit for bit as before.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class FastTrig {
+
+    /**
+     * The largest angle in radians which is reduced by the kernels, above it the product of the quadrant with the
+     * first part of pi/2 is no longer exact.
+     */
+    public static final double REDUCTION_LIMIT = 1.0e6d;
+    /**
+     * The inverse of pi/2.
+     */
+    private static final double TWO_OVER_PI = 6.36619772367581382433e-01d;
+    /**
+     * The first 33 bits of pi/2.
+     */
+    private static final double PIO2_1 = 1.57079632673412561417e+00d;
+    /**
+     * The second 33 bits of pi/2.
+     */
+    private static final double PIO2_2 = 6.07710050630396597660e-11d;
+    /**
+     * The remainder of pi/2.
+     */
+    private static final double PIO2_3 = 2.02226624879595063154e-21d;
+    /**
+     * The factor converting degrees to radians.
+     */
+    private static final double DEGREES_TO_RADIANS = Math.PI / 180.0d;
+    /**
+     * The coefficients of the sine kernel on [-pi/4, pi/4].
+     */
+    private static final double S1 = -1.66666666666666324348e-01d, S2 = 8.33333333332248946124e-03d,
+            S3 = -1.98412698298579493134e-04d, S4 = 2.75573137070700676789e-06d, S5 = -2.50507602534068634195e-08d,
+            S6 = 1.58969099521155010221e-10d;
+    /**
+     * The coefficients of the cosine kernel on [-pi/4, pi/4].
+     */
+    private static final double C1 = 4.16666666666666019037e-02d, C2 = -1.38888888888741095749e-03d,
+            C3 = 2.48015872894767294178e-05d, C4 = -2.75573143513906633035e-07d, C5 = 2.08757232129817482790e-09d,
+            C6 = -1.13596475577881948265e-11d;
+
+    /**
+     * Whether the kernels are used instead of {@link Math}, initialized from the system property
+     * de.tschebbischeff.fasttrig.
+     */
+    private static boolean enabled = Boolean.getBoolean("de.tschebbischeff.fasttrig");
+
+    /**
+     * Checks whether the kernels are used instead of {@link Math}.
+     *
+     * @return True if the kernels are used.
+     */
+    public static boolean isEnabled() {
+        return FastTrig.enabled;
+    }
+
+    /**
+     * Sets whether the kernels are used instead of {@link Math}. This should be set before any evaluation starts,
+     * as threads which are already running may not observe the change immediately.
+     * Defaults to the value of the system property de.tschebbischeff.fasttrig, i.e. false if it is not set.
+     *
+     * @param enabled True to use the kernels.
+     */
+    public static void setEnabled(boolean enabled) {
+        FastTrig.enabled = enabled;
+    }
+
+    /**
+     * Calculates the sine of an angle.
+     *
+     * @param angle The angle, in radians.
+     * @return The sine of the angle.
+     */
+    public static double sin(double angle) {
+        if (!FastTrig.enabled || !(Math.abs(angle) <= REDUCTION_LIMIT)) {
+            return Math.sin(angle);
+        }
+        double quadrant = Math.rint(angle * TWO_OVER_PI);
+        double x = reduce(angle, quadrant);
+        switch ((int) quadrant & 3) {
+            case 0:
+                return kernelSin(x);
+            case 1:
+                return kernelCos(x);
+            case 2:
+                return -kernelSin(x);
+            default:
+                return -kernelCos(x);
+        }
+    }
+
+    /**
+     * Calculates the cosine of an angle.
+     *
+     * @param angle The angle, in radians.
+     * @return The cosine of the angle.
+     */
+    public static double cos(double angle) {
+        if (!FastTrig.enabled || !(Math.abs(angle) <= REDUCTION_LIMIT)) {
+            return Math.cos(angle);
+        }
+        double quadrant = Math.rint(angle * TWO_OVER_PI);
+        double x = reduce(angle, quadrant);
+        switch ((int) quadrant & 3) {
+            case 0:
+                return kernelCos(x);
+            case 1:
+                return -kernelSin(x);
+            case 2:
+                return -kernelCos(x);
+            default:
+                return kernelSin(x);
+        }
+    }
+
+    /**
+     * Calculates the sine and cosine of an angle with a single range reduction.
+     *
+     * @param angle  The angle, in radians.
+     * @param out    The buffer to write the sine and cosine into.
+     * @param offset The index in the buffer at which the sine is written, the cosine is written after it.
+     * @return The buffer out for fluent method calls.
+     */
+    public static double[] sincos(double angle, double[] out, int offset) {
+        if (!FastTrig.enabled || !(Math.abs(angle) <= REDUCTION_LIMIT)) {
+            out[offset] = Math.sin(angle);
+            out[offset + 1] = Math.cos(angle);
+            return out;
+        }
+        double quadrant = Math.rint(angle * TWO_OVER_PI);
+        return quadrant(reduce(angle, quadrant), (int) quadrant, out, offset);
+    }
+
+    /**
+     * Calculates the sine and cosine of an angle given in degrees with a single range reduction. The angle is reduced
+     * to [-45, 45] degrees exactly before it is converted to radians, so no precision is lost for large angles.
+     *
+     * @param degrees The angle, in degrees.
+     * @param out     The buffer to write the sine and cosine into.
+     * @param offset  The index in the buffer at which the sine is written, the cosine is written after it.
+     * @return The buffer out for fluent method calls.
+     */
+    public static double[] sincosDegrees(double degrees, double[] out, int offset) {
+        if (!FastTrig.enabled) {
+            double angle = Math.toRadians(degrees);
+            out[offset] = Math.sin(angle);
+            out[offset + 1] = Math.cos(angle);
+            return out;
+        }
+        double revolution = degrees % 360.0d;
+        double quadrant = Math.rint(revolution / 90.0d);
+        return quadrant(reduceDegrees(revolution, quadrant), (int) quadrant, out, offset);
+    }
+
+    /**
+     * Calculates the sine of an angle given in degrees, reduced like in
+     * {@link FastTrig#sincosDegrees(double, double[], int)} and with an identical result.
+     *
+     * @param degrees The angle, in degrees.
+     * @return The sine of the angle.
+     */
+    public static double sinDegrees(double degrees) {
+        if (!FastTrig.enabled) {
+            return Math.sin(Math.toRadians(degrees));
+        }
+        double revolution = degrees % 360.0d;
+        double quadrant = Math.rint(revolution / 90.0d);
+        double x = reduceDegrees(revolution, quadrant);
+        switch ((int) quadrant & 3) {
+            case 0:
+                return kernelSin(x);
+            case 1:
+                return kernelCos(x);
+            case 2:
+                return -kernelSin(x);
+            default:
+                return -kernelCos(x);
+        }
+    }
+
+    /**
+     * Calculates the cosine of an angle given in degrees, reduced like in
+     * {@link FastTrig#sincosDegrees(double, double[], int)} and with an identical result.
+     *
+     * @param degrees The angle, in degrees.
+     * @return The cosine of the angle.
+     */
+    public static double cosDegrees(double degrees) {
+        if (!FastTrig.enabled) {
+            return Math.cos(Math.toRadians(degrees));
+        }
+        double revolution = degrees % 360.0d;
+        double quadrant = Math.rint(revolution / 90.0d);
+        double x = reduceDegrees(revolution, quadrant);
+        switch ((int) quadrant & 3) {
+            case 0:
+                return kernelCos(x);
+            case 1:
+                return -kernelSin(x);
+            case 2:
+                return -kernelCos(x);
+            default:
+                return kernelSin(x);
+        }
+    }
+
+    /**
+     * Subtracts a multiple of pi/2 from an angle.
+     *
+     * @param angle    The angle, in radians.
+     * @param quadrant The multiple of pi/2 closest to the angle.
+     * @return The angle reduced to [-pi/4, pi/4].
+     */
+    private static double reduce(double angle, double quadrant) {
+        //Subtracting zero would turn -0.0 into +0.0
+        if (quadrant == 0.0d) {
+            return angle;
+        }
+        return angle - quadrant * PIO2_1 - quadrant * PIO2_2 - quadrant * PIO2_3;
+    }
+
+    /**
+     * Subtracts a multiple of 90 degrees from an angle and converts it to radians. The remainder and the subtraction
+     * are both exact.
+     *
+     * @param revolution The angle, in (-360, 360) degrees.
+     * @param quadrant   The multiple of 90 degrees closest to the angle.
+     * @return The angle reduced to [-pi/4, pi/4], in radians.
+     */
+    private static double reduceDegrees(double revolution, double quadrant) {
+        //Subtracting zero would turn -0.0 into +0.0
+        if (quadrant == 0.0d) {
+            return revolution * DEGREES_TO_RADIANS;
+        }
+        return (revolution - 90.0d * quadrant) * DEGREES_TO_RADIANS;
+    }
+
+    /**
+     * Writes sine and cosine of a reduced angle, moved into the quadrant it was reduced from.
+     *
+     * @param x        The reduced angle, in [-pi/4, pi/4].
+     * @param quadrant The multiple of pi/2 which was subtracted from the angle.
+     * @param out      The buffer to write the sine and cosine into.
+     * @param offset   The index in the buffer at which the sine is written, the cosine is written after it.
+     * @return The buffer out for fluent method calls.
+     */
+    private static double[] quadrant(double x, int quadrant, double[] out, int offset) {
+        double sin = kernelSin(x), cos = kernelCos(x);
+        switch (quadrant & 3) {
+            case 0:
+                out[offset] = sin;
+                out[offset + 1] = cos;
+                break;
+            case 1:
+                out[offset] = cos;
+                out[offset + 1] = -sin;
+                break;
+            case 2:
+                out[offset] = -sin;
+                out[offset + 1] = -cos;
+                break;
+            default:
+                out[offset] = -cos;
+                out[offset + 1] = sin;
+        }
+        return out;
+    }
+
+    /**
+     * Evaluates the sine kernel.
+     *
+     * @param x The angle, in [-pi/4, pi/4].
+     * @return The sine of the angle.
+     */
+    private static double kernelSin(double x) {
+        //Below 2^-27 the sine rounds to the angle itself, which also keeps the sign of zero
+        if (Math.abs(x) < 0x1.0p-27d) {
+            return x;
+        }
+        double z = x * x;
+        return x + x * z * (S1 + z * (S2 + z * (S3 + z * (S4 + z * (S5 + z * S6)))));
+    }
+
+    /**
+     * Evaluates the cosine kernel.
+     *
+     * @param x The angle, in [-pi/4, pi/4].
+     * @return The cosine of the angle.
+     */
+    private static double kernelCos(double x) {
+        double z = x * x;
+        return 1.0d - (0.5d * z - z * z * (C1 + z * (C2 + z * (C3 + z * (C4 + z * (C5 + z * C6))))));
+    }
+
+}
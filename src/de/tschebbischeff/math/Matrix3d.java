@@ -9,9 +9,41 @@ package de.tschebbischeff.math;
 public class Matrix3d {
 
     /**
-     * Stores the matrix data in a 3x3 array
+     * The value in row 1, column 1 of this matrix
      */
-    private double[][] data;
+    private double m00;
+    /**
+     * The value in row 1, column 2 of this matrix
+     */
+    private double m01;
+    /**
+     * The value in row 1, column 3 of this matrix
+     */
+    private double m02;
+    /**
+     * The value in row 2, column 1 of this matrix
+     */
+    private double m10;
+    /**
+     * The value in row 2, column 2 of this matrix
+     */
+    private double m11;
+    /**
+     * The value in row 2, column 3 of this matrix
+     */
+    private double m12;
+    /**
+     * The value in row 3, column 1 of this matrix
+     */
+    private double m20;
+    /**
+     * The value in row 3, column 2 of this matrix
+     */
+    private double m21;
+    /**
+     * The value in row 3, column 3 of this matrix
+     */
+    private double m22;
 
     /**
      * Create a new matrix with the given values. The values are stored column-first, and in this constructor the values
@@ -28,7 +60,7 @@ public class Matrix3d {
      * @param z3 Value for Row 3, Column 3.
      */
     public Matrix3d(double x1, double y1, double z1, double x2, double y2, double z2, double x3, double y3, double z3) {
-        this(new double[][]{{x1, x2, x3}, {y1, y2, y3}, {z1, z2, z3}});
+        this.set(x1, y1, z1, x2, y2, z2, x3, y3, z3);
     }
 
     /**
@@ -39,12 +71,13 @@ public class Matrix3d {
      * @param z Third column of the matrix.
      */
     public Matrix3d(Vector3d x, Vector3d y, Vector3d z) {
-        this(new double[][]{{x.getX(), x.getY(), x.getZ()}, {y.getX(), y.getY(), y.getZ()}, {z.getX(), z.getY(), z.getZ()}});
+        this(x.getX(), y.getX(), z.getX(), x.getY(), y.getY(), z.getY(), x.getZ(), y.getZ(), z.getZ());
     }
 
     /**
      * Creates a new matrix from the given array. The first index of the array is saved as column. I.e. m[0] is the first
-     * column of the matrix, while {m[0][0], m[1][0], m[2][0]} would be the first row of the matrix.
+     * column of the matrix, while {m[0][0], m[1][0], m[2][0]} would be the first row of the matrix. The values are
+     * copied, so later changes to the array are not reflected by the matrix.
      *
      * @param m A three by three array with the values for the matrix.
      */
@@ -55,7 +88,7 @@ public class Matrix3d {
             } catch (RuntimeException e) {
                 e.printStackTrace();
             }
-        this.data = m;
+        this.set(m[0][0], m[1][0], m[2][0], m[0][1], m[1][1], m[2][1], m[0][2], m[1][2], m[2][2]);
     }
 
     /**
@@ -64,16 +97,90 @@ public class Matrix3d {
      * @return A new object of the identity matrix.
      */
     public static Matrix3d identity() {
-        return new Matrix3d(new double[][]{{1.0d, 0.0d, 0.0d}, {0.0d, 1.0d, 0.0d}, {0.0d, 0.0d, 1.0d}});
+        return new Matrix3d(1.0d, 0.0d, 0.0d, 0.0d, 1.0d, 0.0d, 0.0d, 0.0d, 1.0d);
     }
 
     /**
      * Gets the data of this matrix as a three by three array, with the first index describing the column.
+     * The array is a copy, so changes to it are not reflected by this matrix.
      *
      * @return The column-first values as a double array.
      */
     public double[][] getData() {
-        return this.data;
+        return new double[][]{{this.m00, this.m10, this.m20}, {this.m01, this.m11, this.m21}, {this.m02, this.m12, this.m22}};
+    }
+
+    /**
+     * Writes the values of this matrix into a buffer, without allocating arrays as {@link Matrix3d#getData()} does.
+     * The values are written row-first, i.e. first row, then second row, then third row, from left to right.
+     *
+     * @param out    The buffer to write the nine values into.
+     * @param offset The index in the buffer at which the first value is written.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] get(double[] out, int offset) {
+        out[offset] = this.m00;
+        out[offset + 1] = this.m01;
+        out[offset + 2] = this.m02;
+        out[offset + 3] = this.m10;
+        out[offset + 4] = this.m11;
+        out[offset + 5] = this.m12;
+        out[offset + 6] = this.m20;
+        out[offset + 7] = this.m21;
+        out[offset + 8] = this.m22;
+        return out;
+    }
+
+    /**
+     * Overwrites the values of this matrix. The values are listed
+     * in first row, then second row, then third row, from left to right, as in
+     * {@link Matrix3d#Matrix3d(double, double, double, double, double, double, double, double, double)}.
+     *
+     * @param x1 Value for Row 1, Column 1.
+     * @param y1 Value for Row 1, Column 2.
+     * @param z1 Value for Row 1, Column 3.
+     * @param x2 Value for Row 2, Column 1.
+     * @param y2 Value for Row 2, Column 2.
+     * @param z2 Value for Row 2, Column 3.
+     * @param x3 Value for Row 3, Column 1.
+     * @param y3 Value for Row 3, Column 2.
+     * @param z3 Value for Row 3, Column 3.
+     * @return This matrix for fluent method calls.
+     */
+    public Matrix3d set(double x1, double y1, double z1, double x2, double y2, double z2, double x3, double y3, double z3) {
+        this.m00 = x1;
+        this.m01 = y1;
+        this.m02 = z1;
+        this.m10 = x2;
+        this.m11 = y2;
+        this.m12 = z2;
+        this.m20 = x3;
+        this.m21 = y3;
+        this.m22 = z3;
+        return this;
+    }
+
+    /**
+     * Overwrites the values of this matrix with those of another matrix.
+     *
+     * @param m The matrix to copy.
+     * @return This matrix for fluent method calls.
+     */
+    public Matrix3d set(Matrix3d m) {
+        return this.set(m.m00, m.m01, m.m02, m.m10, m.m11, m.m12, m.m20, m.m21, m.m22);
+    }
+
+    /**
+     * Overwrites the values of this matrix with nine consecutive values of a buffer, listed row-first as in
+     * {@link Matrix3d#get(double[], int)}.
+     *
+     * @param in     The buffer to read the values from.
+     * @param offset The index of the first value in the buffer.
+     * @return This matrix for fluent method calls.
+     */
+    public Matrix3d set(double[] in, int offset) {
+        return this.set(in[offset], in[offset + 1], in[offset + 2], in[offset + 3], in[offset + 4], in[offset + 5],
+                in[offset + 6], in[offset + 7], in[offset + 8]);
     }
 
     /**
@@ -110,8 +217,16 @@ public class Matrix3d {
      * @return This matrix's c-th column as a vector.
      */
     public Vector3d getColumnByIndex(int c) {
-        if (c >= 3) return null;
-        return new Vector3d(this.data[c][0], this.data[c][1], this.data[c][2]);
+        switch (c) {
+            case 0:
+                return new Vector3d(this.m00, this.m10, this.m20);
+            case 1:
+                return new Vector3d(this.m01, this.m11, this.m21);
+            case 2:
+                return new Vector3d(this.m02, this.m12, this.m22);
+            default:
+                return null;
+        }
     }
 
     /**
@@ -148,8 +263,16 @@ public class Matrix3d {
      * @return This matrix's r-th row as a vector.
      */
     public Vector3d getRowByIndex(int r) {
-        if (r >= 3) return null;
-        return new Vector3d(this.data[0][r], this.data[1][r], this.data[2][r]);
+        switch (r) {
+            case 0:
+                return new Vector3d(this.m00, this.m01, this.m02);
+            case 1:
+                return new Vector3d(this.m10, this.m11, this.m12);
+            case 2:
+                return new Vector3d(this.m20, this.m21, this.m22);
+            default:
+                return null;
+        }
     }
 
     /**
@@ -162,6 +285,16 @@ public class Matrix3d {
         return new Matrix3d(this.getRow1(), this.getRow2(), this.getRow3());
     }
 
+    /**
+     * Transposes this matrix, without allocating a new matrix. See {@link Matrix3d#transpose()}.
+     *
+     * @param dest The matrix to store the result in, may be this matrix.
+     * @return The matrix dest, containing the transposed matrix of this one.
+     */
+    public Matrix3d transpose(Matrix3d dest) {
+        return dest.set(this.m00, this.m10, this.m20, this.m01, this.m11, this.m21, this.m02, this.m12, this.m22);
+    }
+
     /**
      * Multiplies this matrix with a second matrix. As multiplication is not commutative this matrix is multiplied
      * from the left with the second matrix b.
@@ -170,13 +303,27 @@ public class Matrix3d {
      * @return A new object containing the product of this and the second matrix b: this*b.
      */
     public Matrix3d mult(Matrix3d b) {
-        double[][] result = new double[3][3];
-        for (int r = 0; r < 3; r++) {
-            for (int c = 0; c < 3; c++) {
-                result[c][r] = this.getRowByIndex(r).dot(b.getColumnByIndex(c));
-            }
-        }
-        return new Matrix3d(result);
+        return this.mult(b, Matrix3d.identity());
+    }
+
+    /**
+     * Multiplies this matrix with a second matrix, without allocating a new matrix. See {@link Matrix3d#mult(Matrix3d)}.
+     *
+     * @param b    The matrix to multiply this matrix with.
+     * @param dest The matrix to store the result in, may be this matrix or b.
+     * @return The matrix dest, containing the product of this and the second matrix b: this*b.
+     */
+    public Matrix3d mult(Matrix3d b, Matrix3d dest) {
+        double x1 = this.m00 * b.m00 + this.m01 * b.m10 + this.m02 * b.m20;
+        double y1 = this.m00 * b.m01 + this.m01 * b.m11 + this.m02 * b.m21;
+        double z1 = this.m00 * b.m02 + this.m01 * b.m12 + this.m02 * b.m22;
+        double x2 = this.m10 * b.m00 + this.m11 * b.m10 + this.m12 * b.m20;
+        double y2 = this.m10 * b.m01 + this.m11 * b.m11 + this.m12 * b.m21;
+        double z2 = this.m10 * b.m02 + this.m11 * b.m12 + this.m12 * b.m22;
+        double x3 = this.m20 * b.m00 + this.m21 * b.m10 + this.m22 * b.m20;
+        double y3 = this.m20 * b.m01 + this.m21 * b.m11 + this.m22 * b.m21;
+        double z3 = this.m20 * b.m02 + this.m21 * b.m12 + this.m22 * b.m22;
+        return dest.set(x1, y1, z1, x2, y2, z2, x3, y3, z3);
     }
 
     /**
@@ -187,11 +334,23 @@ public class Matrix3d {
      * @return A new object containing the product of this matrix and the vector v: this*v.
      */
     public Vector3d mult(Vector3d v) {
-        double[] result = new double[3];
-        for (int r = 0; r < 3; r++) {
-            result[r] = this.getRowByIndex(r).dot(v);
-        }
-        return new Vector3d(result);
+        return this.mult(v, new Vector3d(0.0d, 0.0d, 0.0d));
+    }
+
+    /**
+     * Multiplies this matrix with a vector, without allocating a new vector. See {@link Matrix3d#mult(Vector3d)}.
+     *
+     * @param v    The vector to multiply this matrix with.
+     * @param dest The vector to store the result in, may be v.
+     * @return The vector dest, containing the product of this matrix and the vector v: this*v.
+     */
+    public Vector3d mult(Vector3d v, Vector3d dest) {
+        double x = v.getX(), y = v.getY(), z = v.getZ();
+        return dest.set(
+                this.m00 * x + this.m01 * y + this.m02 * z,
+                this.m10 * x + this.m11 * y + this.m12 * z,
+                this.m20 * x + this.m21 * y + this.m22 * z
+        );
     }
 
     /**
@@ -202,13 +361,14 @@ public class Matrix3d {
      * @return A padded representation of the matrix.
      */
     public String toString(int precision) {
+        double[][] data = this.getData();
         int[] max = new int[]{0, 0, 0};
         int[] neg = new int[]{0, 0, 0};
         for (int c = 0; c < 3; c++) {
             for (int r = 0; r < 3; r++) {
-                while (Math.abs(this.data[c][r]) > Math.pow(10, max[c])) {
+                while (Math.abs(data[c][r]) > Math.pow(10, max[c])) {
                     max[c]++;
-                    neg[c] = (this.data[c][r] < 0) ? 1 : 0;
+                    neg[c] = (data[c][r] < 0) ? 1 : 0;
                 }
             }
             max[c]++;
@@ -221,9 +381,9 @@ public class Matrix3d {
                 "[ %1" + format[0] + "   %2" + format[1] + "   %3" + format[2] + "\n" +
                         "  %4" + format[0] + "   %5" + format[1] + "   %6" + format[2] + "\n" +
                         "  %7" + format[0] + "   %8" + format[1] + "   %9" + format[2] + " ]",
-                this.data[0][0], this.data[1][0], this.data[2][0],
-                this.data[0][1], this.data[1][1], this.data[2][1],
-                this.data[0][2], this.data[1][2], this.data[2][2]);
+                data[0][0], data[1][0], data[2][0],
+                data[0][1], data[1][1], data[2][1],
+                data[0][2], data[1][2], data[2][2]);
         String result = formatted;
         do {
             formatted = result;
@@ -26,9 +26,21 @@ public class Quat4d {
      */
     private static final double UNITY_BOUND_LO = (1.0d / UNITY_FACTOR) * (1.0d / UNITY_FACTOR);
     /**
-     * Stores the quaternion data in a 4 element array
+     * The real part of this quaternion
      */
-    private double[] data;
+    private double w;
+    /**
+     * The i-component of the imaginary part of this quaternion
+     */
+    private double i;
+    /**
+     * The j-component of the imaginary part of this quaternion
+     */
+    private double j;
+    /**
+     * The k-component of the imaginary part of this quaternion
+     */
+    private double k;
 
     /**
      * Creates a quaternion that rolls pitches and yaws
@@ -38,7 +50,7 @@ public class Quat4d {
      * @param yaw   The yaw represented by the quaternion.
      */
     public Quat4d(double roll, double pitch, double yaw) {
-        this(Quat4d.identity().roll(roll).pitch(pitch).yaw(yaw).getData());
+        this.set(Quat4d.identity().roll(roll).pitch(pitch).yaw(yaw));
     }
 
     /**
@@ -49,12 +61,12 @@ public class Quat4d {
      */
     public Quat4d(Vector3d x, Vector3d y) {
         if (x.dot(y) > 0.999999d) {
-            this.setData(Quat4d.identity().getData());
+            this.set(1.0d, 0.0d, 0.0d, 0.0d);
         } else if (x.dot(y) < -0.999999d) {
-            this.setData(new Quat4d(0.0d, x.anyOrthogonal().normalize()).getData());
+            this.set(new Quat4d(0.0d, x.anyOrthogonal().normalize()));
         } else {
             Vector3d prod = x.cross(y);
-            this.setData(new Quat4d(Math.sqrt(x.len2() * y.len2()) + x.dot(y), prod).normalize().getData());
+            new Quat4d(Math.sqrt(x.len2() * y.len2()) + x.dot(y), prod).normalize(this);
         }
     }
 
@@ -63,11 +75,20 @@ public class Quat4d {
     }
 
     public Quat4d(double w, double i, double j, double k) {
-        this(new double[]{w, i, j, k});
+        this.w = w;
+        this.i = i;
+        this.j = j;
+        this.k = k;
     }
 
+    /**
+     * Creates a quaternion from the first four values of an array, the real part followed by the i-, j- and
+     * k-component. The values are copied, so later changes to the array are not reflected by the quaternion.
+     *
+     * @param v The array containing the components.
+     */
     public Quat4d(double[] v) {
-        this.data = v;
+        this.setData(v);
     }
 
     public static Quat4d zero() {
@@ -79,58 +100,122 @@ public class Quat4d {
     }
 
     public double getW() {
-        return this.data[0];
+        return this.w;
     }
 
     public Quat4d setW(double w) {
-        this.data[0] = w;
+        this.w = w;
         return this;
     }
 
     public double getI() {
-        return this.data[1];
+        return this.i;
     }
 
     public Quat4d setI(double i) {
-        this.data[1] = i;
+        this.i = i;
         return this;
     }
 
     public double getJ() {
-        return this.data[2];
+        return this.j;
     }
 
     public Quat4d setJ(double j) {
-        this.data[2] = j;
+        this.j = j;
         return this;
     }
 
     public double getK() {
-        return this.data[3];
+        return this.k;
     }
 
     public Quat4d setK(double k) {
-        this.data[3] = k;
+        this.k = k;
         return this;
     }
 
+    /**
+     * Gets the components of this quaternion as an array, the real part followed by the i-, j- and k-component.
+     * The array is a copy, so changes to it are not reflected by this quaternion.
+     *
+     * @return A new array containing the components.
+     */
     public double[] getData() {
-        return this.data;
+        return new double[]{this.w, this.i, this.j, this.k};
     }
 
     public Quat4d setData(double[] v) {
-        this.data = v;
-        return this;
+        return this.set(v, 0);
     }
 
     public Quat4d setData(double w, double i, double j, double k) {
-        return this.setData(new double[]{w, i, j, k});
+        return this.set(w, i, j, k);
     }
 
+    /**
+     * Overwrites the components of this quaternion.
+     *
+     * @param w The new real part.
+     * @param i The new i-component of the imaginary part.
+     * @param j The new j-component of the imaginary part.
+     * @param k The new k-component of the imaginary part.
+     * @return This quaternion for fluent method calls.
+     */
+    public Quat4d set(double w, double i, double j, double k) {
+        this.w = w;
+        this.i = i;
+        this.j = j;
+        this.k = k;
+        return this;
+    }
+
+    /**
+     * Overwrites the components of this quaternion with those of another quaternion.
+     *
+     * @param q The quaternion to copy.
+     * @return This quaternion for fluent method calls.
+     */
+    public Quat4d set(Quat4d q) {
+        return this.set(q.getW(), q.getI(), q.getJ(), q.getK());
+    }
+
+    /**
+     * Overwrites the components of this quaternion with four consecutive values of a buffer.
+     *
+     * @param in     The buffer to read the real part and the i-, j- and k-component from.
+     * @param offset The index of the real part in the buffer.
+     * @return This quaternion for fluent method calls.
+     */
+    public Quat4d set(double[] in, int offset) {
+        return this.set(in[offset], in[offset + 1], in[offset + 2], in[offset + 3]);
+    }
+
+    /**
+     * Writes the components of this quaternion into a buffer, without allocating an array as
+     * {@link Quat4d#getData()} does.
+     *
+     * @param out    The buffer to write the real part and the i-, j- and k-component into.
+     * @param offset The index in the buffer at which the real part is written.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] get(double[] out, int offset) {
+        out[offset] = this.w;
+        out[offset + 1] = this.i;
+        out[offset + 2] = this.j;
+        out[offset + 3] = this.k;
+        return out;
+    }
+
+    /**
+     * Normalizes this quaternion in place, if its length drifted too far from one.
+     *
+     * @return This quaternion for fluent method calls.
+     */
     private Quat4d checkUnity() {
         double length = this.len2();
         if (length > UNITY_BOUND_HI || length < UNITY_BOUND_LO) {
-            return this.normalize();
+            return this.normalize(this);
         }
         return this;
     }
@@ -144,20 +229,79 @@ public class Quat4d {
     }
 
     public Quat4d roll(double roll) {
-        return new Quat4d(Math.cos(Math.toRadians(roll) * 0.5d), Math.sin(Math.toRadians(roll) * 0.5d), 0.0d, 0.0d).mult(this).checkUnity();
+        return this.roll(roll, Quat4d.zero());
+    }
+
+    /**
+     * Rotates this quaternion around the x-axis, without allocating a new quaternion.
+     *
+     * @param roll The angle of the rotation, in degrees.
+     * @param dest The quaternion to store the result in, may be this quaternion.
+     * @return The quaternion dest, containing the rotation around the x-axis followed by this rotation.
+     */
+    public Quat4d roll(double roll, Quat4d dest) {
+        return this.rotate(1.0d, 0.0d, 0.0d, roll, dest);
     }
 
     public Quat4d pitch(double pitch) {
-        return new Quat4d(Math.cos(Math.toRadians(pitch) * 0.5d), 0.0d, Math.sin(Math.toRadians(pitch) * 0.5d), 0.0d).mult(this).checkUnity();
+        return this.pitch(pitch, Quat4d.zero());
+    }
+
+    /**
+     * Rotates this quaternion around the y-axis, without allocating a new quaternion.
+     *
+     * @param pitch The angle of the rotation, in degrees.
+     * @param dest  The quaternion to store the result in, may be this quaternion.
+     * @return The quaternion dest, containing the rotation around the y-axis followed by this rotation.
+     */
+    public Quat4d pitch(double pitch, Quat4d dest) {
+        return this.rotate(0.0d, 1.0d, 0.0d, pitch, dest);
     }
 
     public Quat4d yaw(double yaw) {
-        return new Quat4d(Math.cos(Math.toRadians(yaw) * 0.5d), 0.0d, 0.0d, Math.sin(Math.toRadians(yaw) * 0.5d)).mult(this).checkUnity();
+        return this.yaw(yaw, Quat4d.zero());
+    }
+
+    /**
+     * Rotates this quaternion around the z-axis, without allocating a new quaternion.
+     *
+     * @param yaw  The angle of the rotation, in degrees.
+     * @param dest The quaternion to store the result in, may be this quaternion.
+     * @return The quaternion dest, containing the rotation around the z-axis followed by this rotation.
+     */
+    public Quat4d yaw(double yaw, Quat4d dest) {
+        return this.rotate(0.0d, 0.0d, 1.0d, yaw, dest);
     }
 
     public Quat4d rotate(Vector3d axis, double angle) {
-        double sine = Math.sin(Math.toRadians(angle) * 0.5d);
-        return new Quat4d(Math.cos(Math.toRadians(angle) * 0.5d), axis.getX() * sine, axis.getY() * sine, axis.getZ() * sine).mult(this).checkUnity();
+        return this.rotate(axis, angle, Quat4d.zero());
+    }
+
+    /**
+     * Rotates this quaternion around an axis, without allocating a new quaternion.
+     *
+     * @param axis  The axis of the rotation, of unit length.
+     * @param angle The angle of the rotation, in degrees.
+     * @param dest  The quaternion to store the result in, may be this quaternion.
+     * @return The quaternion dest, containing the rotation around the axis followed by this rotation.
+     */
+    public Quat4d rotate(Vector3d axis, double angle, Quat4d dest) {
+        return this.rotate(axis.getX(), axis.getY(), axis.getZ(), angle, dest);
+    }
+
+    /**
+     * Multiplies the rotation around an axis from the left with this quaternion.
+     *
+     * @param x     The x-component of the axis.
+     * @param y     The y-component of the axis.
+     * @param z     The z-component of the axis.
+     * @param angle The angle of the rotation, in degrees.
+     * @param dest  The quaternion to store the result in, may be this quaternion.
+     * @return The quaternion dest.
+     */
+    private Quat4d rotate(double x, double y, double z, double angle, Quat4d dest) {
+        double sin = FastTrig.sinDegrees(angle * 0.5d), cos = FastTrig.cosDegrees(angle * 0.5d);
+        return Quat4d.mult(cos, x * sin, y * sin, z * sin, this.getW(), this.getI(), this.getJ(), this.getK(), dest).checkUnity();
     }
 
     public Quat4d add(Quat4d b) {
@@ -176,22 +320,109 @@ public class Quat4d {
     }
 
     public Quat4d mult(Quat4d r) {
-        double x0 = this.getRealPart();
-        double y0 = r.getRealPart();
-        Vector3d x = this.getImaginaryPart();
-        Vector3d y = r.getImaginaryPart();
-        return new Quat4d(
-                x0 * y0 - x.dot(y),
-                y.scale(x0).add(x.scale(y0)).add(x.cross(y))
+        return this.mult(r, Quat4d.zero());
+    }
+
+    /**
+     * Multiplies this quaternion with a second quaternion, without allocating a new quaternion.
+     *
+     * @param r    The quaternion to multiply this quaternion with from the right.
+     * @param dest The quaternion to store the result in, may be this quaternion or r.
+     * @return The quaternion dest, containing the product this*r.
+     */
+    public Quat4d mult(Quat4d r, Quat4d dest) {
+        return Quat4d.mult(this.getW(), this.getI(), this.getJ(), this.getK(), r.getW(), r.getI(), r.getJ(), r.getK(), dest);
+    }
+
+    /**
+     * Multiplies two quaternions given by their components.
+     *
+     * @param w0   The real part of the left quaternion.
+     * @param i0   The i-component of the left quaternion.
+     * @param j0   The j-component of the left quaternion.
+     * @param k0   The k-component of the left quaternion.
+     * @param w1   The real part of the right quaternion.
+     * @param i1   The i-component of the right quaternion.
+     * @param j1   The j-component of the right quaternion.
+     * @param k1   The k-component of the right quaternion.
+     * @param dest The quaternion to store the product in.
+     * @return The quaternion dest.
+     */
+    private static Quat4d mult(double w0, double i0, double j0, double k0, double w1, double i1, double j1, double k1, Quat4d dest) {
+        return dest.set(
+                w0 * w1 - (i0 * i1 + j0 * j1 + k0 * k1),
+                i1 * w0 + i0 * w1 + (j0 * k1 - k0 * j1),
+                j1 * w0 + j0 * w1 + (k0 * i1 - i0 * k1),
+                k1 * w0 + k0 * w1 + (i0 * j1 - j0 * i1)
         );
     }
 
     public Vector3d rotateVector(Vector3d v) {
-        return this.toRotationMatrix().mult(v);
+        return this.rotateVector(v, new Vector3d(0.0d, 0.0d, 0.0d));
+    }
+
+    /**
+     * Rotates a vector by this quaternion, without allocating a new vector. See {@link Quat4d#rotateVector(Vector3d)}.
+     * The rotation is applied directly with two cross products, instead of building the rotation matrix first.
+     *
+     * @param v    The vector to rotate.
+     * @param dest The vector to store the result in, may be v.
+     * @return The vector dest, containing the rotated vector.
+     */
+    public Vector3d rotateVector(Vector3d v, Vector3d dest) {
+        double w = this.getW(), i = this.getI(), j = this.getJ(), k = this.getK();
+        double s = 2.0d / (w * w + i * i + j * j + k * k);
+        double x = v.getX(), y = v.getY(), z = v.getZ();
+        //Same rotation as the matrix of toRotationMatrix, i.e. by the conjugate: v + w*t + t x u, with t = s * (v x u)
+        double tx = s * (y * k - z * j);
+        double ty = s * (z * i - x * k);
+        double tz = s * (x * j - y * i);
+        return dest.set(
+                x + w * tx + (ty * k - tz * j),
+                y + w * ty + (tz * i - tx * k),
+                z + w * tz + (tx * j - ty * i)
+        );
+    }
+
+    /**
+     * Rotates a series of vectors by this quaternion. The rotation matrix is built once and applied to all vectors,
+     * which is faster than {@link Quat4d#rotateVector(Vector3d, Vector3d)} for more than a few vectors.
+     *
+     * @param in    The buffer containing the vectors to rotate as consecutive x, y and z triplets.
+     * @param out   The buffer to write the rotated vectors into as consecutive x, y and z triplets, may be in.
+     * @param count The number of vectors to rotate.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] rotateVectors(double[] in, double[] out, int count) {
+        if (in.length < 3 * count || out.length < 3 * count) {
+            throw new IllegalArgumentException("The buffers can not hold " + count + " vectors.");
+        }
+        double w = this.getW(), i = this.getI(), j = this.getJ(), k = this.getK();
+        double s = 2.0d / (w * w + i * i + j * j + k * k);
+        double m00 = 1.0d - s * (j * j + k * k), m01 = s * (i * j + w * k), m02 = s * (i * k - w * j);
+        double m10 = s * (i * j - w * k), m11 = 1.0d - s * (i * i + k * k), m12 = s * (j * k + w * i);
+        double m20 = s * (i * k + w * j), m21 = s * (j * k - w * i), m22 = 1.0d - s * (i * i + j * j);
+        for (int o = 0; o < 3 * count; o += 3) {
+            double x = in[o], y = in[o + 1], z = in[o + 2];
+            out[o] = m00 * x + m01 * y + m02 * z;
+            out[o + 1] = m10 * x + m11 * y + m12 * z;
+            out[o + 2] = m20 * x + m21 * y + m22 * z;
+        }
+        return out;
     }
 
     public Quat4d conjugate() {
-        return new Quat4d(this.getW(), -this.getI(), -this.getJ(), -this.getK());
+        return this.conjugate(Quat4d.zero());
+    }
+
+    /**
+     * Conjugates this quaternion, without allocating a new quaternion.
+     *
+     * @param dest The quaternion to store the result in, may be this quaternion.
+     * @return The quaternion dest, containing the conjugate of this quaternion.
+     */
+    public Quat4d conjugate(Quat4d dest) {
+        return dest.set(this.getW(), -this.getI(), -this.getJ(), -this.getK());
     }
 
     public double len2() {
@@ -203,14 +434,34 @@ public class Quat4d {
     }
 
     public Quat4d normalize() {
+        return this.normalize(Quat4d.zero());
+    }
+
+    /**
+     * Normalizes this quaternion, without allocating a new quaternion.
+     *
+     * @param dest The quaternion to store the result in, may be this quaternion.
+     * @return The quaternion dest, containing this quaternion scaled to unit length.
+     */
+    public Quat4d normalize(Quat4d dest) {
         double length = this.len();
-        return new Quat4d(this.getW() / length, this.getI() / length, this.getJ() / length, this.getK() / length);
+        return dest.set(this.getW() / length, this.getI() / length, this.getJ() / length, this.getK() / length);
     }
 
     public Matrix3d toRotationMatrix() {
-        double s2 = 2.0d / (this.len2() * this.len2());
+        return this.toRotationMatrix(Matrix3d.identity());
+    }
+
+    /**
+     * Calculates the rotation matrix of this quaternion, without allocating a new matrix.
+     *
+     * @param dest The matrix to store the result in.
+     * @return The matrix dest, containing the rotation matrix of this quaternion.
+     */
+    public Matrix3d toRotationMatrix(Matrix3d dest) {
+        double s2 = 2.0d / this.len2();
         //RIGHT HANDED
-        return new Matrix3d(
+        return dest.set(
                 1.0d - s2 * (this.getJ() * this.getJ() + this.getK() * this.getK()),
                 s2 * (this.getI() * this.getJ() + this.getW() * this.getK()),
                 s2 * (this.getI() * this.getK() - this.getW() * this.getJ()),
@@ -261,7 +512,7 @@ public class Quat4d {
     public String toString(int precision) {
         return String.format(
                 "[ %1$." + precision + "f   %2$." + precision + "fi   %3$." + precision + "fj   %4$." + precision + "fk ]",
-                this.data[0], this.data[1], this.data[2], this.data[3]);
+                this.w, this.i, this.j, this.k);
     }
 
     @Override
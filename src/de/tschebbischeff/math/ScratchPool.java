@@ -0,0 +1,168 @@
+package de.tschebbischeff.math;
+
+import java.util.Arrays;
+
+/**
+ * A per thread pool of temporary vectors, quaternions and matrices, so loops which need intermediate results of the
+ * operations of this package can run without allocating. Objects are borrowed in frames, which are released as a
+ * whole:
+ * <pre>
+ * ScratchPool scratch = ScratchPool.get();
+ * scratch.push();
+ * try {
+ *     Vector3d direction = scratch.vector();
+ *     ...
+ * } finally {
+ *     scratch.pop();
+ * }
+ * </pre>
+ * Borrowed objects have arbitrary contents and must not be used after their frame was popped. The pool grows to the
+ * largest number of objects borrowed at once and keeps them afterwards, so only the first iterations of a loop
+ * allocate.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class ScratchPool {
+
+    /**
+     * The pool of each thread.
+     */
+    private static final ThreadLocal<ScratchPool> POOLS = ThreadLocal.withInitial(ScratchPool::new);
+    /**
+     * The initial capacity of each kind of object and of the frame stack.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The pooled vectors, of which the first are borrowed.
+     */
+    private Vector3d[] vectors = new Vector3d[INITIAL_CAPACITY];
+    /**
+     * The pooled quaternions, of which the first are borrowed.
+     */
+    private Quat4d[] quaternions = new Quat4d[INITIAL_CAPACITY];
+    /**
+     * The pooled matrices, of which the first are borrowed.
+     */
+    private Matrix3d[] matrices = new Matrix3d[INITIAL_CAPACITY];
+    /**
+     * The number of borrowed vectors.
+     */
+    private int vectorCount = 0;
+    /**
+     * The number of borrowed quaternions.
+     */
+    private int quaternionCount = 0;
+    /**
+     * The number of borrowed matrices.
+     */
+    private int matrixCount = 0;
+    /**
+     * The numbers of borrowed vectors, quaternions and matrices at the start of each open frame.
+     */
+    private int[] frames = new int[3 * INITIAL_CAPACITY];
+    /**
+     * The number of open frames.
+     */
+    private int depth = 0;
+
+    /**
+     * Pools are only created per thread, see {@link ScratchPool#get()}.
+     */
+    private ScratchPool() {
+    }
+
+    /**
+     * Gets the pool of the current thread.
+     *
+     * @return The pool of the current thread.
+     */
+    public static ScratchPool get() {
+        return POOLS.get();
+    }
+
+    /**
+     * Opens a new frame. All objects borrowed until the matching {@link ScratchPool#pop()} are released by it.
+     *
+     * @return This pool for fluent method calls.
+     */
+    public ScratchPool push() {
+        if (3 * this.depth == this.frames.length) {
+            this.frames = Arrays.copyOf(this.frames, 2 * this.frames.length);
+        }
+        this.frames[3 * this.depth] = this.vectorCount;
+        this.frames[3 * this.depth + 1] = this.quaternionCount;
+        this.frames[3 * this.depth + 2] = this.matrixCount;
+        this.depth++;
+        return this;
+    }
+
+    /**
+     * Closes the innermost frame and releases all objects borrowed within it.
+     *
+     * @return This pool for fluent method calls.
+     */
+    public ScratchPool pop() {
+        if (this.depth == 0) {
+            throw new IllegalStateException("There is no open frame to pop.");
+        }
+        this.depth--;
+        this.vectorCount = this.frames[3 * this.depth];
+        this.quaternionCount = this.frames[3 * this.depth + 1];
+        this.matrixCount = this.frames[3 * this.depth + 2];
+        return this;
+    }
+
+    /**
+     * Borrows a vector until the current frame is popped.
+     *
+     * @return A vector with arbitrary coordinates.
+     */
+    public Vector3d vector() {
+        if (this.vectorCount == this.vectors.length) {
+            this.vectors = Arrays.copyOf(this.vectors, 2 * this.vectors.length);
+        }
+        Vector3d vector = this.vectors[this.vectorCount];
+        if (vector == null) {
+            vector = this.vectors[this.vectorCount] = new Vector3d(0.0d, 0.0d, 0.0d);
+        }
+        this.vectorCount++;
+        return vector;
+    }
+
+    /**
+     * Borrows a quaternion until the current frame is popped.
+     *
+     * @return A quaternion with arbitrary components.
+     */
+    public Quat4d quaternion() {
+        if (this.quaternionCount == this.quaternions.length) {
+            this.quaternions = Arrays.copyOf(this.quaternions, 2 * this.quaternions.length);
+        }
+        Quat4d quaternion = this.quaternions[this.quaternionCount];
+        if (quaternion == null) {
+            quaternion = this.quaternions[this.quaternionCount] = Quat4d.zero();
+        }
+        this.quaternionCount++;
+        return quaternion;
+    }
+
+    /**
+     * Borrows a matrix until the current frame is popped.
+     *
+     * @return A matrix with arbitrary values.
+     */
+    public Matrix3d matrix() {
+        if (this.matrixCount == this.matrices.length) {
+            this.matrices = Arrays.copyOf(this.matrices, 2 * this.matrices.length);
+        }
+        Matrix3d matrix = this.matrices[this.matrixCount];
+        if (matrix == null) {
+            matrix = this.matrices[this.matrixCount] = Matrix3d.identity();
+        }
+        this.matrixCount++;
+        return matrix;
+    }
+
+}
@@ -0,0 +1,286 @@
+package de.tschebbischeff.math;
+
+/**
+ * Fully unrolled kernels for 3x3 and 4x4 transforms on flat arrays, shared by the model and the visualizer.
+ * Three by three matrices are stored row-first in nine doubles, as written by {@link Matrix3d#get(double[], int)}.
+ * Four by four matrices are stored column-first in sixteen floats, as expected by OpenGL.
+ * The destination of every kernel may be one of its operands, as all operands are read before anything is written.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public final class TransformKernels {
+
+    /**
+     * This class only provides static kernels.
+     */
+    private TransformKernels() {
+    }
+
+    /**
+     * Multiplies two three by three matrices.
+     *
+     * @param a   The left matrix, row-first.
+     * @param b   The right matrix, row-first.
+     * @param out The buffer to write the product a*b into, row-first, may be a or b.
+     * @return The buffer out for fluent method calls.
+     */
+    public static double[] mult3(double[] a, double[] b, double[] out) {
+        double a00 = a[0], a01 = a[1], a02 = a[2], a10 = a[3], a11 = a[4], a12 = a[5], a20 = a[6], a21 = a[7], a22 = a[8];
+        double b00 = b[0], b01 = b[1], b02 = b[2], b10 = b[3], b11 = b[4], b12 = b[5], b20 = b[6], b21 = b[7], b22 = b[8];
+        out[0] = a00 * b00 + a01 * b10 + a02 * b20;
+        out[1] = a00 * b01 + a01 * b11 + a02 * b21;
+        out[2] = a00 * b02 + a01 * b12 + a02 * b22;
+        out[3] = a10 * b00 + a11 * b10 + a12 * b20;
+        out[4] = a10 * b01 + a11 * b11 + a12 * b21;
+        out[5] = a10 * b02 + a11 * b12 + a12 * b22;
+        out[6] = a20 * b00 + a21 * b10 + a22 * b20;
+        out[7] = a20 * b01 + a21 * b11 + a22 * b21;
+        out[8] = a20 * b02 + a21 * b12 + a22 * b22;
+        return out;
+    }
+
+    /**
+     * Multiplies the transpose of a three by three matrix with a second matrix, without transposing it first.
+     * For a rotation a this applies the inverse of a before b.
+     *
+     * @param a   The left matrix, row-first, which is transposed.
+     * @param b   The right matrix, row-first.
+     * @param out The buffer to write the product a^T*b into, row-first, may be a or b.
+     * @return The buffer out for fluent method calls.
+     */
+    public static double[] transposeMult3(double[] a, double[] b, double[] out) {
+        double a00 = a[0], a01 = a[1], a02 = a[2], a10 = a[3], a11 = a[4], a12 = a[5], a20 = a[6], a21 = a[7], a22 = a[8];
+        double b00 = b[0], b01 = b[1], b02 = b[2], b10 = b[3], b11 = b[4], b12 = b[5], b20 = b[6], b21 = b[7], b22 = b[8];
+        out[0] = a00 * b00 + a10 * b10 + a20 * b20;
+        out[1] = a00 * b01 + a10 * b11 + a20 * b21;
+        out[2] = a00 * b02 + a10 * b12 + a20 * b22;
+        out[3] = a01 * b00 + a11 * b10 + a21 * b20;
+        out[4] = a01 * b01 + a11 * b11 + a21 * b21;
+        out[5] = a01 * b02 + a11 * b12 + a21 * b22;
+        out[6] = a02 * b00 + a12 * b10 + a22 * b20;
+        out[7] = a02 * b01 + a12 * b11 + a22 * b21;
+        out[8] = a02 * b02 + a12 * b12 + a22 * b22;
+        return out;
+    }
+
+    /**
+     * Multiplies a three by three matrix with the transpose of a second matrix, without transposing it first.
+     * For rotations this is the rotation from the orientation b to the orientation a.
+     *
+     * @param a   The left matrix, row-first.
+     * @param b   The right matrix, row-first, which is transposed.
+     * @param out The buffer to write the product a*b^T into, row-first, may be a or b.
+     * @return The buffer out for fluent method calls.
+     */
+    public static double[] multTranspose3(double[] a, double[] b, double[] out) {
+        double a00 = a[0], a01 = a[1], a02 = a[2], a10 = a[3], a11 = a[4], a12 = a[5], a20 = a[6], a21 = a[7], a22 = a[8];
+        double b00 = b[0], b01 = b[1], b02 = b[2], b10 = b[3], b11 = b[4], b12 = b[5], b20 = b[6], b21 = b[7], b22 = b[8];
+        out[0] = a00 * b00 + a01 * b01 + a02 * b02;
+        out[1] = a00 * b10 + a01 * b11 + a02 * b12;
+        out[2] = a00 * b20 + a01 * b21 + a02 * b22;
+        out[3] = a10 * b00 + a11 * b01 + a12 * b02;
+        out[4] = a10 * b10 + a11 * b11 + a12 * b12;
+        out[5] = a10 * b20 + a11 * b21 + a12 * b22;
+        out[6] = a20 * b00 + a21 * b01 + a22 * b02;
+        out[7] = a20 * b10 + a21 * b11 + a22 * b12;
+        out[8] = a20 * b20 + a21 * b21 + a22 * b22;
+        return out;
+    }
+
+    /**
+     * Transforms a series of points by a rotation or any other three by three matrix followed by a translation.
+     *
+     * @param matrix The matrix, row-first.
+     * @param x      The x-component of the translation.
+     * @param y      The y-component of the translation.
+     * @param z      The z-component of the translation.
+     * @param in     The buffer containing the points as consecutive x, y and z triplets.
+     * @param out    The buffer to write the transformed points into as consecutive x, y and z triplets, may be in.
+     * @param count  The number of points to transform.
+     * @return The buffer out for fluent method calls.
+     */
+    public static double[] transformPoints(double[] matrix, double x, double y, double z, double[] in, double[] out, int count) {
+        if (in.length < 3 * count || out.length < 3 * count) {
+            throw new IllegalArgumentException("The buffers can not hold " + count + " points.");
+        }
+        double m00 = matrix[0], m01 = matrix[1], m02 = matrix[2];
+        double m10 = matrix[3], m11 = matrix[4], m12 = matrix[5];
+        double m20 = matrix[6], m21 = matrix[7], m22 = matrix[8];
+        for (int o = 0; o < 3 * count; o += 3) {
+            double px = in[o], py = in[o + 1], pz = in[o + 2];
+            out[o] = m00 * px + m01 * py + m02 * pz + x;
+            out[o + 1] = m10 * px + m11 * py + m12 * pz + y;
+            out[o + 2] = m20 * px + m21 * py + m22 * pz + z;
+        }
+        return out;
+    }
+
+    /**
+     * Multiplies two four by four matrices.
+     *
+     * @param a   The left matrix, column-first.
+     * @param b   The right matrix, column-first.
+     * @param out The buffer to write the product a*b into, column-first, may be a or b.
+     * @return The buffer out for fluent method calls.
+     */
+    public static float[] mult4(float[] a, float[] b, float[] out) {
+        float a00 = a[0], a10 = a[1], a20 = a[2], a30 = a[3];
+        float a01 = a[4], a11 = a[5], a21 = a[6], a31 = a[7];
+        float a02 = a[8], a12 = a[9], a22 = a[10], a32 = a[11];
+        float a03 = a[12], a13 = a[13], a23 = a[14], a33 = a[15];
+        float b00 = b[0], b10 = b[1], b20 = b[2], b30 = b[3];
+        float b01 = b[4], b11 = b[5], b21 = b[6], b31 = b[7];
+        float b02 = b[8], b12 = b[9], b22 = b[10], b32 = b[11];
+        float b03 = b[12], b13 = b[13], b23 = b[14], b33 = b[15];
+        out[0] = a00 * b00 + a01 * b10 + a02 * b20 + a03 * b30;
+        out[1] = a10 * b00 + a11 * b10 + a12 * b20 + a13 * b30;
+        out[2] = a20 * b00 + a21 * b10 + a22 * b20 + a23 * b30;
+        out[3] = a30 * b00 + a31 * b10 + a32 * b20 + a33 * b30;
+        out[4] = a00 * b01 + a01 * b11 + a02 * b21 + a03 * b31;
+        out[5] = a10 * b01 + a11 * b11 + a12 * b21 + a13 * b31;
+        out[6] = a20 * b01 + a21 * b11 + a22 * b21 + a23 * b31;
+        out[7] = a30 * b01 + a31 * b11 + a32 * b21 + a33 * b31;
+        out[8] = a00 * b02 + a01 * b12 + a02 * b22 + a03 * b32;
+        out[9] = a10 * b02 + a11 * b12 + a12 * b22 + a13 * b32;
+        out[10] = a20 * b02 + a21 * b12 + a22 * b22 + a23 * b32;
+        out[11] = a30 * b02 + a31 * b12 + a32 * b22 + a33 * b32;
+        out[12] = a00 * b03 + a01 * b13 + a02 * b23 + a03 * b33;
+        out[13] = a10 * b03 + a11 * b13 + a12 * b23 + a13 * b33;
+        out[14] = a20 * b03 + a21 * b13 + a22 * b23 + a23 * b33;
+        out[15] = a30 * b03 + a31 * b13 + a32 * b23 + a33 * b33;
+        return out;
+    }
+
+    /**
+     * Multiplies the transpose of a four by four matrix with a second matrix, without transposing it first.
+     *
+     * @param a   The left matrix, column-first, which is transposed.
+     * @param b   The right matrix, column-first.
+     * @param out The buffer to write the product a^T*b into, column-first, may be a or b.
+     * @return The buffer out for fluent method calls.
+     */
+    public static float[] transposeMult4(float[] a, float[] b, float[] out) {
+        float a00 = a[0], a10 = a[1], a20 = a[2], a30 = a[3];
+        float a01 = a[4], a11 = a[5], a21 = a[6], a31 = a[7];
+        float a02 = a[8], a12 = a[9], a22 = a[10], a32 = a[11];
+        float a03 = a[12], a13 = a[13], a23 = a[14], a33 = a[15];
+        float b00 = b[0], b10 = b[1], b20 = b[2], b30 = b[3];
+        float b01 = b[4], b11 = b[5], b21 = b[6], b31 = b[7];
+        float b02 = b[8], b12 = b[9], b22 = b[10], b32 = b[11];
+        float b03 = b[12], b13 = b[13], b23 = b[14], b33 = b[15];
+        out[0] = a00 * b00 + a10 * b10 + a20 * b20 + a30 * b30;
+        out[1] = a01 * b00 + a11 * b10 + a21 * b20 + a31 * b30;
+        out[2] = a02 * b00 + a12 * b10 + a22 * b20 + a32 * b30;
+        out[3] = a03 * b00 + a13 * b10 + a23 * b20 + a33 * b30;
+        out[4] = a00 * b01 + a10 * b11 + a20 * b21 + a30 * b31;
+        out[5] = a01 * b01 + a11 * b11 + a21 * b21 + a31 * b31;
+        out[6] = a02 * b01 + a12 * b11 + a22 * b21 + a32 * b31;
+        out[7] = a03 * b01 + a13 * b11 + a23 * b21 + a33 * b31;
+        out[8] = a00 * b02 + a10 * b12 + a20 * b22 + a30 * b32;
+        out[9] = a01 * b02 + a11 * b12 + a21 * b22 + a31 * b32;
+        out[10] = a02 * b02 + a12 * b12 + a22 * b22 + a32 * b32;
+        out[11] = a03 * b02 + a13 * b12 + a23 * b22 + a33 * b32;
+        out[12] = a00 * b03 + a10 * b13 + a20 * b23 + a30 * b33;
+        out[13] = a01 * b03 + a11 * b13 + a21 * b23 + a31 * b33;
+        out[14] = a02 * b03 + a12 * b13 + a22 * b23 + a32 * b33;
+        out[15] = a03 * b03 + a13 * b13 + a23 * b23 + a33 * b33;
+        return out;
+    }
+
+    /**
+     * Builds the four by four matrix of an affine transform, which scales uniformly, then applies a three by three
+     * matrix and then translates.
+     *
+     * @param matrix The three by three matrix, row-first.
+     * @param scale  The uniform scale applied first.
+     * @param x      The x-component of the translation.
+     * @param y      The y-component of the translation.
+     * @param z      The z-component of the translation.
+     * @param out    The buffer to write the four by four matrix into, column-first.
+     * @return The buffer out for fluent method calls.
+     */
+    public static float[] affine(double[] matrix, double scale, double x, double y, double z, float[] out) {
+        out[0] = (float) (matrix[0] * scale);
+        out[1] = (float) (matrix[3] * scale);
+        out[2] = (float) (matrix[6] * scale);
+        out[3] = 0.0f;
+        out[4] = (float) (matrix[1] * scale);
+        out[5] = (float) (matrix[4] * scale);
+        out[6] = (float) (matrix[7] * scale);
+        out[7] = 0.0f;
+        out[8] = (float) (matrix[2] * scale);
+        out[9] = (float) (matrix[5] * scale);
+        out[10] = (float) (matrix[8] * scale);
+        out[11] = 0.0f;
+        out[12] = (float) x;
+        out[13] = (float) y;
+        out[14] = (float) z;
+        out[15] = 1.0f;
+        return out;
+    }
+
+    /**
+     * Multiplies two affine four by four matrices, i.e. matrices with a last row of (0, 0, 0, 1). The product of
+     * such matrices is affine itself, which saves the multiplications involving the last rows.
+     *
+     * @param a   The left affine matrix, column-first.
+     * @param b   The right affine matrix, column-first.
+     * @param out The buffer to write the product a*b into, column-first, may be a or b.
+     * @return The buffer out for fluent method calls.
+     */
+    public static float[] composeAffine(float[] a, float[] b, float[] out) {
+        float a00 = a[0], a10 = a[1], a20 = a[2];
+        float a01 = a[4], a11 = a[5], a21 = a[6];
+        float a02 = a[8], a12 = a[9], a22 = a[10];
+        float a03 = a[12], a13 = a[13], a23 = a[14];
+        float b00 = b[0], b10 = b[1], b20 = b[2];
+        float b01 = b[4], b11 = b[5], b21 = b[6];
+        float b02 = b[8], b12 = b[9], b22 = b[10];
+        float b03 = b[12], b13 = b[13], b23 = b[14];
+        out[0] = a00 * b00 + a01 * b10 + a02 * b20;
+        out[1] = a10 * b00 + a11 * b10 + a12 * b20;
+        out[2] = a20 * b00 + a21 * b10 + a22 * b20;
+        out[3] = 0.0f;
+        out[4] = a00 * b01 + a01 * b11 + a02 * b21;
+        out[5] = a10 * b01 + a11 * b11 + a12 * b21;
+        out[6] = a20 * b01 + a21 * b11 + a22 * b21;
+        out[7] = 0.0f;
+        out[8] = a00 * b02 + a01 * b12 + a02 * b22;
+        out[9] = a10 * b02 + a11 * b12 + a12 * b22;
+        out[10] = a20 * b02 + a21 * b12 + a22 * b22;
+        out[11] = 0.0f;
+        out[12] = a00 * b03 + a01 * b13 + a02 * b23 + a03;
+        out[13] = a10 * b03 + a11 * b13 + a12 * b23 + a13;
+        out[14] = a20 * b03 + a21 * b13 + a22 * b23 + a23;
+        out[15] = 1.0f;
+        return out;
+    }
+
+    /**
+     * Transforms a series of points by an affine four by four matrix, treating each point as (x, y, z, 1).
+     *
+     * @param matrix The affine matrix, column-first. Its last row is assumed to be (0, 0, 0, 1) and not read.
+     * @param in     The buffer containing the points as consecutive x, y and z triplets.
+     * @param out    The buffer to write the transformed points into as consecutive x, y and z triplets, may be in.
+     * @param count  The number of points to transform.
+     * @return The buffer out for fluent method calls.
+     */
+    public static float[] transformPoints(float[] matrix, float[] in, float[] out, int count) {
+        if (in.length < 3 * count || out.length < 3 * count) {
+            throw new IllegalArgumentException("The buffers can not hold " + count + " points.");
+        }
+        float m00 = matrix[0], m10 = matrix[1], m20 = matrix[2];
+        float m01 = matrix[4], m11 = matrix[5], m21 = matrix[6];
+        float m02 = matrix[8], m12 = matrix[9], m22 = matrix[10];
+        float m03 = matrix[12], m13 = matrix[13], m23 = matrix[14];
+        for (int o = 0; o < 3 * count; o += 3) {
+            float px = in[o], py = in[o + 1], pz = in[o + 2];
+            out[o] = m00 * px + m01 * py + m02 * pz + m03;
+            out[o + 1] = m10 * px + m11 * py + m12 * pz + m13;
+            out[o + 2] = m20 * px + m21 * py + m22 * pz + m23;
+        }
+        return out;
+    }
+
+}
@@ -33,9 +33,17 @@ public class Vector3d {
      */
     public static final Vector3d Z_AXIS_NEG = new Vector3d(0.0d, 0.0d, -1.0d);
     /**
-     * Stores the vector data in a 3 element array
+     * The x-coordinate of this vector
      */
-    private double[] data;
+    private double x;
+    /**
+     * The y-coordinate of this vector
+     */
+    private double y;
+    /**
+     * The z-coordinate of this vector
+     */
+    private double z;
 
     /**
      * Creates a new vector from the supplied coordinates.
@@ -45,24 +53,21 @@ public class Vector3d {
      * @param z The z coordinate of the new vector.
      */
     public Vector3d(double x, double y, double z) {
-        this(new double[]{x, y, z});
+        this.x = x;
+        this.y = y;
+        this.z = z;
     }
 
     /**
      * Creates a new vector from the data in the array. The array must contain exactly 3 elements.
      * The first element corresponds to the x-coordinate of the vector, while the second and third elements
-     * corresponds to the y- and z-coordinate respectively.
+     * corresponds to the y- and z-coordinate respectively. The values are copied, so later changes to the array are
+     * not reflected by the vector.
      *
      * @param v A three element array containg the data for the new vector.
      */
     public Vector3d(double[] v) {
-        if (v.length != 3)
-            try {
-                throw new RuntimeException("The given data is not of length 3");
-            } catch (RuntimeException e) {
-                e.printStackTrace();
-            }
-        this.data = v;
+        this.setData(v);
     }
 
     /**
@@ -71,7 +76,7 @@ public class Vector3d {
      * @return This vector's x-coordinate.
      */
     public double getX() {
-        return this.data[0];
+        return this.x;
     }
 
     /**
@@ -81,7 +86,7 @@ public class Vector3d {
      * @return This vector for fluent method calls.
      */
     public Vector3d setX(double x) {
-        this.data[0] = x;
+        this.x = x;
         return this;
     }
 
@@ -91,7 +96,7 @@ public class Vector3d {
      * @return This vector's y-coordinate.
      */
     public double getY() {
-        return this.data[1];
+        return this.y;
     }
 
     /**
@@ -101,7 +106,7 @@ public class Vector3d {
      * @return This vector for fluent method calls.
      */
     public Vector3d setY(double y) {
-        this.data[1] = y;
+        this.y = y;
         return this;
     }
 
@@ -111,7 +116,7 @@ public class Vector3d {
      * @return This vector's z-coordinate.
      */
     public double getZ() {
-        return this.data[2];
+        return this.z;
     }
 
     /**
@@ -121,7 +126,7 @@ public class Vector3d {
      * @return This vector for fluent method calls.
      */
     public Vector3d setZ(double z) {
-        this.data[2] = z;
+        this.z = z;
         return this;
     }
 
@@ -129,10 +134,11 @@ public class Vector3d {
      * Gets the x-, y- and z-coordinate of this vector as an array.
      *
      * @return An array containing this vector's x-coordinate as the first element, and this vector's y- and
-     * z-coordinates as the second and third element respectively.
+     * z-coordinates as the second and third element respectively. The array is a copy, so changes to it are not
+     * reflected by this vector.
      */
     public double[] getData() {
-        return this.data;
+        return new double[]{this.x, this.y, this.z};
     }
 
     /**
@@ -149,8 +155,7 @@ public class Vector3d {
             } catch (RuntimeException e) {
                 e.printStackTrace();
             }
-        this.data = v;
-        return this;
+        return this.set(v[0], v[1], v[2]);
     }
 
     /**
@@ -162,7 +167,57 @@ public class Vector3d {
      * @return This vector for fluent method calls.
      */
     public Vector3d setData(double x, double y, double z) {
-        return this.setData(new double[]{x, y, z});
+        return this.set(x, y, z);
+    }
+
+    /**
+     * Overwrites this vector's x-, y- and z-coordinate.
+     *
+     * @param x The new x-coordinate of this vector.
+     * @param y The new y-coordinate of this vector.
+     * @param z The new z-coordinate of this vector.
+     * @return This vector for fluent method calls.
+     */
+    public Vector3d set(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    /**
+     * Overwrites this vector's coordinates with those of another vector.
+     *
+     * @param v The vector to copy.
+     * @return This vector for fluent method calls.
+     */
+    public Vector3d set(Vector3d v) {
+        return this.set(v.getX(), v.getY(), v.getZ());
+    }
+
+    /**
+     * Overwrites this vector's coordinates with three consecutive values of a buffer.
+     *
+     * @param in     The buffer to read the x-, y- and z-coordinate from.
+     * @param offset The index of the x-coordinate in the buffer.
+     * @return This vector for fluent method calls.
+     */
+    public Vector3d set(double[] in, int offset) {
+        return this.set(in[offset], in[offset + 1], in[offset + 2]);
+    }
+
+    /**
+     * Writes this vector's coordinates into a buffer, without allocating an array as {@link Vector3d#getData()} does.
+     *
+     * @param out    The buffer to write the x-, y- and z-coordinate into.
+     * @param offset The index in the buffer at which the x-coordinate is written.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] get(double[] out, int offset) {
+        out[offset] = this.x;
+        out[offset + 1] = this.y;
+        out[offset + 2] = this.z;
+        return out;
     }
 
     /**
@@ -182,11 +237,21 @@ public class Vector3d {
      * @return A new vector which is equal to the cross product of this vector and vector b.
      */
     public Vector3d cross(Vector3d b) {
-        return new Vector3d(
-                this.getY() * b.getZ() - this.getZ() * b.getY(),
-                this.getZ() * b.getX() - this.getX() * b.getZ(),
-                this.getX() * b.getY() - this.getY() * b.getX()
-        );
+        return this.cross(b, new Vector3d(0.0d, 0.0d, 0.0d));
+    }
+
+    /**
+     * Produces the cross product of this vector and a second vector, without allocating a new vector.
+     *
+     * @param b    The vector to build the cross product with.
+     * @param dest The vector to store the result in, may be this vector or b.
+     * @return The vector dest, which is equal to the cross product of this vector and vector b.
+     */
+    public Vector3d cross(Vector3d b, Vector3d dest) {
+        double x = this.getY() * b.getZ() - this.getZ() * b.getY();
+        double y = this.getZ() * b.getX() - this.getX() * b.getZ();
+        double z = this.getX() * b.getY() - this.getY() * b.getX();
+        return dest.set(x, y, z);
     }
 
     /**
@@ -216,8 +281,18 @@ public class Vector3d {
      * @return A new vector, which equals this vector normalized.
      */
     public Vector3d normalize() {
+        return this.normalize(new Vector3d(0.0d, 0.0d, 0.0d));
+    }
+
+    /**
+     * Normalizes this vector, without allocating a new vector.
+     *
+     * @param dest The vector to store the result in, may be this vector.
+     * @return The vector dest, which equals this vector normalized.
+     */
+    public Vector3d normalize(Vector3d dest) {
         double length = this.len();
-        return new Vector3d(this.getX() / length, this.getY() / length, this.getZ() / length);
+        return dest.set(this.getX() / length, this.getY() / length, this.getZ() / length);
     }
 
     /**
@@ -227,7 +302,30 @@ public class Vector3d {
      * @return A new vector, which is equal to the sum of this vector and vector b.
      */
     public Vector3d add(Vector3d b) {
-        return new Vector3d(this.getX() + b.getX(), this.getY() + b.getY(), this.getZ() + b.getZ());
+        return this.add(b, new Vector3d(0.0d, 0.0d, 0.0d));
+    }
+
+    /**
+     * Produces the sum of this and another vector, without allocating a new vector.
+     *
+     * @param b    The vector to add to this vector.
+     * @param dest The vector to store the result in, may be this vector or b.
+     * @return The vector dest, which is equal to the sum of this vector and vector b.
+     */
+    public Vector3d add(Vector3d b, Vector3d dest) {
+        return dest.set(this.getX() + b.getX(), this.getY() + b.getY(), this.getZ() + b.getZ());
+    }
+
+    /**
+     * Produces the sum of this vector and a scaled vector, without allocating a new vector.
+     *
+     * @param b     The vector to scale and add to this vector.
+     * @param scale The scalar with which each component of vector b is multiplied.
+     * @param dest  The vector to store the result in, may be this vector or b.
+     * @return The vector dest, which is equal to the sum of this vector and vector b scaled by scale.
+     */
+    public Vector3d addScaled(Vector3d b, double scale, Vector3d dest) {
+        return dest.set(this.getX() + b.getX() * scale, this.getY() + b.getY() * scale, this.getZ() + b.getZ() * scale);
     }
 
     /**
@@ -237,7 +335,18 @@ public class Vector3d {
      * @return A new vector, which is equal to this vector minus the vector b.
      */
     public Vector3d sub(Vector3d b) {
-        return new Vector3d(this.getX() - b.getX(), this.getY() - b.getY(), this.getZ() - b.getZ());
+        return this.sub(b, new Vector3d(0.0d, 0.0d, 0.0d));
+    }
+
+    /**
+     * Produces the difference of this and another vector, without allocating a new vector.
+     *
+     * @param b    The vector to subtract from this vector.
+     * @param dest The vector to store the result in, may be this vector or b.
+     * @return The vector dest, which is equal to this vector minus the vector b.
+     */
+    public Vector3d sub(Vector3d b, Vector3d dest) {
+        return dest.set(this.getX() - b.getX(), this.getY() - b.getY(), this.getZ() - b.getZ());
     }
 
     /**
@@ -247,7 +356,18 @@ public class Vector3d {
      * @return A new vector, which is equal to this vector scaled by b.
      */
     public Vector3d scale(double b) {
-        return new Vector3d(this.getX() * b, this.getY() * b, this.getZ() * b);
+        return this.scale(b, new Vector3d(0.0d, 0.0d, 0.0d));
+    }
+
+    /**
+     * Multiplies each of this vector's components with a given scalar, without allocating a new vector.
+     *
+     * @param b    The scalar with which each component of this vector is multiplied.
+     * @param dest The vector to store the result in, may be this vector.
+     * @return The vector dest, which is equal to this vector scaled by b.
+     */
+    public Vector3d scale(double b, Vector3d dest) {
+        return dest.set(this.getX() * b, this.getY() * b, this.getZ() * b);
     }
 
     /**
@@ -267,11 +387,22 @@ public class Vector3d {
      * @return A vector, which is orthogonal to this vector.
      */
     public Vector3d anyOrthogonal() {
+        return this.anyOrthogonal(new Vector3d(0.0d, 0.0d, 0.0d));
+    }
+
+    /**
+     * Produces a vector, which is definitely orthogonal to this vector, without allocating a new vector.
+     * See {@link Vector3d#anyOrthogonal()}.
+     *
+     * @param dest The vector to store the result in, may be this vector.
+     * @return The vector dest, which is orthogonal to this vector.
+     */
+    public Vector3d anyOrthogonal(Vector3d dest) {
         double x = Math.abs(this.getX());
         double y = Math.abs(this.getY());
         double z = Math.abs(this.getZ());
         Vector3d other = x < y ? (x < z ? Vector3d.X_AXIS : Vector3d.Z_AXIS) : (y < z ? Vector3d.Y_AXIS : Vector3d.Z_AXIS);
-        return this.cross(other);
+        return this.cross(other, dest);
     }
 
     /**
@@ -283,7 +414,7 @@ public class Vector3d {
     public String toString(int precision) {
         return String.format(
                 "[ %1$." + precision + "f   %2$." + precision + "f   %3$." + precision + "f ]",
-                this.data[0], this.data[1], this.data[2]);
+                this.x, this.y, this.z);
     }
 
     /**
@@ -1,9 +1,17 @@
 package de.tschebbischeff.model;
 
+import de.tschebbischeff.math.FastTrig;
 import de.tschebbischeff.math.Quat4d;
+import de.tschebbischeff.math.ScratchPool;
 import de.tschebbischeff.math.Vector3d;
 import de.tschebbischeff.model.caches.OrientationCache;
 import de.tschebbischeff.model.caches.PositionCache;
+import de.tschebbischeff.model.ephemeris.SystemSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Models celestial bodies.
@@ -28,6 +36,18 @@ public class CelestialBody {
      * The orbit of this celestial body.
      */
     private Orbit orbit = null;
+    /**
+     * The celestial bodies orbiting this body, in the order they were created.
+     */
+    private ArrayList<CelestialBody> satellites = new ArrayList<>();
+    /**
+     * All orbits around this body, including those without a body moving on them.
+     */
+    ArrayList<Orbit> orbits = new ArrayList<>();
+    /**
+     * The generation of this body, incremented whenever this body or anything it depends on changes.
+     */
+    private long generation = 0L;
     /**
      * The radius of this celestial body.
      */
@@ -67,6 +87,10 @@ public class CelestialBody {
      */
     public CelestialBody(Orbit orbit) {
         this.orbit = orbit;
+        if (orbit != null) {
+            orbit.body = this;
+            orbit.getParentBody().satellites.add(this);
+        }
     }
 
     /**
@@ -78,6 +102,46 @@ public class CelestialBody {
         return this.orbit == null;
     }
 
+    /**
+     * Gets the orbit on which this celestial body moves.
+     *
+     * @return This body's orbit, null if this body is a star.
+     */
+    public Orbit getOrbit() {
+        return this.orbit;
+    }
+
+    /**
+     * Gets the celestial bodies, which directly orbit this body. Satellites of satellites are not included.
+     *
+     * @return An unmodifiable list of this body's satellites, in the order they were created.
+     */
+    public List<CelestialBody> getSatellites() {
+        return Collections.unmodifiableList(this.satellites);
+    }
+
+    /**
+     * Gets the generation of this body. The generation changes whenever a property of this body or anything this
+     * body depends on changes, i.e. its orbit and all bodies and orbits up to the star.
+     * Values derived from this body are valid as long as its generation remains the same.
+     *
+     * @return The current generation of this body.
+     */
+    public long getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Marks all values derived from this body as outdated, including those of all orbits around this body and of
+     * the bodies moving on them.
+     */
+    void invalidate() {
+        this.generation++;
+        for (Orbit orbit : this.orbits) {
+            orbit.invalidate();
+        }
+    }
+
     /**
      * Gets the radius of this celestial body
      *
@@ -102,6 +166,7 @@ public class CelestialBody {
             }
         }
         this.radius = r;
+        this.invalidate();
         return this;
     }
 
@@ -143,6 +208,12 @@ public class CelestialBody {
             }
         }
         this.mass = m;
+        //The sidereal period on this body's own orbit depends on the mass as well
+        if (this.orbit != null) {
+            this.orbit.invalidate();
+        } else {
+            this.invalidate();
+        }
         return this;
     }
 
@@ -163,7 +234,7 @@ public class CelestialBody {
      */
     public CelestialBody setAxisOfRotation(Vector3d a) {
         this.axisOfRotation = a;
-        this.orientationCache.invalidate();
+        this.invalidate();
         return this;
     }
 
@@ -197,6 +268,7 @@ public class CelestialBody {
                 }
             }
             this.orbitalOffset = o;
+            this.invalidate();
         }
         return this;
     }
@@ -228,6 +300,7 @@ public class CelestialBody {
             }
         }
         this.rotationalOffset = r;
+        this.invalidate();
         return this;
     }
 
@@ -248,6 +321,7 @@ public class CelestialBody {
      */
     public CelestialBody setRotationalPeriod(double rotationalPeriod) {
         this.rotationalPeriod = Math.max(0d, rotationalPeriod);
+        this.invalidate();
         return this;
     }
 
@@ -259,15 +333,13 @@ public class CelestialBody {
      * @return This body's global orientation.
      */
     public Quat4d getGlobalOrientation() {
-        if (this.isStar()) {
-            this.orientationCache.parentOrientation = null;
-            this.orientationCache.orientation = new Quat4d(Vector3d.Z_AXIS, this.getAxisOfRotation());
-        } else {
-            Quat4d parentOrientation = this.orbit.getOrbitalPlaneOrientation();
-            if (this.orientationCache.parentOrientation == null || !this.orientationCache.parentOrientation.equals(parentOrientation)) {
-                this.orientationCache.parentOrientation = parentOrientation;
-                this.orientationCache.orientation = new Quat4d(Vector3d.Z_AXIS, this.getAxisOfRotation()).mult(parentOrientation);
+        if (this.orientationCache.generation != this.generation) {
+            Quat4d orientation = new Quat4d(Vector3d.Z_AXIS, this.getAxisOfRotation());
+            if (!this.isStar()) {
+                orientation = orientation.mult(this.orbit.getOrbitalPlaneOrientation());
             }
+            this.orientationCache.orientation = orientation;
+            this.orientationCache.generation = this.generation;
         }
         return this.orientationCache.orientation;
     }
@@ -294,17 +366,58 @@ public class CelestialBody {
      * @return The position of the celestial body in a global coordinate system at the given time.
      */
     public Vector3d getPosition(double time) {
-        if (this.positionCache.argument == null || this.positionCache.argument != time) {
-            this.positionCache.argument = time;
+        if (this.positionCache.generation != this.generation || this.positionCache.argument != time) {
             if (this.orbit != null) {
-                this.positionCache.position = this.orbit.getParentBody().getPosition(time).add(this.orbit.getOrbitalPositionByTrueAnomaly(2 * Math.PI * (time / this.getSiderealPeriod() + this.getOrbitalOffset())));
+                double meanAnomaly = this.orbit.getKernel().getMeanAnomaly(time, this.getOrbitalOffset());
+                this.positionCache.position = this.orbit.getParentBody().getPosition(time).add(this.orbit.getOrbitalPositionByMeanAnomaly(meanAnomaly));
             } else {
                 this.positionCache.position = new Vector3d(0.0d, 0.0d, 0.0d);
             }
+            this.positionCache.argument = time;
+            this.positionCache.generation = this.generation;
         }
         return this.positionCache.position;
     }
 
+    /**
+     * Calculates the positions of this celestial body for a series of times, without allocating objects per sample.
+     * The results equal those of {@link CelestialBody#getPosition(double)}, but bypass the position cache, which
+     * makes this the preferred way to evaluate long time series.
+     *
+     * @param times  The absolute times at which to calculate the positions.
+     * @param outXYZ The buffer to write the positions into as consecutive x, y and z triplets,
+     *               must hold at least three values per time.
+     * @return The buffer outXYZ for fluent method calls.
+     */
+    public double[] getPositions(double[] times, double[] outXYZ) {
+        if (outXYZ.length < 3 * times.length) {
+            throw new IllegalArgumentException("The buffer can not hold " + times.length + " positions.");
+        }
+        Arrays.fill(outXYZ, 0, 3 * times.length, 0.0d);
+        this.addPositions(times, outXYZ, new double[2]);
+        return outXYZ;
+    }
+
+    /**
+     * Adds the positions of this celestial body for a series of times to the positions in the given buffer,
+     * starting with the star and adding the position on each orbit down to this body.
+     *
+     * @param times  The absolute times at which to calculate the positions.
+     * @param outXYZ The buffer containing x, y and z triplets, to which the positions are added.
+     * @param sinCos Scratch space for the sine and cosine of an eccentric anomaly.
+     */
+    private void addPositions(double[] times, double[] outXYZ, double[] sinCos) {
+        if (this.orbit != null) {
+            this.orbit.getParentBody().addPositions(times, outXYZ, sinCos);
+            OrbitKernel kernel = this.orbit.getKernel();
+            double offset = this.getOrbitalOffset();
+            for (int i = 0, o = 0; i < times.length; i++, o += 3) {
+                FastTrig.sincos(this.orbit.getEccentricAnomaly(kernel.getMeanAnomaly(times[i], offset)), sinCos, 0);
+                kernel.addPosition(sinCos[0], sinCos[1], outXYZ, o);
+            }
+        }
+    }
+
     /**
      * Calculates the total orientation of this celestial body including its rotation around itself in a global
      * coordinate system.
@@ -340,6 +453,49 @@ public class CelestialBody {
         return this.getPosition(time).add(Quat4d.identity().yaw(azimuth).pitch(zenith).mult(this.getGlobalRotation(time)).rotateVector(Vector3d.X_AXIS).normalize().scale(this.getRadius()));
     }
 
+    /**
+     * Calculates a series of positions on the surface of this celestial body at one time, without allocating objects
+     * per sample. The results equal those of {@link CelestialBody#getPositionOnSurface(double, double, double)} up
+     * to rounding, but the rotation of the body is only built once and applied to all places at once.
+     *
+     * @param time     The time at which to calculate the positions on the surface.
+     * @param azimuths The azimuth angles of the places on the surface.
+     * @param zeniths  The zenith angles of the places on the surface, one for each azimuth angle.
+     * @param outXYZ   The buffer to write the positions into as consecutive x, y and z triplets,
+     *                 must hold at least three values per place.
+     * @return The buffer outXYZ for fluent method calls.
+     */
+    public double[] getPositionsOnSurface(double time, double[] azimuths, double[] zeniths, double[] outXYZ) {
+        int count = azimuths.length;
+        if (zeniths.length != count) {
+            throw new IllegalArgumentException("The number of azimuth and zenith angles differs.");
+        }
+        if (outXYZ.length < 3 * count) {
+            throw new IllegalArgumentException("The buffer can not hold " + count + " positions.");
+        }
+        ScratchPool scratch = ScratchPool.get().push();
+        try {
+            Quat4d place = scratch.quaternion();
+            Vector3d direction = scratch.vector();
+            for (int i = 0, o = 0; i < count; i++, o += 3) {
+                place.set(1.0d, 0.0d, 0.0d, 0.0d).yaw(azimuths[i], place).pitch(zeniths[i], place);
+                place.rotateVector(Vector3d.X_AXIS, direction).normalize(direction).get(outXYZ, o);
+            }
+        } finally {
+            scratch.pop();
+        }
+        //The rotation of a product is the product of the rotations, so the body's rotation is applied afterwards
+        this.getGlobalRotation(time).rotateVectors(outXYZ, outXYZ, count);
+        Vector3d position = this.getPosition(time);
+        double x = position.getX(), y = position.getY(), z = position.getZ(), radius = this.getRadius();
+        for (int o = 0; o < 3 * count; o += 3) {
+            outXYZ[o] = x + outXYZ[o] * radius;
+            outXYZ[o + 1] = y + outXYZ[o + 1] * radius;
+            outXYZ[o + 2] = z + outXYZ[o + 2] * radius;
+        }
+        return outXYZ;
+    }
+
     /**
      * Gets this body's sidereal period. I.e. the time it needs to revolve once on its orbit.
      *
@@ -349,7 +505,7 @@ public class CelestialBody {
         if (this.orbit == null) {
             return 0.0d;
         } else {
-            return 2 * Math.PI * Math.sqrt((this.orbit.getSemiMajorAxis() * this.orbit.getSemiMajorAxis() * this.orbit.getSemiMajorAxis()) / (Scales.gravitationalConstant() * (this.getMass() + this.orbit.getParentBody().getMass())));
+            return this.orbit.getKernel().getSiderealPeriod();
         }
     }
 
@@ -362,4 +518,14 @@ public class CelestialBody {
         return this.isStar() ? this : this.orbit.getSystemStar();
     }
 
+    /**
+     * Takes an immutable snapshot of the system this body belongs to, which can be queried from several threads
+     * in parallel. The model itself is not thread-safe, so this must be called on the thread which modifies it.
+     *
+     * @return A new snapshot of this body's system.
+     */
+    public SystemSnapshot createSnapshot() {
+        return new SystemSnapshot(this);
+    }
+
 }
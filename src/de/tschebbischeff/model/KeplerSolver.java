@@ -0,0 +1,273 @@
+package de.tschebbischeff.model;
+
+import de.tschebbischeff.math.FastTrig;
+
+/**
+ * Converts between the mean, eccentric and true anomaly of an elliptic orbit.
+ * The mean anomaly grows linearly with time, while the eccentric anomaly parameterizes the position on the ellipse.
+ * Kepler's equation M = E - e * sin(E) links both and is solved with Halley's method. All angles are in radians.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class KeplerSolver {
+
+    /**
+     * The maximum number of Halley iterations. Starting from the initial guess, almost all solutions converge
+     * within four iterations for eccentricities in [0, 0.99], none needed more than seven.
+     */
+    private static final int MAX_ITERATIONS = 8;
+    /**
+     * The step width below which the iteration is considered converged. As the convergence is cubic, the remaining
+     * error after such a step is far below double precision.
+     */
+    private static final double TOLERANCE = 1.0e-12d;
+    /**
+     * The residual of Kepler's equation, relative to its derivative, below which the anomaly is considered exact.
+     * This avoids a final iteration, which would only confirm the convergence.
+     */
+    private static final double RESIDUAL = 4.0e-15d;
+    /**
+     * The step width below which sine and cosine of the anomaly are updated with their angle addition theorems.
+     * The series of sine and cosine of the step, truncated after the tenth order, are then exact to double precision.
+     */
+    private static final double SMALL_STEP = 0.1d;
+    /**
+     * The step width below which the series of sine and cosine of the step can already be truncated after the fourth
+     * order.
+     */
+    private static final double TINY_STEP = 1.0e-4d;
+
+    /**
+     * Solves Kepler's equation for the eccentric anomaly.
+     *
+     * @param meanAnomaly  The mean anomaly.
+     * @param eccentricity The eccentricity of the orbit, in the interval [0,1).
+     * @return The eccentric anomaly, in the same revolution as the mean anomaly.
+     */
+    public static double eccentricAnomaly(double meanAnomaly, double eccentricity) {
+        if (eccentricity == 0.0d) {
+            return meanAnomaly;
+        }
+        return eccentricAnomaly(meanAnomaly, eccentricity, null, 0);
+    }
+
+    /**
+     * Solves Kepler's equation for the eccentric anomaly and additionally provides its sine and cosine.
+     * Both are tracked during the iteration anyway, so callers which need them save two trigonometric functions.
+     * They match Math.sin and Math.cos of the result up to a few units in the last place.
+     *
+     * @param meanAnomaly  The mean anomaly.
+     * @param eccentricity The eccentricity of the orbit, in the interval [0,1).
+     * @param sinCos       The buffer to write the sine and cosine of the eccentric anomaly into, may be null.
+     * @param offset       The index in the buffer at which the sine is written, the cosine is written after it.
+     * @return The eccentric anomaly, in the same revolution as the mean anomaly.
+     */
+    public static double eccentricAnomaly(double meanAnomaly, double eccentricity, double[] sinCos, int offset) {
+        double revolutions = 2 * Math.PI * Math.floor((meanAnomaly + Math.PI) / (2 * Math.PI));
+        double m = meanAnomaly - revolutions;
+        double anomaly = m;
+        double sin = FastTrig.sin(m);
+        double cos = FastTrig.cos(m);
+        //The initial guess is the first step, it is exact to third order in the eccentricity
+        double step = eccentricity > 0.8d ? -0.85d * eccentricity * Math.signum(sin) : -eccentricity * sin * (1.0d + eccentricity * cos);
+        for (int i = 0; i <= MAX_ITERATIONS; i++) {
+            anomaly -= step;
+            if (Math.abs(step) < TINY_STEP) {
+                //Rotate sine and cosine by the step instead of evaluating them again
+                double step2 = step * step;
+                double stepSin = step * (1.0d - step2 * (1.0d / 6.0d));
+                double stepCos = 1.0d - step2 * (0.5d - step2 * (1.0d / 24.0d));
+                double rotated = sin * stepCos - cos * stepSin;
+                cos = cos * stepCos + sin * stepSin;
+                sin = rotated;
+            } else if (Math.abs(step) < SMALL_STEP) {
+                double step2 = step * step;
+                double stepSin = step * (1.0d - step2 * (1.0d / 6.0d) * (1.0d - step2 * (1.0d / 20.0d) * (1.0d - step2 * (1.0d / 42.0d) * (1.0d - step2 * (1.0d / 72.0d)))));
+                double stepCos = 1.0d - step2 * 0.5d * (1.0d - step2 * (1.0d / 12.0d) * (1.0d - step2 * (1.0d / 30.0d) * (1.0d - step2 * (1.0d / 56.0d) * (1.0d - step2 * (1.0d / 90.0d)))));
+                double rotated = sin * stepCos - cos * stepSin;
+                cos = cos * stepCos + sin * stepSin;
+                sin = rotated;
+            } else {
+                sin = FastTrig.sin(anomaly);
+                cos = FastTrig.cos(anomaly);
+            }
+            if (Math.abs(step) < TOLERANCE) {
+                break;
+            }
+            double f = anomaly - eccentricity * sin - m;
+            double df = 1.0d - eccentricity * cos;
+            if (Math.abs(f) < RESIDUAL * df) {
+                break;
+            }
+            step = f * df / (df * df - 0.5d * f * eccentricity * sin);
+        }
+        if (sinCos != null) {
+            sinCos[offset] = sin;
+            sinCos[offset + 1] = cos;
+        }
+        return anomaly + revolutions;
+    }
+
+    /**
+     * Solves Kepler's equation for the difference between the eccentric and the mean anomaly, without evaluating any
+     * trigonometric function. Sine and cosine of the mean anomaly must be known, e.g. because they are advanced by
+     * a constant angle each step, and a guess of the difference may be provided from a previous solution. Sine and
+     * cosine of the eccentric anomaly follow by the angle addition theorems from those of the mean anomaly and
+     * series of the difference, which never exceeds the eccentricity.
+     * <p>
+     * A guess outside of [-e, e] is ignored. If Halley's method does not converge from the guess, which happens when
+     * the mean anomaly changed too much since the previous solution on an eccentric orbit, it is restarted from the
+     * initial guess, so the result does not depend on the quality of the guess.
+     *
+     * @param sinM         The sine of the mean anomaly.
+     * @param cosM         The cosine of the mean anomaly.
+     * @param eccentricity The eccentricity of the orbit, in the interval [0,1).
+     * @param guess        The guess of the difference, NaN to start from an initial guess of the mean anomaly.
+     * @param sinCos       The buffer to write the sine and cosine of the eccentric anomaly into.
+     * @param offset       The index in the buffer at which the sine is written, the cosine is written after it.
+     * @return The difference between the eccentric and the mean anomaly.
+     */
+    public static double anomalyDifference(double sinM, double cosM, double eccentricity, double guess, double[] sinCos, int offset) {
+        //The difference never exceeds the eccentricity, a guess outside of that can only be stale
+        boolean guessed = Math.abs(guess) <= eccentricity;
+        double delta = guessed ? guess : initialDifference(sinM, cosM, eccentricity);
+        double sin = sinM, cos = cosM;
+        boolean converged = false;
+        while (!converged) {
+            for (int i = 0; i <= MAX_ITERATIONS; i++) {
+                double stepSin = smallSin(delta), stepCos = smallCos(delta);
+                sin = sinM * stepCos + cosM * stepSin;
+                cos = cosM * stepCos - sinM * stepSin;
+                double step = halleyStep(delta, eccentricity, sin, cos);
+                if (Math.abs(step) < TOLERANCE) {
+                    converged = true;
+                    break;
+                }
+                //Keeps the difference within the interval of the solution, where the series of sine and cosine hold
+                delta = Math.max(-eccentricity, Math.min(eccentricity, delta - step));
+            }
+            if (!converged && guessed) {
+                //The guess was too far off, e.g. after a large step on an eccentric orbit, so start over
+                guessed = false;
+                delta = initialDifference(sinM, cosM, eccentricity);
+            } else {
+                converged = true;
+            }
+        }
+        sinCos[offset] = sin;
+        sinCos[offset + 1] = cos;
+        return delta;
+    }
+
+    /**
+     * Calculates a step of Halley's method for Kepler's equation, which converges cubically.
+     *
+     * @param delta        The current difference between the eccentric and the mean anomaly.
+     * @param eccentricity The eccentricity.
+     * @param sin          The sine of the current eccentric anomaly.
+     * @param cos          The cosine of the current eccentric anomaly.
+     * @return The step to subtract from the difference.
+     */
+    static double halleyStep(double delta, double eccentricity, double sin, double cos) {
+        double f = delta - eccentricity * sin;
+        double slope = 1.0d - eccentricity * cos;
+        return 2.0d * f * slope / (2.0d * slope * slope - f * eccentricity * sin);
+    }
+
+    /**
+     * Calculates the initial guess of the difference between the eccentric and the mean anomaly for Halley's method.
+     * The guess is exact to second order in the eccentricity and bounded by it, so Halley's method converges for all
+     * elliptic orbits.
+     *
+     * @param sinM         The sine of the mean anomaly.
+     * @param cosM         The cosine of the mean anomaly.
+     * @param eccentricity The eccentricity.
+     * @return The initial guess.
+     */
+    static double initialDifference(double sinM, double cosM, double eccentricity) {
+        return eccentricity * sinM / Math.sqrt(1.0d - 2.0d * eccentricity * cosM + eccentricity * eccentricity);
+    }
+
+    /**
+     * Calculates the sine of a small angle by its Taylor series. The eccentric anomaly never differs from the mean
+     * anomaly by more than the eccentricity, so the angle is at most one, for which the error stays below 1e-17.
+     *
+     * @param x The angle, in [-1, 1].
+     * @return The sine of the angle.
+     */
+    static double smallSin(double x) {
+        double x2 = x * x;
+        return x * (1.0d + x2 * (-1.0d / 6.0d + x2 * (1.0d / 120.0d + x2 * (-1.0d / 5040.0d + x2 * (1.0d / 362880.0d
+                + x2 * (-1.0d / 39916800.0d + x2 * (1.0d / 6227020800.0d + x2 * (-1.0d / 1307674368000.0d
+                + x2 * (1.0d / 355687428096000.0d)))))))));
+    }
+
+    /**
+     * Calculates the cosine of a small angle by its Taylor series, see {@link KeplerSolver#smallSin(double)}.
+     *
+     * @param x The angle, in [-1, 1].
+     * @return The cosine of the angle.
+     */
+    static double smallCos(double x) {
+        double x2 = x * x;
+        return 1.0d + x2 * (-1.0d / 2.0d + x2 * (1.0d / 24.0d + x2 * (-1.0d / 720.0d + x2 * (1.0d / 40320.0d
+                + x2 * (-1.0d / 3628800.0d + x2 * (1.0d / 479001600.0d + x2 * (-1.0d / 87178291200.0d
+                + x2 * (1.0d / 20922789888000.0d + x2 * (-1.0d / 6402373705728000.0d)))))))));
+    }
+
+    /**
+     * Calculates the true anomaly for a given mean anomaly.
+     *
+     * @param meanAnomaly  The mean anomaly.
+     * @param eccentricity The eccentricity of the orbit, in the interval [0,1).
+     * @return The true anomaly, in the same revolution as the mean anomaly.
+     */
+    public static double trueAnomaly(double meanAnomaly, double eccentricity) {
+        return trueAnomalyFromEccentric(eccentricAnomaly(meanAnomaly, eccentricity), eccentricity);
+    }
+
+    /**
+     * Calculates the mean anomaly for a given eccentric anomaly.
+     *
+     * @param eccentricAnomaly The eccentric anomaly.
+     * @param eccentricity     The eccentricity of the orbit, in the interval [0,1).
+     * @return The mean anomaly.
+     */
+    public static double meanAnomalyFromEccentric(double eccentricAnomaly, double eccentricity) {
+        return eccentricAnomaly - eccentricity * Math.sin(eccentricAnomaly);
+    }
+
+    /**
+     * Calculates the true anomaly for a given eccentric anomaly.
+     *
+     * @param eccentricAnomaly The eccentric anomaly.
+     * @param eccentricity     The eccentricity of the orbit, in the interval [0,1).
+     * @return The true anomaly, in the same revolution as the eccentric anomaly.
+     */
+    public static double trueAnomalyFromEccentric(double eccentricAnomaly, double eccentricity) {
+        if (eccentricity == 0.0d) {
+            return eccentricAnomaly;
+        }
+        double revolutions = 2 * Math.PI * Math.floor((eccentricAnomaly + Math.PI) / (2 * Math.PI));
+        double half = 0.5d * (eccentricAnomaly - revolutions);
+        return 2.0d * Math.atan2(Math.sqrt(1.0d + eccentricity) * Math.sin(half), Math.sqrt(1.0d - eccentricity) * Math.cos(half)) + revolutions;
+    }
+
+    /**
+     * Calculates the eccentric anomaly for a given true anomaly.
+     *
+     * @param trueAnomaly  The true anomaly.
+     * @param eccentricity The eccentricity of the orbit, in the interval [0,1).
+     * @return The eccentric anomaly, in the same revolution as the true anomaly.
+     */
+    public static double eccentricAnomalyFromTrue(double trueAnomaly, double eccentricity) {
+        if (eccentricity == 0.0d) {
+            return trueAnomaly;
+        }
+        double revolutions = 2 * Math.PI * Math.floor((trueAnomaly + Math.PI) / (2 * Math.PI));
+        double half = 0.5d * (trueAnomaly - revolutions);
+        return 2.0d * Math.atan2(Math.sqrt(1.0d - eccentricity) * Math.sin(half), Math.sqrt(1.0d + eccentricity) * Math.cos(half)) + revolutions;
+    }
+
+}
@@ -0,0 +1,98 @@
+package de.tschebbischeff.model;
+
+/**
+ * Lookup table for the solution of Kepler's equation for a single eccentricity.
+ * The eccentric anomaly is sampled on evenly spaced mean anomalies over one revolution and interpolated with cubic
+ * Hermite splines, using the exact derivative dE/dM = 1 / (1 - e * cos(E)) at the samples.
+ * A lookup therefore costs no trigonometric function at all. The interpolation error decreases with the fourth power
+ * of the resolution, but grows quickly with the eccentricity. With 1024 intervals it stays below 1e-11 radians for
+ * eccentricities up to 0.3, below 1e-7 radians up to 0.8 and reaches 2e-6 radians at 0.9. Beyond that the
+ * interpolation breaks down close to the periapsis, the error reaches 1e-4 radians at 0.95, 1e-3 radians at 0.97
+ * and 0.76 radians at 0.999. Orbits therefore only use a table up to {@value #MAX_ECCENTRICITY}, see
+ * {@link Orbit#getKeplerTable()}. Use {@link KeplerSolver} where full precision is required.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class KeplerTable {
+
+    /**
+     * The largest eccentricity for which orbits use a table, above it Kepler's equation is solved iteratively.
+     */
+    public static final double MAX_ECCENTRICITY = 0.9d;
+
+    /**
+     * The eccentricity this table was built for.
+     */
+    private final double eccentricity;
+    /**
+     * The number of intervals the revolution is divided into.
+     */
+    private final int resolution;
+    /**
+     * The eccentric anomalies at the samples, one more than the resolution to close the revolution.
+     */
+    private final double[] anomalies;
+    /**
+     * The derivatives dE/dM at the samples, scaled by the width of an interval.
+     */
+    private final double[] slopes;
+
+    /**
+     * Builds a new lookup table.
+     *
+     * @param eccentricity The eccentricity of the orbit, in the interval [0,1).
+     * @param resolution   The number of intervals to divide a revolution into. The minimum value is 16.
+     */
+    public KeplerTable(double eccentricity, int resolution) {
+        this.eccentricity = eccentricity;
+        this.resolution = Math.max(16, resolution);
+        this.anomalies = new double[this.resolution + 1];
+        this.slopes = new double[this.resolution + 1];
+        double width = 2 * Math.PI / this.resolution;
+        for (int i = 0; i <= this.resolution; i++) {
+            double anomaly = KeplerSolver.eccentricAnomaly(i * width, eccentricity);
+            this.anomalies[i] = anomaly;
+            this.slopes[i] = width / (1.0d - eccentricity * Math.cos(anomaly));
+        }
+    }
+
+    /**
+     * Gets the eccentricity this table was built for.
+     *
+     * @return The eccentricity of this table.
+     */
+    public double getEccentricity() {
+        return this.eccentricity;
+    }
+
+    /**
+     * Gets the number of intervals a revolution is divided into.
+     *
+     * @return The resolution of this table.
+     */
+    public int getResolution() {
+        return this.resolution;
+    }
+
+    /**
+     * Looks up the eccentric anomaly for a given mean anomaly.
+     *
+     * @param meanAnomaly The mean anomaly, in radians.
+     * @return The interpolated eccentric anomaly, in the same revolution as the mean anomaly.
+     */
+    public double eccentricAnomaly(double meanAnomaly) {
+        double revolutions = 2 * Math.PI * Math.floor(meanAnomaly / (2 * Math.PI));
+        double position = (meanAnomaly - revolutions) * (this.resolution / (2 * Math.PI));
+        int index = Math.min(this.resolution - 1, (int) position);
+        double t = position - index;
+        double t2 = t * t;
+        double t3 = t2 * t;
+        return (2.0d * t3 - 3.0d * t2 + 1.0d) * this.anomalies[index]
+                + (t3 - 2.0d * t2 + t) * this.slopes[index]
+                + (3.0d * t2 - 2.0d * t3) * this.anomalies[index + 1]
+                + (t3 - t2) * this.slopes[index + 1]
+                + revolutions;
+    }
+
+}
@@ -1,10 +1,13 @@
 package de.tschebbischeff.model;
 
+import de.tschebbischeff.math.FastTrig;
 import de.tschebbischeff.math.Quat4d;
 import de.tschebbischeff.math.Vector3d;
 import de.tschebbischeff.model.caches.OrientationCache;
 import de.tschebbischeff.model.caches.PositionCache;
 
+import java.util.Arrays;
+
 /**
  * Models any orbit around a given central celestial body.
  * All angles are stored in radians. Setters and Getters return degrees however.
@@ -28,6 +31,14 @@ public class Orbit {
      * The celestial body at the center of the orbit.
      */
     private CelestialBody parent = null;
+    /**
+     * The celestial body moving on this orbit, null if no body was created on it yet.
+     */
+    CelestialBody body = null;
+    /**
+     * The generation of this orbit, incremented whenever this orbit or anything it depends on changes.
+     */
+    private long generation = 0L;
     /**
      * The orbits eccentricity.
      */
@@ -48,6 +59,22 @@ public class Orbit {
      * The argument of periapsis of the orbit.
      */
     private double argumentOfPeriapsis = 0.0d;
+    /**
+     * The number of intervals of the Kepler lookup table, zero if Kepler's equation is solved iteratively.
+     */
+    private int keplerTableResolution = 0;
+    /**
+     * The lookup table for Kepler's equation, built on first use.
+     */
+    private KeplerTable keplerTable = null;
+    /**
+     * The constants derived from the elements of this orbit, built on first use.
+     */
+    private OrbitKernel kernel = null;
+    /**
+     * The generation of this orbit, with which the kernel was built.
+     */
+    private long kernelGeneration = -1L;
 
     /**
      * Creates a new orbit around a given celestial body.
@@ -56,6 +83,7 @@ public class Orbit {
      */
     public Orbit(CelestialBody parent) {
         this.parent = parent;
+        parent.orbits.add(this);
     }
 
     /**
@@ -82,6 +110,8 @@ public class Orbit {
             }
         }
         this.eccentricity = e;
+        this.keplerTable = null;
+        this.invalidate();
         return this;
     }
 
@@ -110,6 +140,7 @@ public class Orbit {
             }
         }
         this.semiMajorAxis = a;
+        this.invalidate();
         return this;
     }
 
@@ -139,7 +170,7 @@ public class Orbit {
      */
     public Orbit setInclination(double inclination) {
         this.inclination = Math.toRadians(inclination % 360.0d);
-        this.orientationCache.invalidate();
+        this.invalidate();
         return this;
     }
 
@@ -162,7 +193,7 @@ public class Orbit {
      */
     public Orbit setLongitudeOfAscendingNode(double longitudeOfAscendingNode) {
         this.longitudeOfAscendingNode = Math.toRadians(longitudeOfAscendingNode % 360.0d);
-        this.orientationCache.invalidate();
+        this.invalidate();
         return this;
     }
 
@@ -186,6 +217,7 @@ public class Orbit {
      */
     public Orbit setArgumentOfPeriapsis(double argumentOfPeriapsis) {
         this.argumentOfPeriapsis = Math.toRadians(argumentOfPeriapsis % 360.0d);
+        this.invalidate();
         return this;
     }
 
@@ -195,36 +227,166 @@ public class Orbit {
      * @return The orientation of this orbit's plane.
      */
     public Quat4d getOrbitalPlaneOrientation() {
-        Quat4d parentOrientation = this.parent.getGlobalOrientation();
-        if (this.orientationCache.parentOrientation == null || !this.orientationCache.parentOrientation.equals(parentOrientation)) {
+        if (this.orientationCache.generation != this.generation) {
             Quat4d orbitalRotation = Quat4d.identity().yaw(-this.getLongitudeOfAscendingNode()).pitch(this.getInclination()).yaw(-this.getArgumentOfPeriapsis());
-            this.orientationCache.parentOrientation = parentOrientation;
-            this.orientationCache.orientation = orbitalRotation.mult(parentOrientation);
+            this.orientationCache.orientation = orbitalRotation.mult(this.parent.getGlobalOrientation());
+            this.orientationCache.generation = this.generation;
         }
         return this.orientationCache.orientation;
     }
 
+    /**
+     * Gets the constants derived from the elements of this orbit, which are needed to calculate positions on it.
+     * The kernel is rebuilt whenever an element of this orbit, the mass of the parent or orbiting body or the
+     * orientation of the parent body changed.
+     *
+     * @return The current kernel of this orbit.
+     */
+    public OrbitKernel getKernel() {
+        if (this.kernelGeneration != this.generation) {
+            double mass = this.parent.getMass() + (this.body != null ? this.body.getMass() : 0.0d);
+            this.kernel = new OrbitKernel(this, this.getOrbitalPlaneOrientation(), mass);
+            this.kernelGeneration = this.generation;
+        }
+        return this.kernel;
+    }
+
+    /**
+     * Gets the generation of this orbit. The generation changes whenever an element of this orbit or anything this
+     * orbit depends on changes, i.e. the parent body and its own orbit up to the star.
+     * Values derived from this orbit are valid as long as its generation remains the same.
+     *
+     * @return The current generation of this orbit.
+     */
+    public long getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Marks all values derived from this orbit as outdated, including those of the body moving on it and of all
+     * bodies depending on that body.
+     */
+    void invalidate() {
+        this.generation++;
+        if (this.body != null) {
+            this.body.invalidate();
+        }
+    }
+
+    /**
+     * Gets the resolution of the Kepler lookup table of this orbit, see {@link Orbit#setKeplerTableResolution(int)}.
+     *
+     * @return The number of intervals of the lookup table, zero if no table is used.
+     */
+    public int getKeplerTableResolution() {
+        return this.keplerTableResolution;
+    }
+
+    /**
+     * Sets the resolution of the lookup table, which is used to solve Kepler's equation for this orbit.
+     * A table trades precision for speed, see {@link KeplerTable} for its accuracy. By default no table is used and
+     * Kepler's equation is solved iteratively to full precision. Above an eccentricity of
+     * {@value KeplerTable#MAX_ECCENTRICITY} the table would be too inaccurate, so the resolution is ignored and
+     * Kepler's equation is always solved iteratively.
+     *
+     * @param resolution The number of intervals of the lookup table, zero to solve Kepler's equation iteratively.
+     * @return This orbit for fluent method calls.
+     */
+    public Orbit setKeplerTableResolution(int resolution) {
+        this.keplerTableResolution = Math.max(0, resolution);
+        this.keplerTable = null;
+        this.invalidate();
+        return this;
+    }
+
+    /**
+     * Gets the lookup table used to solve Kepler's equation for this orbit. The table is built on first use.
+     *
+     * @return The lookup table of this orbit, or null if Kepler's equation is solved iteratively, which is always the
+     * case above an eccentricity of {@value KeplerTable#MAX_ECCENTRICITY}.
+     */
+    public KeplerTable getKeplerTable() {
+        if (this.eccentricity > KeplerTable.MAX_ECCENTRICITY) {
+            return null;
+        }
+        if (this.keplerTable == null && this.keplerTableResolution > 0) {
+            this.keplerTable = new KeplerTable(this.eccentricity, this.keplerTableResolution);
+        }
+        return this.keplerTable;
+    }
+
+    /**
+     * Calculates the eccentric anomaly on this orbit for a given mean anomaly, by solving Kepler's equation.
+     *
+     * @param meanAnomaly The mean anomaly, in radians.
+     * @return The corresponding eccentric anomaly, in radians.
+     */
+    public double getEccentricAnomaly(double meanAnomaly) {
+        KeplerTable table = this.getKeplerTable();
+        return table != null ? table.eccentricAnomaly(meanAnomaly) : KeplerSolver.eccentricAnomaly(meanAnomaly, this.eccentricity);
+    }
+
+    /**
+     * Returns a position in three dimensional space on this orbit, defined by the mean anomaly.
+     * The mean anomaly grows linearly with time, so sampling it evenly obeys Kepler's second law.
+     *
+     * @param meanAnomaly The fraction of the orbital period passed since the periapsis, as an angle in radians.
+     * @return The position as a three dimensional vector, corresponding to that angle.
+     */
+    public Vector3d getOrbitalPositionByMeanAnomaly(double meanAnomaly) {
+        return this.getOrbitalPositionByEccentricAnomaly(this.getEccentricAnomaly(meanAnomaly));
+    }
+
     /**
      * Returns a position in three dimensional space on this orbit, defined by the true anomaly.
      *
-     * @param trueAnomaly The angle between the periapsis and the current position on the orbit, in degrees.
+     * @param trueAnomaly The angle between the periapsis and the current position on the orbit, in radians.
      * @return The position as a three dimensional vector, corresponding to that angle.
      */
     public Vector3d getOrbitalPositionByTrueAnomaly(double trueAnomaly) {
-        if (this.positionCache.argument == null || this.positionCache.argument != trueAnomaly) {
-            this.positionCache.argument = trueAnomaly;
-            //Local coordinate system calculations
-            double major = this.getSemiMajorAxis();
-            double minor = this.getSemiMinorAxis();
-            //Vector3d orbitalPosition = new Vector3d(major * Math.cos(trueAnomaly), minor * Math.sin(trueAnomaly), 0.0d);
-            Vector3d orbitalPosition = new Vector3d(minor * Math.sin(trueAnomaly), -major * Math.cos(trueAnomaly), 0.0d);
-            Vector3d focusPosition = Vector3d.Y_AXIS_NEG.scale(Math.sqrt(major * major - minor * minor));
-            //Transform positions to global coordinate system...
-            this.positionCache.position = this.getOrbitalPlaneOrientation().rotateVector(orbitalPosition.sub(focusPosition));
+        return this.getOrbitalPositionByEccentricAnomaly(KeplerSolver.eccentricAnomalyFromTrue(trueAnomaly, this.eccentricity));
+    }
+
+    /**
+     * Returns a position in three dimensional space on this orbit, defined by the eccentric anomaly.
+     *
+     * @param eccentricAnomaly The angle between the periapsis and the current position on the orbit, measured from
+     *                         the center of the ellipse and projected onto its circumscribed circle, in radians.
+     * @return The position as a three dimensional vector, corresponding to that angle.
+     */
+    public Vector3d getOrbitalPositionByEccentricAnomaly(double eccentricAnomaly) {
+        if (this.positionCache.generation != this.generation || this.positionCache.argument != eccentricAnomaly) {
+            this.positionCache.position = this.getKernel().getPosition(eccentricAnomaly);
+            this.positionCache.argument = eccentricAnomaly;
+            this.positionCache.generation = this.generation;
         }
         return this.positionCache.position;
     }
 
+    /**
+     * Calculates the positions on this orbit for a series of true anomalies, without allocating objects per sample.
+     * The results equal those of {@link Orbit#getOrbitalPositionByTrueAnomaly(double)}, but the orientation of the
+     * orbital plane is only looked up once for all samples.
+     *
+     * @param anomalies The true anomalies for which to calculate the positions, in radians.
+     * @param out       The buffer to write the positions into as consecutive x, y and z triplets,
+     *                  must hold at least three values per anomaly.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] getOrbitalPositionsByTrueAnomaly(double[] anomalies, double[] out) {
+        if (out.length < 3 * anomalies.length) {
+            throw new IllegalArgumentException("The buffer can not hold " + anomalies.length + " positions.");
+        }
+        OrbitKernel kernel = this.getKernel();
+        double[] sinCos = new double[2];
+        Arrays.fill(out, 0, 3 * anomalies.length, 0.0d);
+        for (int i = 0, o = 0; i < anomalies.length; i++, o += 3) {
+            FastTrig.sincos(KeplerSolver.eccentricAnomalyFromTrue(anomalies[i], this.eccentricity), sinCos, 0);
+            kernel.addPosition(sinCos[0], sinCos[1], out, o);
+        }
+        return out;
+    }
+
     /**
      * Gets the star, which is the basis of this orbit and its hierarchy.
      *
@@ -0,0 +1,201 @@
+package de.tschebbischeff.model;
+
+import de.tschebbischeff.math.FastTrig;
+import de.tschebbischeff.math.Quat4d;
+import de.tschebbischeff.math.Vector3d;
+
+/**
+ * Holds the constants derived from the elements of an orbit, which are needed to calculate positions on it.
+ * A kernel is built by its {@link Orbit} whenever the orbit, the masses of the involved bodies or the orientation
+ * of the parent body changed, so evaluating a position only costs a few multiplications and additions.
+ * The sidereal period depends on the gravitational constant, so the scales must not be changed after the kernel
+ * was built.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class OrbitKernel {
+
+    /**
+     * The orientation of the orbital plane this kernel was built with.
+     */
+    private final Quat4d orientation;
+    /**
+     * The semi major axis of the orbit.
+     */
+    private final double semiMajorAxis;
+    /**
+     * The semi minor axis of the orbit.
+     */
+    private final double semiMinorAxis;
+    /**
+     * The distance between the center and the focus of the orbit, sqrt(a^2 - b^2).
+     */
+    private final double focusDistance;
+    /**
+     * The eccentricity of the orbit.
+     */
+    private final double eccentricity;
+    /**
+     * The time the orbiting body needs for one revolution.
+     */
+    private final double siderealPeriod;
+    /**
+     * The mean anomaly the orbiting body advances per unit of time, 2 * PI / siderealPeriod.
+     */
+    private final double meanMotion;
+    /**
+     * The rotation matrix of the orbital plane, named by row and column.
+     */
+    private final double m00, m01, m02, m10, m11, m12, m20, m21, m22;
+
+    /**
+     * Builds the kernel of an orbit.
+     *
+     * @param orbit       The orbit to build the kernel for.
+     * @param orientation The orientation of the orbital plane.
+     * @param mass        The sum of the masses of the orbiting and the parent body.
+     */
+    OrbitKernel(Orbit orbit, Quat4d orientation, double mass) {
+        this.orientation = orientation;
+        this.semiMajorAxis = orbit.getSemiMajorAxis();
+        this.semiMinorAxis = orbit.getSemiMinorAxis();
+        this.focusDistance = Math.sqrt(this.semiMajorAxis * this.semiMajorAxis - this.semiMinorAxis * this.semiMinorAxis);
+        this.eccentricity = orbit.getEccentricity();
+        this.siderealPeriod = 2 * Math.PI * Math.sqrt((this.semiMajorAxis * this.semiMajorAxis * this.semiMajorAxis) / (Scales.gravitationalConstant() * mass));
+        this.meanMotion = 2 * Math.PI / this.siderealPeriod;
+        double[][] rotation = orientation.toRotationMatrix().getData();
+        this.m00 = rotation[0][0];
+        this.m01 = rotation[1][0];
+        this.m02 = rotation[2][0];
+        this.m10 = rotation[0][1];
+        this.m11 = rotation[1][1];
+        this.m12 = rotation[2][1];
+        this.m20 = rotation[0][2];
+        this.m21 = rotation[1][2];
+        this.m22 = rotation[2][2];
+    }
+
+    /**
+     * Gets the orientation of the orbital plane this kernel was built with.
+     *
+     * @return The orientation of the orbital plane.
+     */
+    public Quat4d getOrientation() {
+        return this.orientation;
+    }
+
+    /**
+     * Gets the semi major axis of the orbit.
+     *
+     * @return The semi major axis.
+     */
+    public double getSemiMajorAxis() {
+        return this.semiMajorAxis;
+    }
+
+    /**
+     * Gets the semi minor axis of the orbit.
+     *
+     * @return The semi minor axis.
+     */
+    public double getSemiMinorAxis() {
+        return this.semiMinorAxis;
+    }
+
+    /**
+     * Gets the distance between the center and the focus of the orbit.
+     *
+     * @return The distance of the focus from the center.
+     */
+    public double getFocusDistance() {
+        return this.focusDistance;
+    }
+
+    /**
+     * Gets the eccentricity of the orbit.
+     *
+     * @return The eccentricity.
+     */
+    public double getEccentricity() {
+        return this.eccentricity;
+    }
+
+    /**
+     * Gets the time the orbiting body needs for one revolution.
+     *
+     * @return The sidereal period.
+     */
+    public double getSiderealPeriod() {
+        return this.siderealPeriod;
+    }
+
+    /**
+     * Gets the mean anomaly the orbiting body advances per unit of time.
+     *
+     * @return The mean motion, in radians per unit of time.
+     */
+    public double getMeanMotion() {
+        return this.meanMotion;
+    }
+
+    /**
+     * Gets the rotation matrix of the orbital plane.
+     *
+     * @param out The buffer to write the nine values of the matrix into, row-first.
+     * @param offset The index in the buffer at which the first value is written.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] getRotation(double[] out, int offset) {
+        out[offset] = this.m00;
+        out[offset + 1] = this.m01;
+        out[offset + 2] = this.m02;
+        out[offset + 3] = this.m10;
+        out[offset + 4] = this.m11;
+        out[offset + 5] = this.m12;
+        out[offset + 6] = this.m20;
+        out[offset + 7] = this.m21;
+        out[offset + 8] = this.m22;
+        return out;
+    }
+
+    /**
+     * Calculates the mean anomaly of the orbiting body at a given time.
+     *
+     * @param time   The absolute time.
+     * @param offset The orbital offset of the body, see {@link CelestialBody#setOrbitalOffset(double)}.
+     * @return The mean anomaly, in radians.
+     */
+    public double getMeanAnomaly(double time, double offset) {
+        return this.meanMotion * time + 2 * Math.PI * offset;
+    }
+
+    /**
+     * Calculates the position on the orbit, relative to the parent body.
+     *
+     * @param eccentricAnomaly The eccentric anomaly of the position, in radians.
+     * @return The position as a new vector.
+     */
+    public Vector3d getPosition(double eccentricAnomaly) {
+        double x = this.semiMinorAxis * FastTrig.sin(eccentricAnomaly);
+        double y = this.focusDistance - this.semiMajorAxis * FastTrig.cos(eccentricAnomaly);
+        return new Vector3d(this.m00 * x + this.m01 * y, this.m10 * x + this.m11 * y, this.m20 * x + this.m21 * y);
+    }
+
+    /**
+     * Adds the position on the orbit, relative to the parent body, to a position in the given buffer.
+     *
+     * @param sin    The sine of the eccentric anomaly of the position.
+     * @param cos    The cosine of the eccentric anomaly of the position.
+     * @param out    The buffer containing the position to add to.
+     * @param offset The index of the x-coordinate of that position in the buffer.
+     */
+    public void addPosition(double sin, double cos, double[] out, int offset) {
+        double x = this.semiMinorAxis * sin;
+        double y = this.focusDistance - this.semiMajorAxis * cos;
+        out[offset] += this.m00 * x + this.m01 * y;
+        out[offset + 1] += this.m10 * x + this.m11 * y;
+        out[offset + 2] += this.m20 * x + this.m21 * y;
+    }
+
+}
@@ -0,0 +1,389 @@
+package de.tschebbischeff.model;
+
+import de.tschebbischeff.math.FastTrig;
+import de.tschebbischeff.math.Quat4d;
+import de.tschebbischeff.math.TransformKernels;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Models a large number of massless particles on Keplerian orbits around a common parent body, such as an asteroid
+ * belt or a debris ring. Unlike a {@link CelestialBody} on an {@link Orbit}, a particle is no object but a column
+ * entry of a few primitive arrays, holding only what is needed to evaluate its position: two axes of its orbit,
+ * rotated into the global coordinate system, its eccentricity, a factor of its mean motion and its phase.
+ * Particles can neither have children nor influence the parent body.
+ * <p>
+ * Kepler's equation is solved with a fixed number of Halley steps, chosen such that they converge for the largest
+ * eccentricity in the swarm, so the loop evaluating the particles has no data dependent branches. Sine and cosine
+ * are only called once per particle, the Halley steps themselves use short polynomials. The positions
+ * are written into a direct buffer, which can be handed to OpenGL or read by analysis code without copying.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class ParticleSwarm {
+
+    /**
+     * The number of particles evaluated by a single task.
+     */
+    private static final int CHUNK_SIZE = 1 << 14;
+    /**
+     * The change of the eccentric anomaly below which the Halley steps are considered converged.
+     */
+    private static final double TOLERANCE = 1.0e-12d;
+    /**
+     * The number of mean anomalies on which the number of Halley steps is tested.
+     */
+    private static final int ITERATION_SAMPLES = 1024;
+    /**
+     * The maximum number of Halley steps.
+     */
+    private static final int MAX_ITERATIONS = 32;
+
+    /**
+     * The body at the center of all orbits.
+     */
+    private final CelestialBody parent;
+    /**
+     * The number of particles.
+     */
+    private int size = 0;
+    /**
+     * The axis of each orbit towards the position at an eccentric anomaly of 90 degrees, scaled by the semi minor
+     * axis, as consecutive x, y and z triplets.
+     */
+    private double[] minorAxis;
+    /**
+     * The axis of each orbit from the periapsis to the center, scaled by the semi major axis, as consecutive x, y
+     * and z triplets.
+     */
+    private double[] majorAxis;
+    /**
+     * The eccentricity of each orbit.
+     */
+    private double[] eccentricity;
+    /**
+     * The mean motion of each particle divided by the square root of the gravitational parameter of the parent.
+     */
+    private double[] motion;
+    /**
+     * The mean anomaly of each particle at time zero.
+     */
+    private double[] phase;
+    /**
+     * The number of Halley steps per evaluation.
+     */
+    private int iterations = 1;
+    /**
+     * The largest eccentricity in the swarm.
+     */
+    private double maximumEccentricity = 0.0d;
+    /**
+     * The global orientation of the parent, with which the axes were rotated.
+     */
+    private Quat4d frame;
+    /**
+     * The generation of the parent, with which the frame and the gravitational parameter were determined.
+     */
+    private long parentGeneration;
+    /**
+     * The square root of the gravitational parameter of the parent.
+     */
+    private double rootGravitationalParameter;
+    /**
+     * The positions of all particles after the last evaluation.
+     */
+    private DoubleBuffer positions;
+    /**
+     * The position of the parent during the last evaluation, reused by every evaluation.
+     */
+    private final double[] origin = new double[3];
+    /**
+     * The pool evaluating the particles, null to evaluate them on the calling thread.
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * Creates a new empty swarm.
+     *
+     * @param parent The body at the center of all orbits.
+     */
+    public ParticleSwarm(CelestialBody parent) {
+        this(parent, 16);
+    }
+
+    /**
+     * Creates a new empty swarm with room for the given number of particles.
+     *
+     * @param parent   The body at the center of all orbits.
+     * @param capacity The number of particles, which can be added before the arrays grow.
+     */
+    public ParticleSwarm(CelestialBody parent, int capacity) {
+        this.parent = parent;
+        capacity = Math.max(1, capacity);
+        this.minorAxis = new double[3 * capacity];
+        this.majorAxis = new double[3 * capacity];
+        this.eccentricity = new double[capacity];
+        this.motion = new double[capacity];
+        this.phase = new double[capacity];
+        this.frame = parent.getGlobalOrientation();
+        this.parentGeneration = parent.getGeneration();
+        this.rootGravitationalParameter = Math.sqrt(Scales.gravitationalConstant() * parent.getMass());
+    }
+
+    /**
+     * Gets the body at the center of all orbits.
+     *
+     * @return The parent body.
+     */
+    public CelestialBody getParent() {
+        return this.parent;
+    }
+
+    /**
+     * Gets the number of particles.
+     *
+     * @return The number of particles in this swarm.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the number of Halley steps each evaluation takes per particle.
+     *
+     * @return The number of iterations, which depends on the largest eccentricity in the swarm.
+     */
+    public int getIterations() {
+        return this.iterations;
+    }
+
+    /**
+     * Sets the pool evaluating the particles. Defaults to the common pool.
+     *
+     * @param pool The pool to use, null to evaluate all particles on the calling thread.
+     * @return This swarm for fluent method calls.
+     */
+    public ParticleSwarm setPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Adds a particle. The elements are given like those of an {@link Orbit}.
+     *
+     * @param semiMajorAxis            The semi major axis of the orbit, must be greater than zero.
+     * @param eccentricity             The eccentricity of the orbit, must lie in [0, 1).
+     * @param inclination              The inclination of the orbit, in degrees.
+     * @param longitudeOfAscendingNode The longitude of the ascending node of the orbit, in degrees.
+     * @param argumentOfPeriapsis      The argument of periapsis of the orbit, in degrees.
+     * @param orbitalOffset            The fraction of a revolution the particle has completed at time zero, see
+     *                                 {@link CelestialBody#setOrbitalOffset(double)}.
+     * @return The index of the new particle.
+     */
+    public int add(double semiMajorAxis, double eccentricity, double inclination, double longitudeOfAscendingNode, double argumentOfPeriapsis, double orbitalOffset) {
+        if (!(semiMajorAxis > 0.0d)) {
+            throw new IllegalArgumentException("The semi major axis must be greater than zero.");
+        }
+        if (!(eccentricity >= 0.0d && eccentricity < 1.0d)) {
+            throw new IllegalArgumentException("The eccentricity must lie in [0, 1).");
+        }
+        if (this.size == this.eccentricity.length) {
+            int capacity = 2 * this.size;
+            this.minorAxis = Arrays.copyOf(this.minorAxis, 3 * capacity);
+            this.majorAxis = Arrays.copyOf(this.majorAxis, 3 * capacity);
+            this.eccentricity = Arrays.copyOf(this.eccentricity, capacity);
+            this.motion = Arrays.copyOf(this.motion, capacity);
+            this.phase = Arrays.copyOf(this.phase, capacity);
+        }
+        this.updateFrame();
+        //Rotated like the orbital plane of an Orbit, see Orbit#getOrbitalPlaneOrientation()
+        Quat4d orientation = Quat4d.identity().yaw(-longitudeOfAscendingNode).pitch(inclination).yaw(-argumentOfPeriapsis).mult(this.frame);
+        double[][] rotation = orientation.toRotationMatrix().getData();
+        double semiMinorAxis = semiMajorAxis * Math.sqrt(1.0d - eccentricity * eccentricity);
+        int i = this.size, o = 3 * i;
+        for (int c = 0; c < 3; c++) {
+            this.minorAxis[o + c] = semiMinorAxis * rotation[0][c];
+            this.majorAxis[o + c] = -semiMajorAxis * rotation[1][c];
+        }
+        this.eccentricity[i] = eccentricity;
+        this.motion[i] = 1.0d / Math.sqrt(semiMajorAxis * semiMajorAxis * semiMajorAxis);
+        this.phase[i] = 2.0d * Math.PI * orbitalOffset;
+        this.size++;
+        if (eccentricity > this.maximumEccentricity) {
+            this.maximumEccentricity = eccentricity;
+            this.iterations = iterations(eccentricity);
+        }
+        return i;
+    }
+
+    /**
+     * Determines the number of Halley steps, after which the solution of Kepler's equation converged for all tested
+     * mean anomalies, i.e. after which a further step would not change the eccentric anomaly by more than the
+     * tolerance. The number of steps grows with the eccentricity, so the largest eccentricity of a swarm determines
+     * the number of steps for all of its particles.
+     *
+     * @param eccentricity The eccentricity to test.
+     * @return The number of steps.
+     */
+    static int iterations(double eccentricity) {
+        int iterations = 1;
+        for (int s = 0; s < ITERATION_SAMPLES; s++) {
+            double meanAnomaly = Math.PI * (2.0d * s / ITERATION_SAMPLES - 1.0d);
+            double sinM = Math.sin(meanAnomaly), cosM = Math.cos(meanAnomaly);
+            double delta = KeplerSolver.initialDifference(sinM, cosM, eccentricity);
+            for (int steps = 0; steps < MAX_ITERATIONS; steps++) {
+                double sd = KeplerSolver.smallSin(delta), cd = KeplerSolver.smallCos(delta);
+                double step = KeplerSolver.halleyStep(delta, eccentricity, sinM * cd + cosM * sd, cosM * cd - sinM * sd);
+                if (Math.abs(step) <= TOLERANCE) {
+                    break;
+                }
+                delta -= step;
+                iterations = Math.max(iterations, steps + 1);
+            }
+        }
+        return iterations;
+    }
+
+    /**
+     * Rotates the axes of all orbits into the current orientation of the parent and updates its gravitational
+     * parameter, if the parent changed since the last call.
+     */
+    private void updateFrame() {
+        if (this.parentGeneration == this.parent.getGeneration()) {
+            return;
+        }
+        this.parentGeneration = this.parent.getGeneration();
+        this.rootGravitationalParameter = Math.sqrt(Scales.gravitationalConstant() * this.parent.getMass());
+        Quat4d frame = this.parent.getGlobalOrientation();
+        //The new rotation times the inverse, i.e. the transpose, of the old one
+        double[] delta = frame.toRotationMatrix().get(new double[9], 0);
+        TransformKernels.multTranspose3(delta, this.frame.toRotationMatrix().get(new double[9], 0), delta);
+        TransformKernels.transformPoints(delta, 0.0d, 0.0d, 0.0d, this.minorAxis, this.minorAxis, this.size);
+        TransformKernels.transformPoints(delta, 0.0d, 0.0d, 0.0d, this.majorAxis, this.majorAxis, this.size);
+        this.frame = frame;
+    }
+
+    /**
+     * Calculates the global positions of all particles at the given time. The positions are written as consecutive
+     * x, y and z triplets in the order in which the particles were added, into a direct buffer in native byte order.
+     * The buffer belongs to this swarm and is overwritten by the next evaluation. Must be called on the thread which
+     * modifies the model.
+     *
+     * @param time The absolute time at which to calculate the positions.
+     * @return The buffer holding the positions, from position zero up to its limit.
+     */
+    public DoubleBuffer evaluate(double time) {
+        this.updateFrame();
+        if (this.positions == null || this.positions.capacity() < 3 * this.size) {
+            this.positions = ByteBuffer.allocateDirect(24 * this.eccentricity.length).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        }
+        double[] origin = this.parent.getPosition(time).get(this.origin, 0);
+        if (this.pool == null || this.size <= CHUNK_SIZE) {
+            this.evaluate(time, origin, 0, this.size);
+        } else {
+            this.pool.invoke(new Chunk(time, origin, 0, this.size));
+        }
+        this.positions.clear();
+        this.positions.limit(3 * this.size);
+        return this.positions;
+    }
+
+    /**
+     * Calculates the positions of a range of particles.
+     *
+     * @param time   The absolute time.
+     * @param origin The position of the parent body.
+     * @param first  The index of the first particle.
+     * @param last   The index after the last particle.
+     */
+    private void evaluate(double time, double[] origin, int first, int last) {
+        double root = this.rootGravitationalParameter;
+        int iterations = this.iterations;
+        DoubleBuffer out = this.positions;
+        double[] sinCosM = new double[2];
+        for (int i = first; i < last; i++) {
+            double e = this.eccentricity[i];
+            double meanAnomaly = root * this.motion[i] * time + this.phase[i];
+            meanAnomaly -= 2.0d * Math.PI * Math.rint(meanAnomaly / (2.0d * Math.PI));
+            //Sine and cosine of the eccentric anomaly follow from those of the mean anomaly and the small difference
+            FastTrig.sincos(meanAnomaly, sinCosM, 0);
+            double sinM = sinCosM[0], cosM = sinCosM[1];
+            double delta = KeplerSolver.initialDifference(sinM, cosM, e);
+            double sin = sinM, cos = cosM, step = 0.0d;
+            for (int k = 0; k < iterations; k++) {
+                double sd = KeplerSolver.smallSin(delta), cd = KeplerSolver.smallCos(delta);
+                sin = sinM * cd + cosM * sd;
+                cos = cosM * cd - sinM * sd;
+                step = KeplerSolver.halleyStep(delta, e, sin, cos);
+                delta -= step;
+            }
+            //The last step is small, so sine and cosine follow it to second order
+            double s = sin * (1.0d - 0.5d * step * step) - cos * step;
+            double c = cos * (1.0d - 0.5d * step * step) + sin * step - e;
+            int o = 3 * i;
+            out.put(o, origin[0] + this.minorAxis[o] * s + this.majorAxis[o] * c);
+            out.put(o + 1, origin[1] + this.minorAxis[o + 1] * s + this.majorAxis[o + 1] * c);
+            out.put(o + 2, origin[2] + this.minorAxis[o + 2] * s + this.majorAxis[o + 2] * c);
+        }
+    }
+
+    /**
+     * A range of particles, which is either evaluated directly or split in halves.
+     */
+    private class Chunk extends RecursiveAction {
+
+        /**
+         * The version of the serialized form, which is never used, as tasks are not serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The absolute time.
+         */
+        private final double time;
+        /**
+         * The position of the parent body.
+         */
+        private final double[] origin;
+        /**
+         * The index of the first particle.
+         */
+        private final int first;
+        /**
+         * The index after the last particle.
+         */
+        private final int last;
+
+        /**
+         * Creates a new range of particles.
+         *
+         * @param time   The absolute time.
+         * @param origin The position of the parent body.
+         * @param first  The index of the first particle.
+         * @param last   The index after the last particle.
+         */
+        private Chunk(double time, double[] origin, int first, int last) {
+            this.time = time;
+            this.origin = origin;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.last - this.first > CHUNK_SIZE) {
+                int middle = (this.first + this.last) >>> 1;
+                invokeAll(new Chunk(this.time, this.origin, this.first, middle), new Chunk(this.time, this.origin, middle, this.last));
+                return;
+            }
+            ParticleSwarm.this.evaluate(this.time, this.origin, this.first, this.last);
+        }
+    }
+
+}
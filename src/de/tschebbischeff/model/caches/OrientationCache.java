@@ -5,6 +5,7 @@ import de.tschebbischeff.math.Quat4d;
 /**
  * Caches an orientation that was calculated based on an orientation of a parent orbit or celestial body,
  * to save ressources, in case the same orientation is calculated twice in a row.
+ * The cache is only valid for the generation of the model it was calculated with.
  *
  * @author Tarek
  * @version 1.0
@@ -13,9 +14,9 @@ import de.tschebbischeff.math.Quat4d;
 public class OrientationCache {
 
     /**
-     * The orientation of the parent orbit or body, with which the cached orientation was calculated.
+     * The generation of the orbit or body, with which the cached orientation was calculated. -1 if nothing is cached.
      */
-    public Quat4d parentOrientation = null;
+    public long generation = -1L;
     /**
      * The cached orientation.
      */
@@ -27,6 +28,6 @@ public class OrientationCache {
      */
     public void invalidate() {
         this.orientation = null;
-        this.parentOrientation = null;
+        this.generation = -1L;
     }
 }
@@ -5,6 +5,7 @@ import de.tschebbischeff.math.Vector3d;
 /**
  * Caches a position that was calculated based on a argument, to save ressources,
  * in case the same position is calculated twice in a row.
+ * The cache is only valid for the generation of the model it was calculated with.
  *
  * @author Tarek
  * @version 1.0
@@ -12,18 +13,26 @@ import de.tschebbischeff.math.Vector3d;
  */
 public class PositionCache {
 
+    /**
+     * The generation of the orbit or body, with which the cached position was calculated. -1 if nothing is cached.
+     */
+    public long generation = -1L;
     /**
      * The argument with which the cached position was calculated.
-     * In case of an orbit this is the true anomaly. In case of a celestial body it is the time.
+     * In case of an orbit this is the eccentric anomaly. In case of a celestial body it is the time.
      */
-    public Double argument = null;
+    public double argument = 0.0d;
     /**
      * The cached position.
      */
     public Vector3d position = new Vector3d(0.0d, 0.0d, 0.0d);
 
+    /**
+     * Invalidates this cache. I.e. marks this cache as containing values, which need to be recalculated.
+     */
     public void invalidate() {
-        this.argument = null;
+        this.generation = -1L;
+        this.argument = 0.0d;
         this.position = new Vector3d(0.0d, 0.0d, 0.0d);
     }
 }
@@ -0,0 +1,278 @@
+package de.tschebbischeff.model.ephemeris;
+
+import de.tschebbischeff.math.Vector3d;
+import de.tschebbischeff.model.CelestialBody;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Approximates the positions of all bodies of a system over a span of time with piecewise Chebyshev polynomials.
+ * The span is divided into segments of equal length per body, each holding one polynomial per coordinate.
+ * A query looks up its segment directly and evaluates the polynomials with Clenshaw's recurrence, so its cost
+ * neither depends on the depth of the hierarchy nor on the eccentricity of the orbits.
+ * Instances are immutable and can be shared between threads, see {@link ChebyshevEphemerisBuilder} to create them.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class ChebyshevEphemeris {
+
+    /**
+     * The bodies covered by this ephemeris, in the same order as in {@link SystemEphemeris}.
+     */
+    private final CelestialBody[] bodies;
+    /**
+     * Maps each body to its index.
+     */
+    private final HashMap<CelestialBody, Integer> indices;
+    /**
+     * The beginning of the covered span of time.
+     */
+    private final double start;
+    /**
+     * The end of the covered span of time.
+     */
+    private final double end;
+    /**
+     * The degree of all polynomials.
+     */
+    private final int degree;
+    /**
+     * The length of the segments of each body.
+     */
+    private final double[] segmentLength;
+    /**
+     * The number of segments of each body.
+     */
+    private final int[] segmentCount;
+    /**
+     * The coefficients of each body. Per segment the coefficients of x, y and z follow each other, starting with
+     * the coefficient of the lowest order.
+     */
+    private final double[][] coefficients;
+
+    /**
+     * Creates a new ephemeris from fitted coefficients, which are not copied.
+     *
+     * @param bodies        The covered bodies.
+     * @param start         The beginning of the covered span of time.
+     * @param end           The end of the covered span of time.
+     * @param degree        The degree of all polynomials.
+     * @param segmentLength The length of the segments of each body.
+     * @param segmentCount  The number of segments of each body.
+     * @param coefficients  The coefficients of each body.
+     */
+    ChebyshevEphemeris(CelestialBody[] bodies, double start, double end, int degree, double[] segmentLength, int[] segmentCount, double[][] coefficients) {
+        this.bodies = bodies;
+        this.indices = new HashMap<>();
+        for (int i = 0; i < bodies.length; i++) {
+            this.indices.put(bodies[i], i);
+        }
+        this.start = start;
+        this.end = end;
+        this.degree = degree;
+        this.segmentLength = segmentLength;
+        this.segmentCount = segmentCount;
+        this.coefficients = coefficients;
+    }
+
+    /**
+     * Gets the number of covered bodies, including the star.
+     *
+     * @return The number of bodies in this ephemeris.
+     */
+    public int getBodyCount() {
+        return this.bodies.length;
+    }
+
+    /**
+     * Gets the body stored at the given index.
+     *
+     * @param index The index of the body.
+     * @return The celestial body at that index.
+     */
+    public CelestialBody getBody(int index) {
+        return this.bodies[index];
+    }
+
+    /**
+     * Gets the index at which the given body is stored.
+     *
+     * @param body The body to look up.
+     * @return The index of the body, or -1 if it is not part of this ephemeris.
+     */
+    public int indexOf(CelestialBody body) {
+        Integer index = this.indices.get(body);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Gets the beginning of the span of time covered by this ephemeris.
+     *
+     * @return The earliest time which can be queried.
+     */
+    public double getStart() {
+        return this.start;
+    }
+
+    /**
+     * Gets the end of the span of time covered by this ephemeris.
+     *
+     * @return The latest time which can be queried.
+     */
+    public double getEnd() {
+        return this.end;
+    }
+
+    /**
+     * Gets the degree of the polynomials.
+     *
+     * @return The degree of all polynomials of this ephemeris.
+     */
+    public int getDegree() {
+        return this.degree;
+    }
+
+    /**
+     * Gets the length of the segments of a body.
+     *
+     * @param index The index of the body.
+     * @return The span of time covered by a single segment.
+     */
+    public double getSegmentLength(int index) {
+        return this.segmentLength[index];
+    }
+
+    /**
+     * Gets the number of segments of a body.
+     *
+     * @param index The index of the body.
+     * @return The number of segments.
+     */
+    public int getSegmentCount(int index) {
+        return this.segmentCount[index];
+    }
+
+    /**
+     * Gets the coefficients of a body, see {@link ChebyshevEphemeris#getSegmentCount(int)} and
+     * {@link ChebyshevEphemeris#getDegree()} for their number.
+     *
+     * @param index The index of the body.
+     * @return A copy of the coefficients, per segment those of x, y and z, each starting with the lowest order.
+     */
+    public double[] getCoefficients(int index) {
+        return Arrays.copyOf(this.coefficients[index], this.coefficients[index].length);
+    }
+
+    /**
+     * Approximates the position of a body.
+     *
+     * @param body The body, which must be part of this ephemeris.
+     * @param time The absolute time, which must be covered by this ephemeris.
+     * @return The position of the body as a new vector.
+     */
+    public Vector3d getPosition(CelestialBody body, double time) {
+        return new Vector3d(this.getState(this.indexOf(body), time, new double[3], 0, false));
+    }
+
+    /**
+     * Approximates the velocity of a body.
+     *
+     * @param body The body, which must be part of this ephemeris.
+     * @param time The absolute time, which must be covered by this ephemeris.
+     * @return The velocity of the body as a new vector, in distance per unit of time.
+     */
+    public Vector3d getVelocity(CelestialBody body, double time) {
+        double[] state = this.getState(this.indexOf(body), time, new double[6], 0, true);
+        return new Vector3d(state[3], state[4], state[5]);
+    }
+
+    /**
+     * Approximates the position of a body.
+     *
+     * @param index  The index of the body.
+     * @param time   The absolute time, which must be covered by this ephemeris.
+     * @param out    The buffer to write the x, y and z coordinates into.
+     * @param offset The index in the buffer at which the x-coordinate is written.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] getPosition(int index, double time, double[] out, int offset) {
+        return this.getState(index, time, out, offset, false);
+    }
+
+    /**
+     * Approximates the position and velocity of a body.
+     *
+     * @param index  The index of the body.
+     * @param time   The absolute time, which must be covered by this ephemeris.
+     * @param out    The buffer to write the position followed by the velocity into, six values in total.
+     * @param offset The index in the buffer at which the x-coordinate of the position is written.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] getState(int index, double time, double[] out, int offset) {
+        return this.getState(index, time, out, offset, true);
+    }
+
+    /**
+     * Evaluates the polynomials of a body with Clenshaw's recurrence, and optionally their derivatives alongside.
+     *
+     * @param index    The index of the body.
+     * @param time     The absolute time.
+     * @param out      The buffer to write into.
+     * @param offset   The index in the buffer of the first value.
+     * @param velocity Whether to write the velocity after the position.
+     * @return The buffer out for fluent method calls.
+     */
+    private double[] getState(int index, double time, double[] out, int offset, boolean velocity) {
+        if (index < 0 || index >= this.bodies.length) {
+            throw new IllegalArgumentException("The body is not part of this ephemeris.");
+        }
+        if (time < this.start || time > this.end) {
+            throw new IllegalArgumentException("The time " + time + " is not covered by this ephemeris.");
+        }
+        double length = this.segmentLength[index];
+        int segment = Math.min(this.segmentCount[index] - 1, (int) ((time - this.start) / length));
+        double x = 2.0d * (time - this.start - segment * length) / length - 1.0d;
+        double scale = 2.0d / length;
+        double[] c = this.coefficients[index];
+        int n = this.degree + 1;
+        for (int coordinate = 0; coordinate < 3; coordinate++) {
+            int base = (3 * segment + coordinate) * n;
+            double b1 = 0.0d, b2 = 0.0d, d1 = 0.0d, d2 = 0.0d;
+            for (int k = this.degree; k > 0; k--) {
+                double d = 2.0d * b1 + 2.0d * x * d1 - d2;
+                d2 = d1;
+                d1 = d;
+                double b = c[base + k] + 2.0d * x * b1 - b2;
+                b2 = b1;
+                b1 = b;
+            }
+            out[offset + coordinate] = c[base] + x * b1 - b2;
+            if (velocity) {
+                out[offset + 3 + coordinate] = (b1 + x * d1 - d2) * scale;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Evaluates a single Chebyshev series with Clenshaw's recurrence.
+     *
+     * @param coefficients The buffer holding the coefficients.
+     * @param base         The index of the coefficient of the lowest order.
+     * @param degree       The degree of the series.
+     * @param x            The argument, in the interval [-1,1].
+     * @return The value of the series.
+     */
+    static double evaluate(double[] coefficients, int base, int degree, double x) {
+        double b1 = 0.0d, b2 = 0.0d;
+        for (int k = degree; k > 0; k--) {
+            double b = coefficients[base + k] + 2.0d * x * b1 - b2;
+            b2 = b1;
+            b1 = b;
+        }
+        return coefficients[base] + x * b1 - b2;
+    }
+
+}
@@ -0,0 +1,206 @@
+package de.tschebbischeff.model.ephemeris;
+
+import de.tschebbischeff.math.Vector3d;
+import de.tschebbischeff.model.CelestialBody;
+import de.tschebbischeff.model.Scales;
+
+/**
+ * Fits a {@link ChebyshevEphemeris} to the positions of the bodies of a system.
+ * The positions are sampled with {@link CelestialBody#getPosition(double)} at the Chebyshev nodes of each segment
+ * and interpolated there. The fit is then checked between the nodes and at the borders of the segment. If the error
+ * exceeds the tolerance anywhere, the number of segments of that body is doubled and the body is fitted again.
+ * Building reads the model, so it must happen on the thread which modifies the model.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class ChebyshevEphemerisBuilder {
+
+    /**
+     * The maximum number of segments per body, before the tolerance is considered unreachable.
+     */
+    private static final int MAX_SEGMENTS = 1 << 20;
+    /**
+     * The number of segments per revolution of the fastest body in the hierarchy, the fit starts with.
+     */
+    private static final int SEGMENTS_PER_REVOLUTION = 4;
+
+    /**
+     * The degree of the polynomials.
+     */
+    private int degree = 12;
+    /**
+     * The maximum distance between the approximated and the exact position.
+     */
+    private double tolerance = Scales.kilometer();
+
+    /**
+     * Gets the degree of the polynomials.
+     *
+     * @return The degree of the fitted polynomials.
+     */
+    public int getDegree() {
+        return this.degree;
+    }
+
+    /**
+     * Sets the degree of the polynomials. Higher degrees need fewer segments for the same tolerance, but make each
+     * query more expensive.
+     *
+     * @param degree The degree of the fitted polynomials, at least one.
+     * @return This builder for fluent method calls.
+     */
+    public ChebyshevEphemerisBuilder setDegree(int degree) {
+        if (degree < 1) {
+            throw new IllegalArgumentException("The degree must be at least one.");
+        }
+        this.degree = degree;
+        return this;
+    }
+
+    /**
+     * Gets the maximum distance between the approximated and the exact positions.
+     *
+     * @return The tolerance of the fit.
+     */
+    public double getTolerance() {
+        return this.tolerance;
+    }
+
+    /**
+     * Sets the maximum distance between the approximated and the exact positions. Defaults to one kilometer.
+     *
+     * @param tolerance The tolerance of the fit, must be greater than zero.
+     * @return This builder for fluent method calls.
+     */
+    public ChebyshevEphemerisBuilder setTolerance(double tolerance) {
+        if (!(tolerance > 0.0d)) {
+            throw new IllegalArgumentException("The tolerance must be greater than zero.");
+        }
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    /**
+     * Fits the positions of all bodies of a system over the given span of time.
+     *
+     * @param body  Any body of the system, the whole system of its star is fitted.
+     * @param start The beginning of the span of time.
+     * @param end   The end of the span of time, must be greater than the beginning.
+     * @return The fitted ephemeris.
+     */
+    public ChebyshevEphemeris build(CelestialBody body, double start, double end) {
+        if (!(end > start)) {
+            throw new IllegalArgumentException("The end of the span of time must lie after its beginning.");
+        }
+        SystemEphemeris system = new SystemEphemeris(body);
+        int count = system.getBodyCount();
+        CelestialBody[] bodies = new CelestialBody[count];
+        double[] segmentLength = new double[count];
+        int[] segmentCount = new int[count];
+        double[][] coefficients = new double[count][];
+        for (int i = 0; i < count; i++) {
+            bodies[i] = system.getBody(i);
+            coefficients[i] = this.fit(bodies[i], start, end);
+            segmentCount[i] = coefficients[i].length / (3 * (this.degree + 1));
+            segmentLength[i] = (end - start) / segmentCount[i];
+        }
+        return new ChebyshevEphemeris(bodies, start, end, this.degree, segmentLength, segmentCount, coefficients);
+    }
+
+    /**
+     * Fits the positions of a single body over the given span of time.
+     *
+     * @param body  The body to fit.
+     * @param start The beginning of the span of time.
+     * @param end   The end of the span of time.
+     * @return The coefficients of all segments, see {@link ChebyshevEphemeris#getCoefficients(int)}.
+     */
+    double[] fit(CelestialBody body, double start, double end) {
+        int n = this.degree + 1;
+        double[][] basis = new double[n][n];
+        for (int k = 0; k < n; k++) {
+            for (int j = 0; j < n; j++) {
+                basis[k][j] = Math.cos(Math.PI * k * (j + 0.5d) / n);
+            }
+        }
+        int segments = this.getInitialSegmentCount(body, end - start);
+        while (true) {
+            double[] fitted = new double[3 * n * segments];
+            if (this.fit(body, start, (end - start) / segments, segments, basis, fitted)) {
+                return fitted;
+            }
+            if (segments > MAX_SEGMENTS / 2) {
+                throw new IllegalArgumentException("The tolerance of " + this.tolerance + " can not be reached.");
+            }
+            segments *= 2;
+        }
+    }
+
+    /**
+     * Estimates the number of segments a body needs, based on the fastest revolution in its hierarchy.
+     *
+     * @param body The body to fit.
+     * @param span The length of the span of time.
+     * @return The number of segments to start the fit with.
+     */
+    private int getInitialSegmentCount(CelestialBody body, double span) {
+        double period = Double.POSITIVE_INFINITY;
+        for (CelestialBody current = body; !current.isStar(); current = current.getOrbit().getParentBody()) {
+            period = Math.min(period, current.getSiderealPeriod());
+        }
+        return (int) Math.max(1.0d, Math.min(MAX_SEGMENTS, Math.ceil(SEGMENTS_PER_REVOLUTION * span / period)));
+    }
+
+    /**
+     * Fits all segments of a body and checks the result against the tolerance.
+     *
+     * @param body     The body to fit.
+     * @param start    The beginning of the first segment.
+     * @param length   The length of each segment.
+     * @param segments The number of segments.
+     * @param basis    The Chebyshev polynomials evaluated at the nodes, indexed by order and node.
+     * @param out      The buffer to write the coefficients into.
+     * @return True if the fit is within the tolerance, false otherwise.
+     */
+    private boolean fit(CelestialBody body, double start, double length, int segments, double[][] basis, double[] out) {
+        int n = this.degree + 1;
+        double[][] samples = new double[3][n];
+        double[] position = new double[3];
+        for (int s = 0; s < segments; s++) {
+            double begin = start + s * length;
+            for (int j = 0; j < n; j++) {
+                Vector3d sample = body.getPosition(begin + 0.5d * length * (basis[1][j] + 1.0d));
+                samples[0][j] = sample.getX();
+                samples[1][j] = sample.getY();
+                samples[2][j] = sample.getZ();
+            }
+            for (int coordinate = 0; coordinate < 3; coordinate++) {
+                int base = (3 * s + coordinate) * n;
+                for (int k = 0; k < n; k++) {
+                    double sum = 0.0d;
+                    for (int j = 0; j < n; j++) {
+                        sum += samples[coordinate][j] * basis[k][j];
+                    }
+                    out[base + k] = (k == 0 ? 1.0d : 2.0d) * sum / n;
+                }
+            }
+            //The extrema of the highest order polynomial lie between the nodes and at the borders
+            for (int j = 0; j <= n; j++) {
+                double x = Math.cos(Math.PI * j / n);
+                Vector3d exact = body.getPosition(begin + 0.5d * length * (x + 1.0d));
+                for (int coordinate = 0; coordinate < 3; coordinate++) {
+                    position[coordinate] = ChebyshevEphemeris.evaluate(out, (3 * s + coordinate) * n, this.degree, x);
+                }
+                double dx = position[0] - exact.getX();
+                double dy = position[1] - exact.getY();
+                double dz = position[2] - exact.getZ();
+                if (dx * dx + dy * dy + dz * dz > this.tolerance * this.tolerance) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+}
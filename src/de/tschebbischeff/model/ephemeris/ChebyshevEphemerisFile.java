@@ -0,0 +1,260 @@
+package de.tschebbischeff.model.ephemeris;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a Chebyshev ephemeris directly from a memory mapped file, without loading its coefficients into the heap.
+ * Opening a file only reads its header and index, the coefficients are paged in by the operating system as they are
+ * queried. Files may therefore be much larger than the heap and can be shared between processes. Queries only read
+ * the mapped buffers at absolute positions, so a file can be queried from several threads in parallel.
+ * See {@link ChebyshevEphemerisWriter} to create such files.
+ * <p>
+ * All values are stored little-endian. The file starts with a header of 32 bytes: the magic number, the format
+ * version, the number of bodies and the degree of the polynomials as four integers, followed by the beginning and
+ * the end of the covered span of time as two doubles. An index of 24 bytes per body follows: the number of
+ * segments and a reserved integer, the length of the segments as a double and the position of the body's
+ * coefficients in the file as a long. The coefficients are laid out like those of
+ * {@link ChebyshevEphemeris#getCoefficients(int)}.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class ChebyshevEphemerisFile {
+
+    /**
+     * Identifies ephemeris files, the bytes "OMEP" read as a little-endian integer.
+     */
+    static final int MAGIC = 0x50454D4F;
+    /**
+     * The version of the file format.
+     */
+    static final int VERSION = 1;
+    /**
+     * The size of the header in bytes.
+     */
+    static final int HEADER_SIZE = 32;
+    /**
+     * The size of an entry of the index in bytes.
+     */
+    static final int INDEX_ENTRY_SIZE = 24;
+    /**
+     * The number of bytes after which a new buffer is mapped, buffers are limited to two gigabytes.
+     */
+    private static final long CHUNK_SIZE = 1L << 30;
+
+    /**
+     * The beginning of the covered span of time.
+     */
+    private final double start;
+    /**
+     * The end of the covered span of time.
+     */
+    private final double end;
+    /**
+     * The degree of all polynomials.
+     */
+    private final int degree;
+    /**
+     * The length of the segments of each body.
+     */
+    private final double[] segmentLength;
+    /**
+     * The number of segments of each body.
+     */
+    private final int[] segmentCount;
+    /**
+     * The position of the coefficients of each body in the file.
+     */
+    private final long[] payload;
+    /**
+     * The mapped chunks of the file. Each chunk overlaps the next by the size of a segment, so every segment can be
+     * read from the chunk it starts in.
+     */
+    private final ByteBuffer[] chunks;
+
+    /**
+     * Maps an ephemeris file.
+     *
+     * @param path The path of the file.
+     * @throws IOException If the file can not be read or is no ephemeris file of a supported version.
+     */
+    public ChebyshevEphemerisFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = this.read(channel, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not an ephemeris file: " + path);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported ephemeris file version " + header.getInt(4) + ": " + path);
+            }
+            int count = header.getInt(8);
+            this.degree = header.getInt(12);
+            this.start = header.getDouble(16);
+            this.end = header.getDouble(24);
+            this.segmentLength = new double[count];
+            this.segmentCount = new int[count];
+            this.payload = new long[count];
+            long segmentSize = 24L * (this.degree + 1);
+            ByteBuffer index = this.read(channel, HEADER_SIZE, INDEX_ENTRY_SIZE * count);
+            for (int i = 0; i < count; i++) {
+                int entry = INDEX_ENTRY_SIZE * i;
+                this.segmentCount[i] = index.getInt(entry);
+                this.segmentLength[i] = index.getDouble(entry + 8);
+                this.payload[i] = index.getLong(entry + 16);
+                if (this.payload[i] + this.segmentCount[i] * segmentSize > size) {
+                    throw new IOException("Truncated ephemeris file: " + path);
+                }
+            }
+            this.chunks = new ByteBuffer[(int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+            for (int c = 0; c < this.chunks.length; c++) {
+                long position = c * CHUNK_SIZE;
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, CHUNK_SIZE + segmentSize));
+                this.chunks[c] = chunk.order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+    }
+
+    /**
+     * Reads a part of a file completely.
+     *
+     * @param channel  The channel of the file.
+     * @param position The position of the first byte to read.
+     * @param length   The number of bytes to read.
+     * @return A little-endian buffer holding the bytes.
+     * @throws IOException If the file ends before all bytes were read.
+     */
+    private ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated ephemeris file.");
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Gets the number of bodies in this file, including the star.
+     *
+     * @return The number of bodies.
+     */
+    public int getBodyCount() {
+        return this.segmentCount.length;
+    }
+
+    /**
+     * Gets the beginning of the span of time covered by this file.
+     *
+     * @return The earliest time which can be queried.
+     */
+    public double getStart() {
+        return this.start;
+    }
+
+    /**
+     * Gets the end of the span of time covered by this file.
+     *
+     * @return The latest time which can be queried.
+     */
+    public double getEnd() {
+        return this.end;
+    }
+
+    /**
+     * Gets the degree of the polynomials.
+     *
+     * @return The degree of all polynomials in this file.
+     */
+    public int getDegree() {
+        return this.degree;
+    }
+
+    /**
+     * Gets the number of segments of a body.
+     *
+     * @param bodyId The index of the body, in the order of {@link SystemEphemeris}.
+     * @return The number of segments.
+     */
+    public int getSegmentCount(int bodyId) {
+        return this.segmentCount[bodyId];
+    }
+
+    /**
+     * Approximates the position of a body.
+     *
+     * @param bodyId The index of the body, in the order of {@link SystemEphemeris}.
+     * @param time   The absolute time, which must be covered by this file.
+     * @param out    The buffer to write the x, y and z coordinates into.
+     * @param offset The index in the buffer at which the x-coordinate is written.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] getPosition(int bodyId, double time, double[] out, int offset) {
+        return this.getState(bodyId, time, out, offset, false);
+    }
+
+    /**
+     * Approximates the position and velocity of a body.
+     *
+     * @param bodyId The index of the body, in the order of {@link SystemEphemeris}.
+     * @param time   The absolute time, which must be covered by this file.
+     * @param out    The buffer to write the position followed by the velocity into, six values in total.
+     * @param offset The index in the buffer at which the x-coordinate of the position is written.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] getState(int bodyId, double time, double[] out, int offset) {
+        return this.getState(bodyId, time, out, offset, true);
+    }
+
+    /**
+     * Evaluates the polynomials of a body straight from the mapped file, see
+     * {@link ChebyshevEphemeris#getState(int, double, double[], int)}.
+     *
+     * @param bodyId   The index of the body.
+     * @param time     The absolute time.
+     * @param out      The buffer to write into.
+     * @param offset   The index in the buffer of the first value.
+     * @param velocity Whether to write the velocity after the position.
+     * @return The buffer out for fluent method calls.
+     */
+    private double[] getState(int bodyId, double time, double[] out, int offset, boolean velocity) {
+        if (bodyId < 0 || bodyId >= this.segmentCount.length) {
+            throw new IllegalArgumentException("The body " + bodyId + " is not part of this file.");
+        }
+        if (time < this.start || time > this.end) {
+            throw new IllegalArgumentException("The time " + time + " is not covered by this file.");
+        }
+        double length = this.segmentLength[bodyId];
+        int segment = Math.min(this.segmentCount[bodyId] - 1, (int) ((time - this.start) / length));
+        double x = 2.0d * (time - this.start - segment * length) / length - 1.0d;
+        double scale = 2.0d / length;
+        int n = this.degree + 1;
+        long position = this.payload[bodyId] + 24L * n * segment;
+        ByteBuffer chunk = this.chunks[(int) (position / CHUNK_SIZE)];
+        int local = (int) (position % CHUNK_SIZE);
+        for (int coordinate = 0; coordinate < 3; coordinate++) {
+            int base = local + 8 * n * coordinate;
+            double b1 = 0.0d, b2 = 0.0d, d1 = 0.0d, d2 = 0.0d;
+            for (int k = this.degree; k > 0; k--) {
+                double d = 2.0d * b1 + 2.0d * x * d1 - d2;
+                d2 = d1;
+                d1 = d;
+                double b = chunk.getDouble(base + 8 * k) + 2.0d * x * b1 - b2;
+                b2 = b1;
+                b1 = b;
+            }
+            out[offset + coordinate] = chunk.getDouble(base) + x * b1 - b2;
+            if (velocity) {
+                out[offset + 3 + coordinate] = (b1 + x * d1 - d2) * scale;
+            }
+        }
+        return out;
+    }
+
+}
@@ -0,0 +1,124 @@
+package de.tschebbischeff.model.ephemeris;
+
+import de.tschebbischeff.model.CelestialBody;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntFunction;
+
+/**
+ * Writes Chebyshev ephemerides into files, which can be read with {@link ChebyshevEphemerisFile}.
+ * When writing from the model, the bodies are fitted and written one after another, so only the coefficients of a
+ * single body are held in memory at any time.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class ChebyshevEphemerisWriter {
+
+    /**
+     * The size of the buffer through which the coefficients are written.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The builder fitting the bodies.
+     */
+    private final ChebyshevEphemerisBuilder builder;
+
+    /**
+     * Creates a new writer.
+     *
+     * @param builder The builder, which defines the degree and tolerance of the fit.
+     */
+    public ChebyshevEphemerisWriter(ChebyshevEphemerisBuilder builder) {
+        this.builder = builder;
+    }
+
+    /**
+     * Fits the positions of all bodies of a system over the given span of time and writes them into a file.
+     * Must be called on the thread which modifies the model.
+     *
+     * @param body  Any body of the system, the whole system of its star is written.
+     * @param start The beginning of the span of time.
+     * @param end   The end of the span of time, must be greater than the beginning.
+     * @param path  The path of the file, which is replaced if it exists.
+     * @throws IOException If the file can not be written.
+     */
+    public void write(CelestialBody body, double start, double end, Path path) throws IOException {
+        if (!(end > start)) {
+            throw new IllegalArgumentException("The end of the span of time must lie after its beginning.");
+        }
+        SystemEphemeris system = new SystemEphemeris(body);
+        write(path, system.getBodyCount(), this.builder.getDegree(), start, end, i -> this.builder.fit(system.getBody(i), start, end));
+    }
+
+    /**
+     * Writes an ephemeris, which was already fitted, into a file.
+     *
+     * @param ephemeris The ephemeris to write.
+     * @param path      The path of the file, which is replaced if it exists.
+     * @throws IOException If the file can not be written.
+     */
+    public static void write(ChebyshevEphemeris ephemeris, Path path) throws IOException {
+        write(path, ephemeris.getBodyCount(), ephemeris.getDegree(), ephemeris.getStart(), ephemeris.getEnd(), ephemeris::getCoefficients);
+    }
+
+    /**
+     * Writes the payload of all bodies first, then the header and index in front of it.
+     *
+     * @param path         The path of the file.
+     * @param count        The number of bodies.
+     * @param degree       The degree of the polynomials.
+     * @param start        The beginning of the span of time.
+     * @param end          The end of the span of time.
+     * @param coefficients Provides the coefficients of each body, called once per body in order.
+     * @throws IOException If the file can not be written.
+     */
+    private static void write(Path path, int count, int degree, double start, double end, IntFunction<double[]> coefficients) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer index = ByteBuffer.allocate(ChebyshevEphemerisFile.HEADER_SIZE + ChebyshevEphemerisFile.INDEX_ENTRY_SIZE * count).order(ByteOrder.LITTLE_ENDIAN);
+            index.putInt(ChebyshevEphemerisFile.MAGIC).putInt(ChebyshevEphemerisFile.VERSION).putInt(count).putInt(degree).putDouble(start).putDouble(end);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            long position = index.capacity();
+            channel.position(position);
+            for (int i = 0; i < count; i++) {
+                double[] values = coefficients.apply(i);
+                int segments = values.length / (3 * (degree + 1));
+                index.putInt(segments).putInt(0).putDouble((end - start) / segments).putLong(position);
+                for (double value : values) {
+                    if (!buffer.hasRemaining()) {
+                        flush(channel, buffer);
+                    }
+                    buffer.putDouble(value);
+                }
+                flush(channel, buffer);
+                position += 8L * values.length;
+            }
+            index.flip();
+            while (index.hasRemaining()) {
+                channel.write(index, index.position());
+            }
+        }
+    }
+
+    /**
+     * Writes the content of a buffer to the current position of a channel and clears the buffer.
+     *
+     * @param channel The channel to write to.
+     * @param buffer  The buffer to write.
+     * @throws IOException If the channel can not be written.
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+}
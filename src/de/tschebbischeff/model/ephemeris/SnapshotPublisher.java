@@ -0,0 +1,69 @@
+package de.tschebbischeff.model.ephemeris;
+
+import de.tschebbischeff.model.CelestialBody;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands snapshots of a system from the thread modifying the model over to any number of reading threads.
+ * The writing thread modifies the model as usual and calls {@link SnapshotPublisher#publish()} once it is done,
+ * which replaces the current snapshot atomically. Readers call {@link SnapshotPublisher#get()} and keep using the
+ * returned snapshot for as long as they need a consistent view, no locks are involved on either side.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class SnapshotPublisher {
+
+    /**
+     * Any body of the published system.
+     */
+    private final CelestialBody system;
+    /**
+     * The most recently published snapshot.
+     */
+    private final AtomicReference<SystemSnapshot> current;
+
+    /**
+     * Creates a new publisher and publishes a first snapshot of the system.
+     * Must be called on the thread which modifies the model.
+     *
+     * @param body Any body of the system, the whole system of its star is published.
+     */
+    public SnapshotPublisher(CelestialBody body) {
+        this.system = body;
+        this.current = new AtomicReference<>(new SystemSnapshot(body));
+    }
+
+    /**
+     * Gets the most recently published snapshot. May be called from any thread.
+     *
+     * @return The current snapshot.
+     */
+    public SystemSnapshot get() {
+        return this.current.get();
+    }
+
+    /**
+     * Takes a new snapshot of the system and publishes it. Must be called on the thread which modifies the model.
+     *
+     * @return The published snapshot.
+     */
+    public SystemSnapshot publish() {
+        SystemSnapshot snapshot = new SystemSnapshot(this.system);
+        this.current.set(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Publishes a new snapshot, if the model was modified since the current one was taken.
+     * Must be called on the thread which modifies the model.
+     *
+     * @return The current snapshot, which was either published just now or is still up to date.
+     */
+    public SystemSnapshot refresh() {
+        SystemSnapshot snapshot = this.current.get();
+        return snapshot.isCurrent() ? snapshot : this.publish();
+    }
+
+}
@@ -0,0 +1,507 @@
+package de.tschebbischeff.model.ephemeris;
+
+import de.tschebbischeff.math.Vector3d;
+import de.tschebbischeff.model.CelestialBody;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A bounding volume hierarchy over the bodies of a system at a given time, each body being a sphere of its radius.
+ * The hierarchy is built once by splitting the bodies at the median of their longest axis and afterwards only
+ * refitted, when the time changes. As bodies move smoothly, the tree stays close to the one a rebuild would yield,
+ * so a refit, which costs a single pass over all nodes without any sorting, is sufficient. Should the tree degrade
+ * nonetheless, which is detected by the growth of the summed surface area of its nodes, it is rebuilt.
+ * <p>
+ * Queries visit only the nodes whose bounds may hold a result, which for small query volumes is logarithmic in the
+ * number of bodies. Bodies are referred to by their index in the snapshot. Queries may run in parallel, but not
+ * while the index is updated.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class SpatialIndex {
+
+    /**
+     * The maximum number of bodies in a leaf.
+     */
+    private static final int LEAF_SIZE = 4;
+    /**
+     * The growth of the summed surface area of all nodes, relative to the last build, which causes a rebuild.
+     */
+    private static final double REBUILD_FACTOR = 2.0d;
+    /**
+     * The size of the stack of nodes during a query, which exceeds the depth of any tree of median splits.
+     */
+    private static final int STACK_SIZE = 64;
+
+    /**
+     * The snapshot of the indexed system.
+     */
+    private final SystemSnapshot snapshot;
+    /**
+     * The positions of all bodies, as consecutive x, y and z triplets.
+     */
+    private final double[] positions;
+    /**
+     * The radius of each body.
+     */
+    private final double[] radius;
+    /**
+     * The indices of the bodies, ordered such that each leaf holds a consecutive range.
+     */
+    private final int[] items;
+    /**
+     * The lower corner of the bounds of each node.
+     */
+    private final double[] lower;
+    /**
+     * The upper corner of the bounds of each node.
+     */
+    private final double[] upper;
+    /**
+     * The index of the first item of each leaf, or the index of the left child of each inner node. The right child
+     * directly follows the left child.
+     */
+    private final int[] start;
+    /**
+     * The number of items of each leaf, zero for inner nodes.
+     */
+    private final int[] count;
+    /**
+     * The number of nodes in use.
+     */
+    private int nodes = 0;
+    /**
+     * The summed surface area of all nodes after the last build.
+     */
+    private double builtArea = 0.0d;
+    /**
+     * The time of the indexed positions.
+     */
+    private double time;
+    /**
+     * The number of times the tree was built.
+     */
+    private long builds = 0L;
+
+    /**
+     * Creates a new index of the system of the given body.
+     *
+     * @param body Any body of the system, the whole system of its star is indexed.
+     * @param time The absolute time of the indexed positions.
+     */
+    public SpatialIndex(CelestialBody body, double time) {
+        this(body.createSnapshot(), time);
+    }
+
+    /**
+     * Creates a new index.
+     *
+     * @param snapshot The snapshot of the indexed system.
+     * @param time     The absolute time of the indexed positions.
+     */
+    public SpatialIndex(SystemSnapshot snapshot, double time) {
+        int bodies = snapshot.getBodyCount();
+        this.snapshot = snapshot;
+        this.positions = snapshot.createBuffer();
+        this.radius = new double[bodies];
+        this.items = new int[bodies];
+        for (int i = 0; i < bodies; i++) {
+            this.radius[i] = snapshot.getRadius(i);
+            this.items[i] = i;
+        }
+        //A binary tree with at least one body per leaf has fewer than twice as many nodes as bodies
+        int capacity = Math.max(1, 2 * bodies - 1);
+        this.lower = new double[3 * capacity];
+        this.upper = new double[3 * capacity];
+        this.start = new int[capacity];
+        this.count = new int[capacity];
+        this.time = time;
+        this.snapshot.evaluate(time, this.positions);
+        this.build();
+    }
+
+    /**
+     * Gets the snapshot of the indexed system.
+     *
+     * @return The snapshot this index was created from.
+     */
+    public SystemSnapshot getSnapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * Gets the time of the indexed positions.
+     *
+     * @return The time of the last update.
+     */
+    public double getTime() {
+        return this.time;
+    }
+
+    /**
+     * Gets the number of times the tree was built, including the initial build.
+     *
+     * @return The number of builds.
+     */
+    public long getBuildCount() {
+        return this.builds;
+    }
+
+    /**
+     * Gets the indexed position of a body.
+     *
+     * @param index The index of the body.
+     * @return The position of the body at the time of the last update.
+     */
+    public Vector3d getPosition(int index) {
+        return new Vector3d(this.positions[3 * index], this.positions[3 * index + 1], this.positions[3 * index + 2]);
+    }
+
+    /**
+     * Moves all bodies to their positions at the given time and refits the tree to them.
+     *
+     * @param time The absolute time of the new positions.
+     * @return This index for fluent method calls.
+     */
+    public SpatialIndex update(double time) {
+        this.time = time;
+        this.snapshot.evaluate(time, this.positions);
+        if (this.refit() > REBUILD_FACTOR * this.builtArea) {
+            this.build();
+        }
+        return this;
+    }
+
+    /**
+     * Rebuilds the tree from the current positions.
+     */
+    private void build() {
+        this.nodes = 1;
+        this.split(0, 0, this.items.length);
+        this.builtArea = this.refit();
+        this.builds++;
+    }
+
+    /**
+     * Fills a node with a range of items, splitting it at the median of the longest axis of their centers, while it
+     * holds more than a leaf may.
+     *
+     * @param node  The index of the node.
+     * @param first The index of the first item.
+     * @param last  The index after the last item.
+     */
+    private void split(int node, int first, int last) {
+        if (last - first <= LEAF_SIZE) {
+            this.start[node] = first;
+            this.count[node] = last - first;
+            return;
+        }
+        double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int k = first; k < last; k++) {
+            for (int c = 0; c < 3; c++) {
+                double value = this.positions[3 * this.items[k] + c];
+                min[c] = Math.min(min[c], value);
+                max[c] = Math.max(max[c], value);
+            }
+        }
+        int axis = 0;
+        for (int c = 1; c < 3; c++) {
+            if (max[c] - min[c] > max[axis] - min[axis]) {
+                axis = c;
+            }
+        }
+        int middle = (first + last) >>> 1;
+        this.select(axis, first, last - 1, middle);
+        int left = this.nodes;
+        this.nodes += 2;
+        this.start[node] = left;
+        this.count[node] = 0;
+        this.split(left, first, middle);
+        this.split(left + 1, middle, last);
+    }
+
+    /**
+     * Partially sorts a range of items along an axis, such that the item at the given rank has no greater item
+     * before and no smaller item after it.
+     *
+     * @param axis  The coordinate to compare.
+     * @param first The index of the first item of the range.
+     * @param last  The index of the last item of the range.
+     * @param rank  The index of the item to place.
+     */
+    private void select(int axis, int first, int last, int rank) {
+        while (last > first) {
+            double pivot = this.positions[3 * this.items[(first + last) >>> 1] + axis];
+            int i = first, j = last;
+            while (i <= j) {
+                while (this.positions[3 * this.items[i] + axis] < pivot) {
+                    i++;
+                }
+                while (this.positions[3 * this.items[j] + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = this.items[i];
+                    this.items[i] = this.items[j];
+                    this.items[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (rank <= j) {
+                last = j;
+            } else if (rank >= i) {
+                first = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Recomputes the bounds of all nodes from the current positions. Children are always stored after their
+     * parent, so a single backwards pass updates every node after its children.
+     *
+     * @return The summed surface area of all nodes.
+     */
+    private double refit() {
+        double area = 0.0d;
+        for (int node = this.nodes - 1; node >= 0; node--) {
+            int n = 3 * node;
+            if (this.count[node] > 0) {
+                double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+                for (int k = this.start[node], end = k + this.count[node]; k < end; k++) {
+                    int body = this.items[k];
+                    double r = this.radius[body];
+                    double x = this.positions[3 * body], y = this.positions[3 * body + 1], z = this.positions[3 * body + 2];
+                    minX = Math.min(minX, x - r);
+                    minY = Math.min(minY, y - r);
+                    minZ = Math.min(minZ, z - r);
+                    maxX = Math.max(maxX, x + r);
+                    maxY = Math.max(maxY, y + r);
+                    maxZ = Math.max(maxZ, z + r);
+                }
+                this.lower[n] = minX;
+                this.lower[n + 1] = minY;
+                this.lower[n + 2] = minZ;
+                this.upper[n] = maxX;
+                this.upper[n + 1] = maxY;
+                this.upper[n + 2] = maxZ;
+            } else {
+                int l = 3 * this.start[node], r = l + 3;
+                for (int c = 0; c < 3; c++) {
+                    this.lower[n + c] = Math.min(this.lower[l + c], this.lower[r + c]);
+                    this.upper[n + c] = Math.max(this.upper[l + c], this.upper[r + c]);
+                }
+            }
+            double dx = this.upper[n] - this.lower[n];
+            double dy = this.upper[n + 1] - this.lower[n + 1];
+            double dz = this.upper[n + 2] - this.lower[n + 2];
+            area += dx * dy + dy * dz + dz * dx;
+        }
+        return area;
+    }
+
+    /**
+     * Calculates the squared distance of a point to the bounds of a node.
+     *
+     * @param node The index of the node.
+     * @param x    The x-coordinate of the point.
+     * @param y    The y-coordinate of the point.
+     * @param z    The z-coordinate of the point.
+     * @return The squared distance, zero if the point lies inside the bounds.
+     */
+    private double distance2(int node, double x, double y, double z) {
+        int n = 3 * node;
+        double dx = Math.max(0.0d, Math.max(this.lower[n] - x, x - this.upper[n]));
+        double dy = Math.max(0.0d, Math.max(this.lower[n + 1] - y, y - this.upper[n + 1]));
+        double dz = Math.max(0.0d, Math.max(this.lower[n + 2] - z, z - this.upper[n + 2]));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Finds the body whose surface is closest to a point.
+     *
+     * @param point The point.
+     * @return The index of the closest body, -1 if the system has no bodies.
+     */
+    public int nearest(Vector3d point) {
+        double x = point.getX(), y = point.getY(), z = point.getZ();
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        int[] stack = new int[STACK_SIZE];
+        int size = 0;
+        stack[size++] = 0;
+        while (size > 0) {
+            int node = stack[--size];
+            double bound = Math.sqrt(this.distance2(node, x, y, z));
+            if (bound >= bestDistance) {
+                continue;
+            }
+            if (this.count[node] > 0) {
+                for (int k = this.start[node], end = k + this.count[node]; k < end; k++) {
+                    int body = this.items[k];
+                    double dx = this.positions[3 * body] - x;
+                    double dy = this.positions[3 * body + 1] - y;
+                    double dz = this.positions[3 * body + 2] - z;
+                    double distance = Math.sqrt(dx * dx + dy * dy + dz * dz) - this.radius[body];
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = body;
+                    }
+                }
+            } else {
+                //The closer child is pushed last, so it is visited first and tightens the bound early
+                int left = this.start[node], right = left + 1;
+                if (this.distance2(left, x, y, z) < this.distance2(right, x, y, z)) {
+                    stack[size++] = right;
+                    stack[size++] = left;
+                } else {
+                    stack[size++] = left;
+                    stack[size++] = right;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds all bodies which intersect a sphere.
+     *
+     * @param center   The center of the sphere.
+     * @param distance The radius of the sphere.
+     * @param consumer Receives the index of each intersecting body.
+     */
+    public void query(Vector3d center, double distance, IntConsumer consumer) {
+        double x = center.getX(), y = center.getY(), z = center.getZ();
+        int[] stack = new int[STACK_SIZE];
+        int size = 0;
+        stack[size++] = 0;
+        while (size > 0) {
+            int node = stack[--size];
+            if (this.distance2(node, x, y, z) > distance * distance) {
+                continue;
+            }
+            if (this.count[node] > 0) {
+                for (int k = this.start[node], end = k + this.count[node]; k < end; k++) {
+                    int body = this.items[k];
+                    double dx = this.positions[3 * body] - x;
+                    double dy = this.positions[3 * body + 1] - y;
+                    double dz = this.positions[3 * body + 2] - z;
+                    double reach = distance + this.radius[body];
+                    if (dx * dx + dy * dy + dz * dz <= reach * reach) {
+                        consumer.accept(body);
+                    }
+                }
+            } else {
+                stack[size++] = this.start[node];
+                stack[size++] = this.start[node] + 1;
+            }
+        }
+    }
+
+    /**
+     * Finds the first body hit by a ray, e.g. to pick the body under the cursor.
+     *
+     * @param origin    The origin of the ray.
+     * @param direction The direction of the ray, must not be zero.
+     * @return The index of the first body hit, -1 if the ray misses all bodies.
+     */
+    public int pick(Vector3d origin, Vector3d direction) {
+        double ox = origin.getX(), oy = origin.getY(), oz = origin.getZ();
+        double length = direction.len();
+        double dx = direction.getX() / length, dy = direction.getY() / length, dz = direction.getZ() / length;
+        double ix = 1.0d / dx, iy = 1.0d / dy, iz = 1.0d / dz;
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        int[] stack = new int[STACK_SIZE];
+        int size = 0;
+        stack[size++] = 0;
+        while (size > 0) {
+            int node = stack[--size];
+            int n = 3 * node;
+            //Slab test, the bounds are entered at the latest entry and left at the earliest exit
+            double tx0 = (this.lower[n] - ox) * ix, tx1 = (this.upper[n] - ox) * ix;
+            double ty0 = (this.lower[n + 1] - oy) * iy, ty1 = (this.upper[n + 1] - oy) * iy;
+            double tz0 = (this.lower[n + 2] - oz) * iz, tz1 = (this.upper[n + 2] - oz) * iz;
+            double enter = Math.max(Math.max(Math.min(tx0, tx1), Math.min(ty0, ty1)), Math.max(Math.min(tz0, tz1), 0.0d));
+            double exit = Math.min(Math.min(Math.max(tx0, tx1), Math.max(ty0, ty1)), Math.min(Math.max(tz0, tz1), bestDistance));
+            if (!(enter <= exit)) {
+                continue;
+            }
+            if (this.count[node] > 0) {
+                for (int k = this.start[node], end = k + this.count[node]; k < end; k++) {
+                    int body = this.items[k];
+                    double cx = this.positions[3 * body] - ox;
+                    double cy = this.positions[3 * body + 1] - oy;
+                    double cz = this.positions[3 * body + 2] - oz;
+                    double along = cx * dx + cy * dy + cz * dz;
+                    double r = this.radius[body];
+                    double discriminant = along * along - (cx * cx + cy * cy + cz * cz) + r * r;
+                    if (discriminant < 0.0d) {
+                        continue;
+                    }
+                    double root = Math.sqrt(discriminant);
+                    double hit = along - root >= 0.0d ? along - root : along + root;
+                    if (hit >= 0.0d && hit < bestDistance) {
+                        bestDistance = hit;
+                        best = body;
+                    }
+                }
+            } else {
+                stack[size++] = this.start[node];
+                stack[size++] = this.start[node] + 1;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds all bodies which intersect a convex volume bounded by planes, e.g. the view frustum of a camera.
+     * Each plane is given by four values a, b, c and d, such that a point (x, y, z) lies inside if
+     * a*x + b*y + c*z + d is not negative. The normal (a, b, c) must have unit length.
+     *
+     * @param planes   The planes bounding the volume, four values per plane.
+     * @param consumer Receives the index of each intersecting body.
+     */
+    public void cull(double[] planes, IntConsumer consumer) {
+        int[] stack = new int[STACK_SIZE];
+        int size = 0;
+        stack[size++] = 0;
+        nodes:
+        while (size > 0) {
+            int node = stack[--size];
+            int n = 3 * node;
+            for (int p = 0; p < planes.length; p += 4) {
+                double a = planes[p], b = planes[p + 1], c = planes[p + 2];
+                //The corner furthest along the normal decides whether the bounds lie completely outside
+                double x = a >= 0.0d ? this.upper[n] : this.lower[n];
+                double y = b >= 0.0d ? this.upper[n + 1] : this.lower[n + 1];
+                double z = c >= 0.0d ? this.upper[n + 2] : this.lower[n + 2];
+                if (a * x + b * y + c * z + planes[p + 3] < 0.0d) {
+                    continue nodes;
+                }
+            }
+            if (this.count[node] > 0) {
+                bodies:
+                for (int k = this.start[node], end = k + this.count[node]; k < end; k++) {
+                    int body = this.items[k];
+                    double x = this.positions[3 * body], y = this.positions[3 * body + 1], z = this.positions[3 * body + 2];
+                    for (int p = 0; p < planes.length; p += 4) {
+                        if (planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3] < -this.radius[body]) {
+                            continue bodies;
+                        }
+                    }
+                    consumer.accept(body);
+                }
+            } else {
+                stack[size++] = this.start[node];
+                stack[size++] = this.start[node] + 1;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,329 @@
+package de.tschebbischeff.model.ephemeris;
+
+import de.tschebbischeff.math.FastTrig;
+import de.tschebbischeff.model.CelestialBody;
+import de.tschebbischeff.model.KeplerSolver;
+import de.tschebbischeff.model.KeplerTable;
+import de.tschebbischeff.model.Orbit;
+import de.tschebbischeff.model.OrbitKernel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Compiles the hierarchy of a star into flat primitive columns, to evaluate the positions of all bodies of the
+ * system in a single pass without allocating any objects.
+ * The bodies are sorted topologically, i.e. every body is stored after the body it orbits, so a single forward
+ * pass over the columns resolves the whole hierarchy. The star is always stored at index zero.
+ * The ephemeris is a snapshot of the model at the time it was compiled, changes to the model afterwards are not
+ * reflected and require compiling a new ephemeris.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class SystemEphemeris {
+
+    /**
+     * The compiled bodies, in topological order.
+     */
+    private final CelestialBody[] bodies;
+    /**
+     * Maps each compiled body to its index in the columns.
+     */
+    private final HashMap<CelestialBody, Integer> indices;
+    /**
+     * The index of the parent body of each body, -1 for the star.
+     */
+    private final int[] parentIndex;
+    /**
+     * The semi major axis of each body's orbit.
+     */
+    private final double[] semiMajorAxis;
+    /**
+     * The semi minor axis of each body's orbit.
+     */
+    private final double[] semiMinorAxis;
+    /**
+     * The distance between the center and the focus of each body's orbit.
+     */
+    private final double[] focusDistance;
+    /**
+     * The eccentricity of each body's orbit.
+     */
+    private final double[] eccentricity;
+    /**
+     * The Kepler lookup table of each body's orbit, null where Kepler's equation is solved iteratively.
+     */
+    private final KeplerTable[] keplerTables;
+    /**
+     * The mean motion of each body, in radians per unit of time.
+     */
+    private final double[] meanMotion;
+    /**
+     * The mean anomaly of each body at time zero, i.e. its orbital offset as an angle.
+     */
+    private final double[] phase;
+    /**
+     * The rotation matrix of each body's orbital plane, nine values per body, stored row-first.
+     */
+    private final double[] rotation;
+
+    /**
+     * Compiles the hierarchy of the system the given body belongs to.
+     *
+     * @param body Any body of the system, the whole system of its star is compiled.
+     */
+    public SystemEphemeris(CelestialBody body) {
+        ArrayList<CelestialBody> order = new ArrayList<>();
+        order.add(body.getSystemStar());
+        for (int i = 0; i < order.size(); i++) {
+            order.addAll(order.get(i).getSatellites());
+        }
+        int count = order.size();
+        this.bodies = order.toArray(new CelestialBody[count]);
+        this.indices = new HashMap<>();
+        this.parentIndex = new int[count];
+        this.semiMajorAxis = new double[count];
+        this.semiMinorAxis = new double[count];
+        this.focusDistance = new double[count];
+        this.eccentricity = new double[count];
+        this.keplerTables = new KeplerTable[count];
+        this.meanMotion = new double[count];
+        this.phase = new double[count];
+        this.rotation = new double[9 * count];
+        for (int i = 0; i < count; i++) {
+            CelestialBody current = this.bodies[i];
+            this.indices.put(current, i);
+            Orbit orbit = current.getOrbit();
+            if (orbit == null) {
+                this.parentIndex[i] = -1;
+                continue;
+            }
+            this.parentIndex[i] = this.indices.get(orbit.getParentBody());
+            OrbitKernel kernel = orbit.getKernel();
+            this.semiMajorAxis[i] = kernel.getSemiMajorAxis();
+            this.semiMinorAxis[i] = kernel.getSemiMinorAxis();
+            this.focusDistance[i] = kernel.getFocusDistance();
+            this.eccentricity[i] = kernel.getEccentricity();
+            this.keplerTables[i] = orbit.getKeplerTable();
+            this.meanMotion[i] = kernel.getMeanMotion();
+            this.phase[i] = kernel.getMeanAnomaly(0.0d, current.getOrbitalOffset());
+            kernel.getRotation(this.rotation, 9 * i);
+        }
+    }
+
+    /**
+     * Gets the number of compiled bodies, including the star.
+     *
+     * @return The number of bodies in this ephemeris.
+     */
+    public int getBodyCount() {
+        return this.bodies.length;
+    }
+
+    /**
+     * Gets the body stored at the given index.
+     *
+     * @param index The index of the body.
+     * @return The celestial body at that index.
+     */
+    public CelestialBody getBody(int index) {
+        return this.bodies[index];
+    }
+
+    /**
+     * Gets the compiled bodies in topological order.
+     *
+     * @return A list of all compiled bodies, the star being the first element.
+     */
+    public List<CelestialBody> getBodies() {
+        ArrayList<CelestialBody> result = new ArrayList<>(this.bodies.length);
+        for (CelestialBody body : this.bodies) {
+            result.add(body);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the index at which the given body is stored.
+     *
+     * @param body The body to look up.
+     * @return The index of the body, or -1 if it is not part of this ephemeris.
+     */
+    public int indexOf(CelestialBody body) {
+        Integer index = this.indices.get(body);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Gets the index of the body, which the body at the given index orbits.
+     *
+     * @param index The index of the orbiting body.
+     * @return The index of the parent body, or -1 for the star.
+     */
+    public int getParentIndex(int index) {
+        return this.parentIndex[index];
+    }
+
+    /**
+     * Gets the semi major axis of the orbit of a body.
+     *
+     * @param index The index of the body.
+     * @return The semi major axis, zero for the star.
+     */
+    public double getSemiMajorAxis(int index) {
+        return this.semiMajorAxis[index];
+    }
+
+    /**
+     * Gets the eccentricity of the orbit of a body.
+     *
+     * @param index The index of the body.
+     * @return The eccentricity, zero for the star.
+     */
+    public double getEccentricity(int index) {
+        return this.eccentricity[index];
+    }
+
+    /**
+     * Gets the mean motion of a body.
+     *
+     * @param index The index of the body.
+     * @return The mean anomaly the body advances per unit of time, zero for the star.
+     */
+    public double getMeanMotion(int index) {
+        return this.meanMotion[index];
+    }
+
+    /**
+     * Gets the mean anomaly of a body at time zero.
+     *
+     * @param index The index of the body.
+     * @return The mean anomaly at time zero, including the orbital offset, zero for the star.
+     */
+    public double getPhase(int index) {
+        return this.phase[index];
+    }
+
+    /**
+     * Calculates a position on the orbit of a body, relative to its parent body.
+     *
+     * @param index            The index of the body, must not be the star.
+     * @param eccentricAnomaly The eccentric anomaly of the position, in radians.
+     * @param out              The buffer to write the x, y and z coordinates into.
+     * @param offset           The index in the buffer at which the x-coordinate is written.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] getOrbitalPosition(int index, double eccentricAnomaly, double[] out, int offset) {
+        //The position serves as scratch space for sine and cosine, until it is written
+        FastTrig.sincos(eccentricAnomaly, out, offset);
+        return this.getOrbitalPosition(index, out[offset], out[offset + 1], out, offset);
+    }
+
+    /**
+     * Calculates a position on the orbit of a body, relative to its parent body, from the sine and cosine of its
+     * eccentric anomaly.
+     *
+     * @param index  The index of the body, must not be the star.
+     * @param sin    The sine of the eccentric anomaly of the position.
+     * @param cos    The cosine of the eccentric anomaly of the position.
+     * @param out    The buffer to write the x, y and z coordinates into.
+     * @param offset The index in the buffer at which the x-coordinate is written.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] getOrbitalPosition(int index, double sin, double cos, double[] out, int offset) {
+        double x = this.semiMinorAxis[index] * sin;
+        double y = this.focusDistance[index] - this.semiMajorAxis[index] * cos;
+        int m = 9 * index;
+        out[offset] = this.rotation[m] * x + this.rotation[m + 1] * y;
+        out[offset + 1] = this.rotation[m + 3] * x + this.rotation[m + 4] * y;
+        out[offset + 2] = this.rotation[m + 6] * x + this.rotation[m + 7] * y;
+        return out;
+    }
+
+    /**
+     * Calculates the position of a single body at the given time, only evaluating the body and its ancestors.
+     * The result agrees with {@link SystemEphemeris#evaluate(double, double[])} up to rounding.
+     *
+     * @param index  The index of the body.
+     * @param time   The absolute time at which to calculate the position.
+     * @param out    The buffer to write the x, y and z coordinates into.
+     * @param offset The index in the buffer at which the x-coordinate is written.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] evaluateBody(int index, double time, double[] out, int offset) {
+        double px = 0.0d, py = 0.0d, pz = 0.0d;
+        for (int i = index; i > 0; i = this.parentIndex[i]) {
+            double meanAnomaly = this.meanMotion[i] * time + this.phase[i];
+            KeplerTable table = this.keplerTables[i];
+            //The position serves as scratch space for sine and cosine, until it is written
+            if (table != null) {
+                FastTrig.sincos(table.eccentricAnomaly(meanAnomaly), out, offset);
+            } else {
+                KeplerSolver.eccentricAnomaly(meanAnomaly, this.eccentricity[i], out, offset);
+            }
+            double x = this.semiMinorAxis[i] * out[offset];
+            double y = this.focusDistance[i] - this.semiMajorAxis[i] * out[offset + 1];
+            int m = 9 * i;
+            px += this.rotation[m] * x + this.rotation[m + 1] * y;
+            py += this.rotation[m + 3] * x + this.rotation[m + 4] * y;
+            pz += this.rotation[m + 6] * x + this.rotation[m + 7] * y;
+        }
+        out[offset] = px;
+        out[offset + 1] = py;
+        out[offset + 2] = pz;
+        return out;
+    }
+
+    /**
+     * Calculates the positions of all bodies at the given time.
+     * The positions are written as consecutive x, y and z triplets in the order of the bodies, i.e. the position of
+     * the body at index i is stored at out[3i], out[3i+1] and out[3i+2].
+     *
+     * @param time The absolute time at which to calculate the positions, see {@link CelestialBody#getPosition(double)}.
+     * @param out  The buffer to write the positions into, must hold at least three values per body.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] evaluate(double time, double[] out) {
+        return this.evaluate(time, out, 0);
+    }
+
+    /**
+     * Calculates the positions of all bodies at the given time, see {@link SystemEphemeris#evaluate(double, double[])}.
+     *
+     * @param time   The absolute time at which to calculate the positions.
+     * @param out    The buffer to write the positions into.
+     * @param offset The index in the buffer at which the position of the star is written.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] evaluate(double time, double[] out, int offset) {
+        if (out.length - offset < 3 * this.bodies.length) {
+            throw new IllegalArgumentException("The buffer can not hold the positions of " + this.bodies.length + " bodies.");
+        }
+        out[offset] = 0.0d;
+        out[offset + 1] = 0.0d;
+        out[offset + 2] = 0.0d;
+        for (int i = 1; i < this.bodies.length; i++) {
+            double meanAnomaly = this.meanMotion[i] * time + this.phase[i];
+            int o = offset + 3 * i;
+            KeplerTable table = this.keplerTables[i];
+            //The position of the body serves as scratch space for sine and cosine, until it is written
+            if (table != null) {
+                FastTrig.sincos(table.eccentricAnomaly(meanAnomaly), out, o);
+            } else {
+                KeplerSolver.eccentricAnomaly(meanAnomaly, this.eccentricity[i], out, o);
+            }
+            double sin = out[o], cos = out[o + 1];
+            double x = this.semiMinorAxis[i] * sin;
+            double y = this.focusDistance[i] - this.semiMajorAxis[i] * cos;
+            int m = 9 * i;
+            int p = offset + 3 * this.parentIndex[i];
+            out[o] = out[p] + this.rotation[m] * x + this.rotation[m + 1] * y;
+            out[o + 1] = out[p + 1] + this.rotation[m + 3] * x + this.rotation[m + 4] * y;
+            out[o + 2] = out[p + 2] + this.rotation[m + 6] * x + this.rotation[m + 7] * y;
+        }
+        return out;
+    }
+
+}
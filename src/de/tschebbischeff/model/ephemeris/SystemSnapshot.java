@@ -0,0 +1,356 @@
+package de.tschebbischeff.model.ephemeris;
+
+import de.tschebbischeff.math.Quat4d;
+import de.tschebbischeff.math.Vector3d;
+import de.tschebbischeff.model.CelestialBody;
+
+import java.util.List;
+
+/**
+ * An immutable copy of the state of a whole system, which can be shared freely between threads.
+ * Unlike the model itself, a snapshot never writes to any cache while it is queried, so any number of threads can
+ * read from it in parallel without locking. Each query either allocates its own result or writes into a buffer
+ * provided by the caller, which must then be owned by the calling thread.
+ * A snapshot must be created on the thread which modifies the model, see {@link SnapshotPublisher} to hand
+ * snapshots over to reading threads.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public final class SystemSnapshot {
+
+    /**
+     * The compiled orbits of the system.
+     */
+    private final SystemEphemeris ephemeris;
+    /**
+     * The generation of each body at the time the snapshot was taken.
+     */
+    private final long[] generation;
+    /**
+     * The radius of each body.
+     */
+    private final double[] radius;
+    /**
+     * The mass of each body.
+     */
+    private final double[] mass;
+    /**
+     * The sidereal period of each body, zero for the star.
+     */
+    private final double[] siderealPeriod;
+    /**
+     * The rotational period of each body.
+     */
+    private final double[] rotationalPeriod;
+    /**
+     * The rotational offset of each body.
+     */
+    private final double[] rotationalOffset;
+    /**
+     * The global orientation of each body, stored as four consecutive values w, i, j and k.
+     */
+    private final double[] orientation;
+
+    /**
+     * Takes a snapshot of the system the given body belongs to.
+     *
+     * @param body Any body of the system, the whole system of its star is copied.
+     */
+    public SystemSnapshot(CelestialBody body) {
+        this.ephemeris = new SystemEphemeris(body);
+        int count = this.ephemeris.getBodyCount();
+        this.generation = new long[count];
+        this.radius = new double[count];
+        this.mass = new double[count];
+        this.siderealPeriod = new double[count];
+        this.rotationalPeriod = new double[count];
+        this.rotationalOffset = new double[count];
+        this.orientation = new double[4 * count];
+        for (int i = 0; i < count; i++) {
+            CelestialBody current = this.ephemeris.getBody(i);
+            this.generation[i] = current.getGeneration();
+            this.radius[i] = current.getRadius();
+            this.mass[i] = current.getMass();
+            this.siderealPeriod[i] = current.getSiderealPeriod();
+            this.rotationalPeriod[i] = current.getRotationalPeriod();
+            this.rotationalOffset[i] = current.getRotationalOffset();
+            Quat4d globalOrientation = current.getGlobalOrientation();
+            this.orientation[4 * i] = globalOrientation.getW();
+            this.orientation[4 * i + 1] = globalOrientation.getI();
+            this.orientation[4 * i + 2] = globalOrientation.getJ();
+            this.orientation[4 * i + 3] = globalOrientation.getK();
+        }
+    }
+
+    /**
+     * Checks whether the model was modified since this snapshot was taken.
+     * Like the snapshot's creation, this reads the model and must be called on the thread which modifies it.
+     * Bodies added to the system afterwards are not detected.
+     *
+     * @return True if no body of the system was modified since, false otherwise.
+     */
+    public boolean isCurrent() {
+        for (int i = 0; i < this.generation.length; i++) {
+            if (this.ephemeris.getBody(i).getGeneration() != this.generation[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the compiled orbits of this snapshot, which are immutable as well.
+     *
+     * @return The ephemeris of this snapshot.
+     */
+    public SystemEphemeris getEphemeris() {
+        return this.ephemeris;
+    }
+
+    /**
+     * Gets the number of bodies in this snapshot, including the star.
+     *
+     * @return The number of bodies.
+     */
+    public int getBodyCount() {
+        return this.ephemeris.getBodyCount();
+    }
+
+    /**
+     * Gets the body stored at the given index. The body is part of the live model and must only be used to
+     * identify it, not to query it from a reading thread.
+     *
+     * @param index The index of the body.
+     * @return The celestial body at that index.
+     */
+    public CelestialBody getBody(int index) {
+        return this.ephemeris.getBody(index);
+    }
+
+    /**
+     * Gets the bodies in this snapshot, see {@link SystemSnapshot#getBody(int)}.
+     *
+     * @return A list of all bodies, the star being the first element.
+     */
+    public List<CelestialBody> getBodies() {
+        return this.ephemeris.getBodies();
+    }
+
+    /**
+     * Gets the index at which the given body is stored.
+     *
+     * @param body The body to look up.
+     * @return The index of the body, or -1 if it is not part of this snapshot.
+     */
+    public int indexOf(CelestialBody body) {
+        return this.ephemeris.indexOf(body);
+    }
+
+    /**
+     * Gets the index of the body, which the body at the given index orbits.
+     *
+     * @param index The index of the orbiting body.
+     * @return The index of the parent body, or -1 for the star.
+     */
+    public int getParentIndex(int index) {
+        return this.ephemeris.getParentIndex(index);
+    }
+
+    /**
+     * Gets the radius of a body.
+     *
+     * @param index The index of the body.
+     * @return The radius of the body.
+     */
+    public double getRadius(int index) {
+        return this.radius[index];
+    }
+
+    /**
+     * Gets the mass of a body.
+     *
+     * @param index The index of the body.
+     * @return The mass of the body.
+     */
+    public double getMass(int index) {
+        return this.mass[index];
+    }
+
+    /**
+     * Gets the sidereal period of a body.
+     *
+     * @param index The index of the body.
+     * @return The sidereal period of the body, zero for the star.
+     */
+    public double getSiderealPeriod(int index) {
+        return this.siderealPeriod[index];
+    }
+
+    /**
+     * Gets the rotational period of a body.
+     *
+     * @param index The index of the body.
+     * @return The rotational period of the body.
+     */
+    public double getRotationalPeriod(int index) {
+        return this.rotationalPeriod[index];
+    }
+
+    /**
+     * Gets the rotational offset of a body.
+     *
+     * @param index The index of the body.
+     * @return The rotational offset of the body.
+     */
+    public double getRotationalOffset(int index) {
+        return this.rotationalOffset[index];
+    }
+
+    /**
+     * Gets the global orientation of a body, see {@link CelestialBody#getGlobalOrientation()}.
+     *
+     * @param index The index of the body.
+     * @return The global orientation of the body as a new quaternion.
+     */
+    public Quat4d getGlobalOrientation(int index) {
+        return this.getGlobalOrientation(index, Quat4d.zero());
+    }
+
+    /**
+     * Gets the global orientation of a body, without allocating a new quaternion.
+     *
+     * @param index The index of the body.
+     * @param dest  The quaternion to store the orientation in.
+     * @return The quaternion dest, containing the global orientation of the body.
+     */
+    public Quat4d getGlobalOrientation(int index, Quat4d dest) {
+        return dest.set(this.orientation[4 * index], this.orientation[4 * index + 1], this.orientation[4 * index + 2], this.orientation[4 * index + 3]);
+    }
+
+    /**
+     * Calculates the total orientation of a body including its rotation around itself, see
+     * {@link CelestialBody#getGlobalRotation(double)}.
+     *
+     * @param index The index of the body.
+     * @param time  The absolute time at which to calculate the rotation.
+     * @return The orientation of the body in a global coordinate system.
+     */
+    public Quat4d getGlobalRotation(int index, double time) {
+        return Quat4d.identity().yaw(360d * (time / this.rotationalPeriod[index] + this.rotationalOffset[index])).mult(this.getGlobalOrientation(index));
+    }
+
+    /**
+     * Calculates the total orientation of a body including its rotation around itself, without allocating a new
+     * quaternion. See {@link SystemSnapshot#getGlobalRotation(int, double)}.
+     *
+     * @param index The index of the body.
+     * @param time  The absolute time at which to calculate the rotation.
+     * @param dest  The quaternion to store the rotation in.
+     * @return The quaternion dest, containing the orientation of the body in a global coordinate system.
+     */
+    public Quat4d getGlobalRotation(int index, double time, Quat4d dest) {
+        //The global orientation is a unit quaternion, so rotating it directly equals multiplying it with a rotation
+        return this.getGlobalOrientation(index, dest).yaw(360d * (time / this.rotationalPeriod[index] + this.rotationalOffset[index]), dest);
+    }
+
+    /**
+     * Creates a buffer, which can hold the positions of all bodies of this snapshot.
+     * A buffer must not be shared between threads evaluating at the same time, each thread should create its own.
+     *
+     * @return A new buffer for {@link SystemSnapshot#evaluate(double, double[])}.
+     */
+    public double[] createBuffer() {
+        return new double[3 * this.ephemeris.getBodyCount()];
+    }
+
+    /**
+     * Calculates the positions of all bodies at the given time into a buffer owned by the caller, see
+     * {@link SystemEphemeris#evaluate(double, double[])}.
+     *
+     * @param time The absolute time at which to calculate the positions.
+     * @param out  The buffer to write the positions into.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] evaluate(double time, double[] out) {
+        return this.ephemeris.evaluate(time, out);
+    }
+
+    /**
+     * Calculates the positions of all bodies at the given time.
+     *
+     * @param time The absolute time at which to calculate the positions.
+     * @return A new evaluation holding the positions of all bodies.
+     */
+    public Evaluation evaluate(double time) {
+        return new Evaluation(time, this.ephemeris.evaluate(time, this.createBuffer()));
+    }
+
+    /**
+     * The positions of all bodies of a snapshot at a single point in time.
+     */
+    public static final class Evaluation {
+
+        /**
+         * The time at which the positions were calculated.
+         */
+        private final double time;
+        /**
+         * The positions of all bodies as consecutive x, y and z triplets.
+         */
+        private final double[] positions;
+
+        /**
+         * Creates a new evaluation.
+         *
+         * @param time      The time at which the positions were calculated.
+         * @param positions The calculated positions, which are not copied.
+         */
+        private Evaluation(double time, double[] positions) {
+            this.time = time;
+            this.positions = positions;
+        }
+
+        /**
+         * Gets the time at which the positions were calculated.
+         *
+         * @return The absolute time of this evaluation.
+         */
+        public double getTime() {
+            return this.time;
+        }
+
+        /**
+         * Gets the position of a body.
+         *
+         * @param index The index of the body.
+         * @return The position of the body as a new vector.
+         */
+        public Vector3d getPosition(int index) {
+            return this.getPosition(index, new Vector3d(0.0d, 0.0d, 0.0d));
+        }
+
+        /**
+         * Gets the position of a body, without allocating a new vector.
+         *
+         * @param index The index of the body.
+         * @param dest  The vector to store the position in.
+         * @return The vector dest, containing the position of the body.
+         */
+        public Vector3d getPosition(int index, Vector3d dest) {
+            return dest.set(this.positions[3 * index], this.positions[3 * index + 1], this.positions[3 * index + 2]);
+        }
+
+        /**
+         * Copies the positions of all bodies into the given buffer.
+         *
+         * @param out The buffer to copy the positions into, as consecutive x, y and z triplets.
+         * @return The buffer out for fluent method calls.
+         */
+        public double[] getPositions(double[] out) {
+            System.arraycopy(this.positions, 0, out, 0, this.positions.length);
+            return out;
+        }
+    }
+
+}
@@ -0,0 +1,322 @@
+package de.tschebbischeff.model.ephemeris;
+
+import de.tschebbischeff.model.CelestialBody;
+import de.tschebbischeff.model.KeplerSolver;
+
+/**
+ * Advances a system through time in constant steps, without evaluating any trigonometric function per step.
+ * With a constant step, the mean anomaly and the rotation angle of every body advance by a constant angle, so their
+ * sine and cosine are carried forward with the angle addition theorems. Kepler's equation is then solved for the
+ * small difference between the eccentric and the mean anomaly, starting from the solution of the previous step,
+ * see {@link KeplerSolver#anomalyDifference(double, double, double, double, double[], int)}. If that solution is too
+ * far off, e.g. for large steps on eccentric orbits, the solver starts over, so any step length can be used.
+ * <p>
+ * Each rotation by the angle addition theorems changes the length of the rotated pair of sine and cosine by a few
+ * units in the last place, which is removed by renormalizing every {@value #RENORMALIZATION_INTERVAL} steps. The
+ * angle itself drifts by at most a few units in the last place per step. After every
+ * {@link SystemStepper#setResynchronizationInterval(long) resynchronization interval}, all angles are calculated
+ * directly again, which bounds the drift. With the default interval of {@value #DEFAULT_RESYNCHRONIZATION_INTERVAL}
+ * steps, the position of each body relative to its parent deviates from
+ * {@link SystemEphemeris#evaluate(double, double[])} by less than 1e-11 of its semi-major axis for any step and
+ * eccentricity, as long as the mean anomaly stays below about 1e4 radians, and the rotations deviate by less than
+ * 1e-12 from {@link SystemSnapshot#getGlobalRotation(int, double)}. For larger mean anomalies, the rounding of the
+ * mean anomaly itself dominates, which limits the direct evaluation just as well, and both deviate by a few 1e-15 of
+ * the mean anomaly.
+ * <p>
+ * A stepper holds mutable state and must not be shared between threads.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class SystemStepper {
+
+    /**
+     * The number of steps after which the pairs of sine and cosine are renormalized.
+     */
+    public static final int RENORMALIZATION_INTERVAL = 64;
+    /**
+     * The default number of steps after which all angles are calculated directly.
+     */
+    public static final long DEFAULT_RESYNCHRONIZATION_INTERVAL = 1L << 16;
+
+    /**
+     * The snapshot of the stepped system.
+     */
+    private final SystemSnapshot snapshot;
+    /**
+     * The ephemeris of the stepped system.
+     */
+    private final SystemEphemeris ephemeris;
+    /**
+     * The time of the first step.
+     */
+    private final double start;
+    /**
+     * The length of a step.
+     */
+    private final double timeStep;
+    /**
+     * The number of steps taken since the start.
+     */
+    private long steps = 0L;
+    /**
+     * The number of steps after which all angles are calculated directly, zero to never resynchronize.
+     */
+    private long resynchronizationInterval = DEFAULT_RESYNCHRONIZATION_INTERVAL;
+    /**
+     * The sine of the current mean anomaly of each body.
+     */
+    private final double[] meanSin;
+    /**
+     * The cosine of the current mean anomaly of each body.
+     */
+    private final double[] meanCos;
+    /**
+     * The sine of the angle the mean anomaly of each body advances per step.
+     */
+    private final double[] meanStepSin;
+    /**
+     * The cosine of the angle the mean anomaly of each body advances per step.
+     */
+    private final double[] meanStepCos;
+    /**
+     * The difference between the eccentric and the mean anomaly of each body at the last evaluation, NaN before the
+     * first evaluation.
+     */
+    private final double[] difference;
+    /**
+     * The sine of half the current rotation angle of each body around itself.
+     */
+    private final double[] spinSin;
+    /**
+     * The cosine of half the current rotation angle of each body around itself.
+     */
+    private final double[] spinCos;
+    /**
+     * The sine of half the angle each body rotates per step.
+     */
+    private final double[] spinStepSin;
+    /**
+     * The cosine of half the angle each body rotates per step.
+     */
+    private final double[] spinStepCos;
+    /**
+     * The global orientation of each body, stored as four consecutive values w, i, j and k.
+     */
+    private final double[] orientation;
+    /**
+     * Receives the sine and cosine of an eccentric anomaly.
+     */
+    private final double[] sinCos = new double[2];
+
+    /**
+     * Creates a new stepper on a snapshot of the system of the given body.
+     *
+     * @param body     Any body of the system, the whole system of its star is stepped.
+     * @param start    The absolute time of the first step.
+     * @param timeStep The length of a step.
+     */
+    public SystemStepper(CelestialBody body, double start, double timeStep) {
+        this(body.createSnapshot(), start, timeStep);
+    }
+
+    /**
+     * Creates a new stepper.
+     *
+     * @param snapshot The snapshot of the stepped system.
+     * @param start    The absolute time of the first step.
+     * @param timeStep The length of a step.
+     */
+    public SystemStepper(SystemSnapshot snapshot, double start, double timeStep) {
+        int count = snapshot.getBodyCount();
+        this.snapshot = snapshot;
+        this.ephemeris = snapshot.getEphemeris();
+        this.start = start;
+        this.timeStep = timeStep;
+        this.meanSin = new double[count];
+        this.meanCos = new double[count];
+        this.meanStepSin = new double[count];
+        this.meanStepCos = new double[count];
+        this.difference = new double[count];
+        this.spinSin = new double[count];
+        this.spinCos = new double[count];
+        this.spinStepSin = new double[count];
+        this.spinStepCos = new double[count];
+        this.orientation = new double[4 * count];
+        for (int i = 0; i < count; i++) {
+            double meanAngle = this.ephemeris.getMeanMotion(i) * timeStep;
+            this.meanStepSin[i] = Math.sin(meanAngle);
+            this.meanStepCos[i] = Math.cos(meanAngle);
+            double spinAngle = Math.PI * timeStep / snapshot.getRotationalPeriod(i);
+            this.spinStepSin[i] = Math.sin(spinAngle);
+            this.spinStepCos[i] = Math.cos(spinAngle);
+            this.difference[i] = Double.NaN;
+            this.orientation[4 * i] = snapshot.getGlobalOrientation(i).getW();
+            this.orientation[4 * i + 1] = snapshot.getGlobalOrientation(i).getI();
+            this.orientation[4 * i + 2] = snapshot.getGlobalOrientation(i).getJ();
+            this.orientation[4 * i + 3] = snapshot.getGlobalOrientation(i).getK();
+        }
+        this.resynchronize();
+    }
+
+    /**
+     * Gets the snapshot of the stepped system.
+     *
+     * @return The snapshot this stepper was created from.
+     */
+    public SystemSnapshot getSnapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * Gets the length of a step.
+     *
+     * @return The time between two steps.
+     */
+    public double getTimeStep() {
+        return this.timeStep;
+    }
+
+    /**
+     * Gets the number of steps taken since the start.
+     *
+     * @return The number of steps.
+     */
+    public long getSteps() {
+        return this.steps;
+    }
+
+    /**
+     * Gets the current time. It is calculated from the number of steps, so it does not accumulate rounding errors.
+     *
+     * @return The absolute time of the current step.
+     */
+    public double getTime() {
+        return this.start + this.steps * this.timeStep;
+    }
+
+    /**
+     * Gets the number of steps after which all angles are calculated directly.
+     *
+     * @return The resynchronization interval, zero if the angles are never calculated directly again.
+     */
+    public long getResynchronizationInterval() {
+        return this.resynchronizationInterval;
+    }
+
+    /**
+     * Sets the number of steps after which all angles are calculated directly. Longer intervals save trigonometric
+     * functions, but the angles drift further from their exact values. Defaults to
+     * {@value #DEFAULT_RESYNCHRONIZATION_INTERVAL}.
+     *
+     * @param resynchronizationInterval The new interval, zero to never calculate the angles directly again.
+     * @return This stepper for fluent method calls.
+     */
+    public SystemStepper setResynchronizationInterval(long resynchronizationInterval) {
+        if (resynchronizationInterval < 0L) {
+            throw new IllegalArgumentException("The resynchronization interval must not be negative.");
+        }
+        this.resynchronizationInterval = resynchronizationInterval;
+        return this;
+    }
+
+    /**
+     * Advances all bodies by one step.
+     *
+     * @return This stepper for fluent method calls.
+     */
+    public SystemStepper advance() {
+        this.steps++;
+        if (this.resynchronizationInterval > 0L && this.steps % this.resynchronizationInterval == 0L) {
+            this.resynchronize();
+            return this;
+        }
+        boolean renormalize = this.steps % RENORMALIZATION_INTERVAL == 0L;
+        for (int i = 0; i < this.meanSin.length; i++) {
+            double sin = this.meanSin[i] * this.meanStepCos[i] + this.meanCos[i] * this.meanStepSin[i];
+            double cos = this.meanCos[i] * this.meanStepCos[i] - this.meanSin[i] * this.meanStepSin[i];
+            double spinSin = this.spinSin[i] * this.spinStepCos[i] + this.spinCos[i] * this.spinStepSin[i];
+            double spinCos = this.spinCos[i] * this.spinStepCos[i] - this.spinSin[i] * this.spinStepSin[i];
+            if (renormalize) {
+                //One Newton step towards unit length, the length only differs from one by rounding errors
+                double scale = 1.5d - 0.5d * (sin * sin + cos * cos);
+                sin *= scale;
+                cos *= scale;
+                double spinScale = 1.5d - 0.5d * (spinSin * spinSin + spinCos * spinCos);
+                spinSin *= spinScale;
+                spinCos *= spinScale;
+            }
+            this.meanSin[i] = sin;
+            this.meanCos[i] = cos;
+            this.spinSin[i] = spinSin;
+            this.spinCos[i] = spinCos;
+        }
+        return this;
+    }
+
+    /**
+     * Calculates all angles directly from the current time.
+     */
+    private void resynchronize() {
+        double time = this.getTime();
+        for (int i = 0; i < this.meanSin.length; i++) {
+            double meanAnomaly = this.ephemeris.getMeanMotion(i) * time + this.ephemeris.getPhase(i);
+            this.meanSin[i] = Math.sin(meanAnomaly);
+            this.meanCos[i] = Math.cos(meanAnomaly);
+            double half = Math.PI * (time / this.snapshot.getRotationalPeriod(i) + this.snapshot.getRotationalOffset(i));
+            this.spinSin[i] = Math.sin(half);
+            this.spinCos[i] = Math.cos(half);
+        }
+    }
+
+    /**
+     * Calculates the positions of all bodies at the current step.
+     *
+     * @param out The buffer to write the positions into, in the layout of
+     *            {@link SystemEphemeris#evaluate(double, double[])}.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] evaluate(double[] out) {
+        if (out.length < 3 * this.meanSin.length) {
+            throw new IllegalArgumentException("The buffer can not hold the positions of " + this.meanSin.length + " bodies.");
+        }
+        out[0] = 0.0d;
+        out[1] = 0.0d;
+        out[2] = 0.0d;
+        for (int i = 1; i < this.meanSin.length; i++) {
+            this.difference[i] = KeplerSolver.anomalyDifference(this.meanSin[i], this.meanCos[i], this.ephemeris.getEccentricity(i), this.difference[i], this.sinCos, 0);
+            int o = 3 * i;
+            int p = 3 * this.ephemeris.getParentIndex(i);
+            this.ephemeris.getOrbitalPosition(i, this.sinCos[0], this.sinCos[1], out, o);
+            out[o] += out[p];
+            out[o + 1] += out[p + 1];
+            out[o + 2] += out[p + 2];
+        }
+        return out;
+    }
+
+    /**
+     * Calculates the global rotations of all bodies at the current step, see
+     * {@link SystemSnapshot#getGlobalRotation(int, double)}.
+     *
+     * @param out The buffer to write the rotations into, as four consecutive values w, i, j and k per body.
+     * @return The buffer out for fluent method calls.
+     */
+    public double[] evaluateRotations(double[] out) {
+        if (out.length < 4 * this.meanSin.length) {
+            throw new IllegalArgumentException("The buffer can not hold the rotations of " + this.meanSin.length + " bodies.");
+        }
+        for (int i = 0; i < this.meanSin.length; i++) {
+            //The product of a rotation around the z-axis with the global orientation, written out
+            double c = this.spinCos[i], s = this.spinSin[i];
+            int o = 4 * i;
+            double w = this.orientation[o], x = this.orientation[o + 1], y = this.orientation[o + 2], z = this.orientation[o + 3];
+            out[o] = c * w - s * z;
+            out[o + 1] = c * x - s * y;
+            out[o + 2] = c * y + s * x;
+            out[o + 3] = c * z + s * w;
+        }
+        return out;
+    }
+
+}
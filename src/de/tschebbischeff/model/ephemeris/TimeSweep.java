@@ -0,0 +1,207 @@
+package de.tschebbischeff.model.ephemeris;
+
+import de.tschebbischeff.model.CelestialBody;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Sweeps a system over an evenly sampled time range in parallel.
+ * The range is split recursively into chunks, which are processed by the workers of a {@link ForkJoinPool}.
+ * Every chunk evaluates the positions through a shared {@link SystemEphemeris} into its own buffer, so no mutable
+ * state of the model is touched during the sweep. Each chunk accumulates its samples into a result of its own,
+ * the results of all chunks are merged pairwise afterwards.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class TimeSweep {
+
+    /**
+     * Receives the samples of a sweep.
+     *
+     * @param <A> The type of the result the samples are accumulated in.
+     */
+    @FunctionalInterface
+    public interface Accumulator<A> {
+
+        /**
+         * Accumulates a single sample into a result.
+         *
+         * @param result    The result of the chunk the sample belongs to.
+         * @param time      The time of the sample.
+         * @param positions The positions of all bodies at that time, in the layout of
+         *                  {@link SystemEphemeris#evaluate(double, double[])}. The buffer is reused for the next
+         *                  sample and must not be retained.
+         */
+        void accept(A result, double time, double[] positions);
+    }
+
+    /**
+     * The ephemeris used to evaluate the positions.
+     */
+    private final SystemEphemeris ephemeris;
+    /**
+     * The pool executing the sweep.
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    /**
+     * The maximum number of samples a single chunk processes, before it is split further.
+     */
+    private long chunkSize = 65536L;
+
+    /**
+     * Creates a new sweep over the system of the given body.
+     *
+     * @param body Any body of the system, the whole system of its star is swept.
+     */
+    public TimeSweep(CelestialBody body) {
+        this(new SystemEphemeris(body));
+    }
+
+    /**
+     * Creates a new sweep over an already compiled system.
+     *
+     * @param ephemeris The compiled system to sweep.
+     */
+    public TimeSweep(SystemEphemeris ephemeris) {
+        this.ephemeris = ephemeris;
+    }
+
+    /**
+     * Gets the ephemeris used to evaluate the positions, e.g. to look up the index of a body.
+     *
+     * @return The compiled system this sweep runs on.
+     */
+    public SystemEphemeris getEphemeris() {
+        return this.ephemeris;
+    }
+
+    /**
+     * Sets the pool executing the sweep. The common pool is used by default.
+     *
+     * @param pool The pool to execute the sweep in.
+     * @return This sweep for fluent method calls.
+     */
+    public TimeSweep setPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of samples a single chunk processes. The minimum value is one.
+     *
+     * @param chunkSize The new maximum number of samples per chunk.
+     * @return This sweep for fluent method calls.
+     */
+    public TimeSweep setChunkSize(long chunkSize) {
+        this.chunkSize = Math.max(1L, chunkSize);
+        return this;
+    }
+
+    /**
+     * Runs the sweep. The samples are placed evenly on the interval [t0, t1], including both ends.
+     * The accumulator is called concurrently for different chunks, but never concurrently for the same result.
+     *
+     * @param t0          The time of the first sample.
+     * @param t1          The time of the last sample.
+     * @param samples     The number of samples, must be at least one.
+     * @param supplier    Creates an empty result for each chunk.
+     * @param accumulator Accumulates a sample into the result of its chunk.
+     * @param combiner    Merges the results of two adjacent chunks, the earlier one being the first argument.
+     * @param <A>         The type of the result.
+     * @return The merged result of all chunks.
+     */
+    public <A> A run(double t0, double t1, long samples, Supplier<A> supplier, Accumulator<A> accumulator, BinaryOperator<A> combiner) {
+        if (samples < 1) {
+            throw new IllegalArgumentException("A sweep needs at least one sample.");
+        }
+        double step = samples > 1 ? (t1 - t0) / (samples - 1) : 0.0d;
+        return this.pool.invoke(new Chunk<>(t0, step, 0L, samples, supplier, accumulator, combiner));
+    }
+
+    /**
+     * A range of samples, which is either processed directly or split in halves.
+     *
+     * @param <A> The type of the result.
+     */
+    private class Chunk<A> extends RecursiveTask<A> {
+
+        /**
+         * The version of the serialized form, which is never used, as tasks are not serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The time of the first sample of the whole sweep.
+         */
+        private final double t0;
+        /**
+         * The time between two consecutive samples.
+         */
+        private final double step;
+        /**
+         * The index of the first sample.
+         */
+        private final long from;
+        /**
+         * The index after the last sample.
+         */
+        private final long to;
+        /**
+         * Creates an empty result for each chunk.
+         */
+        private final Supplier<A> supplier;
+        /**
+         * Accumulates a sample into the result of its chunk.
+         */
+        private final Accumulator<A> accumulator;
+        /**
+         * Merges the results of two adjacent chunks.
+         */
+        private final BinaryOperator<A> combiner;
+
+        /**
+         * Creates a new range of samples.
+         *
+         * @param t0          The time of the first sample of the whole sweep.
+         * @param step        The time between two consecutive samples.
+         * @param from        The index of the first sample.
+         * @param to          The index after the last sample.
+         * @param supplier    Creates an empty result for each chunk.
+         * @param accumulator Accumulates a sample into the result of its chunk.
+         * @param combiner    Merges the results of two adjacent chunks, the earlier one being the first argument.
+         */
+        private Chunk(double t0, double step, long from, long to, Supplier<A> supplier, Accumulator<A> accumulator, BinaryOperator<A> combiner) {
+            this.t0 = t0;
+            this.step = step;
+            this.from = from;
+            this.to = to;
+            this.supplier = supplier;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected A compute() {
+            if (this.to - this.from <= TimeSweep.this.chunkSize) {
+                A result = this.supplier.get();
+                double[] positions = new double[3 * TimeSweep.this.ephemeris.getBodyCount()];
+                for (long sample = this.from; sample < this.to; sample++) {
+                    double time = this.t0 + sample * this.step;
+                    TimeSweep.this.ephemeris.evaluate(time, positions);
+                    this.accumulator.accept(result, time, positions);
+                }
+                return result;
+            }
+            long middle = this.from + (this.to - this.from) / 2;
+            Chunk<A> later = new Chunk<>(this.t0, this.step, middle, this.to, this.supplier, this.accumulator, this.combiner);
+            later.fork();
+            A earlier = new Chunk<>(this.t0, this.step, this.from, middle, this.supplier, this.accumulator, this.combiner).compute();
+            return this.combiner.apply(earlier, later.join());
+        }
+    }
+
+}
@@ -1,22 +1,28 @@
 package de.tschebbischeff.visualizer;
 
 import com.andreaskahler.math.Matrix4f;
-import com.andreaskahler.math.Vector4f;
 import com.silvertiger.sphere.IcoSphereCreator;
+import de.tschebbischeff.math.Matrix3d;
 import de.tschebbischeff.math.Quat4d;
+import de.tschebbischeff.math.ScratchPool;
+import de.tschebbischeff.math.TransformKernels;
 import de.tschebbischeff.math.Vector3d;
 import de.tschebbischeff.model.CelestialBody;
 import de.tschebbischeff.model.Orbit;
+import de.tschebbischeff.model.OrbitKernel;
 import de.tschebbischeff.model.Scales;
+import org.lwjgl.BufferUtils;
 import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.glfw.GLFWVidMode;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.system.MemoryStack;
 
 import java.awt.*;
-import java.nio.DoubleBuffer;
+import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -46,6 +52,24 @@ public class GlVisualizer {
      * The width of the created window.
      */
     private final int WINDOW_WIDTH;
+    /**
+     * The vertical field of view of the camera, in degrees.
+     */
+    private static final float FIELD_OF_VIEW = 90f;
+    /**
+     * The largest distance in pixels by which an orbit or the outline of a body may deviate from its drawn
+     * approximation, when the level of detail is adapted.
+     */
+    private static final double LOD_PIXEL_ERROR = 0.5d;
+    /**
+     * How far below the next lower level the ideal level of detail has to fall, before it is lowered.
+     * Avoids switching back and forth between two levels, when the ideal level hovers around their boundary.
+     */
+    private static final double LOD_HYSTERESIS = 0.25d;
+    /**
+     * The angle between two neighbouring vertices of an icosahedron, in radians.
+     */
+    private static final double ICOSAHEDRON_EDGE_ANGLE = 1.1071487177940904d;
     /**
      * The handle for the OpenGL window.
      */
@@ -76,12 +100,17 @@ public class GlVisualizer {
     private int celestialBodyColorIndex = 0;
 
     /**
-     * VAO for the three spatial axes, when drawn as lines, represent a coordinate axis
+     * The three spatial axes, drawn as lines once for each celestial body to show its orientation
+     */
+    private InstancedMesh coordinateSystems;
+
+    /**
+     * The shared unit sphere meshes, by their icosphere level
      */
-    private int coordinateSystemVao;
+    private HashMap<Integer, InstancedMesh> sphereMeshes = new HashMap<>();
 
     /**
-     * The celestial bodies to draw and their VAOs
+     * The celestial bodies to draw and the icosphere level of their mesh
      */
     private HashMap<CelestialBody, Integer> celestialBodies = new HashMap<>();
 
@@ -91,14 +120,42 @@ public class GlVisualizer {
     private ArrayList<CelestialBody> celestialBodyOrder = new ArrayList<>();
 
     /**
-     * The number of vertices of a celestial bodies icosphere.
+     * The color of each celestial body, as red, green, blue and alpha.
      */
-    private HashMap<CelestialBody, Integer> celestialBodyVertexCounts = new HashMap<>();
+    private HashMap<CelestialBody, float[]> celestialBodyColors = new HashMap<>();
 
     /**
-     * The orbits to draw and their VAOs
+     * The orbits to draw and their colors, as red, green, blue and alpha.
      */
-    private HashMap<Orbit, Integer> orbits = new HashMap<>();
+    private HashMap<Orbit, float[]> orbits = new HashMap<>();
+
+    /**
+     * The current level of detail of each orbit, there are 2^level vertices drawn for it.
+     */
+    private HashMap<Orbit, Integer> orbitLevels = new HashMap<>();
+
+    /**
+     * The orbit meshes, by their level of detail. They have no vertex data, the orbit shader generates the orbits
+     * from their elements instead, so all orbits of the same level are drawn in a single draw call.
+     */
+    private HashMap<Integer, InstancedMesh> orbitMeshes = new HashMap<>();
+
+    /**
+     * Whether the level of detail of orbits and celestial bodies is adapted to their size on screen, otherwise
+     * everything is drawn at full resolution.
+     */
+    private boolean adaptiveLevelOfDetail = true;
+
+    /**
+     * The number of vertices and triangles drawn in the last frame, and the number saved compared to drawing
+     * everything at full resolution, in that order.
+     */
+    private long[] levelOfDetailStatistics = new long[4];
+
+    /**
+     * The time since the window title last showed the level of detail statistics, in seconds.
+     */
+    private double levelOfDetailReportTime = 0.0d;
 
     /**
      * Scales the rendered bodies to make them more visible on their orbits.
@@ -106,15 +163,15 @@ public class GlVisualizer {
     private double scaleBodies = 1.0d;
 
     /**
-     * Orbit resolution, how many vertices per orbit should be drawn.
-     * There will be (2^orbitResolution) vertices to build the elliptical orbit.
+     * Orbit resolution, how many vertices per orbit should be drawn at most.
+     * There will be up to (2^orbitResolution) vertices to build the elliptical orbit.
      * orbitResolution has to be at least 3.
      */
     private int orbitResolution = 7;
 
     /**
-     * Celestial body resolution, how many angles per sphere should be drawn.
-     * celestialBodyResolution has to be at least 1.
+     * Celestial body resolution, the highest icosphere level drawn.
+     * celestialBodyResolution has to be at least 0.
      */
     private int celestialBodyResolution = 2;
 
@@ -188,6 +245,41 @@ public class GlVisualizer {
      */
     private double cameraTurnSpeed = 5.0d;
 
+    /**
+     * The size of a vertex in the packed format, see {@link GlVisualizer#putPackedVertex(ByteBuffer, float, float, float, Color)}.
+     */
+    private static final int PACKED_VERTEX_BYTES = 3 * Float.BYTES + 4;
+
+    /**
+     * The rotation which makes the model level on the x-y plane, row-first.
+     */
+    private static final double[] LEVEL_ROTATION = Quat4d.identity().roll(90).toRotationMatrix().get(new double[9], 0);
+
+    /**
+     * Scratch space for the rotation of an orbital plane, row-first.
+     */
+    private final double[] orbitRotationScratch = new double[9];
+
+    /**
+     * Scratch space for three by three matrices when building the view and model matrices, row-first.
+     */
+    private final double[] rotationScratch = new double[9];
+
+    /**
+     * Scratch space for a translation when building the view and model matrices.
+     */
+    private final double[] translationScratch = new double[3];
+
+    /**
+     * The view matrix, column-first, rebuilt each frame.
+     */
+    private final float[] viewMatrix = new float[16];
+
+    /**
+     * The model matrix, column-first, rebuilt for each draw call.
+     */
+    private final float[] modelMatrix = new float[16];
+
     /**
      * The cursors x-position.
      */
@@ -199,34 +291,64 @@ public class GlVisualizer {
     private double[] yPos = new double[]{0d};
 
     /**
-     * The position of the model matrix in the shader.
-     */
-    private int uniformModelMatrix;
-
-    /**
-     * The position of the view matrix in the shader.
+     * The position of the view matrix in the orbit shader.
      */
     private int uniformViewMatrix;
 
     /**
-     * The position of the projection matrix in the shader.
+     * The position of the projection matrix in the orbit shader.
      */
     private int uniformProjectionMatrix;
 
     /**
-     * Whether solid objects are drawn or the area of the orbit.
+     * Whether the orbit shader draws the line or the area of the orbit.
      */
     private int uniformMode;
 
     /**
-     * The position of the position attribute in the shader.
+     * The position of the number of vertices per orbit in the orbit shader.
+     */
+    private int uniformOrbitVertexCount;
+
+    /**
+     * The shader program generating the orbits from their elements.
+     */
+    private int orbitShaderProgram;
+
+    /**
+     * The shader program drawing instanced meshes.
+     */
+    private int instancedShaderProgram;
+
+    /**
+     * The position of the view matrix in the instanced shader.
+     */
+    private int uniformInstancedViewMatrix;
+
+    /**
+     * The position of the projection matrix in the instanced shader.
+     */
+    private int uniformInstancedProjectionMatrix;
+
+    /**
+     * The position of the position attribute in the instanced shader.
+     */
+    private int instancedAttributePosition;
+
+    /**
+     * The position of the color attribute in the instanced shader.
      */
-    private int shaderAttributePosition;
+    private int instancedAttributeColor;
 
     /**
-     * The position of the color attribute in the shader.
+     * The position of the model matrix attribute in the instanced shader, which occupies four positions.
      */
-    private int shaderAttributeColor;
+    private int instancedAttributeModel;
+
+    /**
+     * The position of the instance color attribute in the instanced shader.
+     */
+    private int instancedAttributeInstanceColor;
 
     /**
      * Creates a new GlVisualizer object. The visualization can be started with the run method.
@@ -275,43 +397,44 @@ public class GlVisualizer {
         glEnable(GL_DEPTH_TEST);
         glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 
-        this.shaderManager.loadAndCompileShaderPair("default");
-        int shaderProgram = this.shaderManager.useShaders("default");
+        this.shaderManager.loadAndCompileFragmentShader("default");
+        this.shaderManager.loadAndCompileVertexShader("instanced");
+        this.shaderManager.loadAndCompileVertexShader("orbit");
+        this.instancedShaderProgram = this.shaderManager.useShaders("instanced", "default");
+        this.instancedAttributePosition = glGetAttribLocation(this.instancedShaderProgram, "position");
+        this.instancedAttributeColor = glGetAttribLocation(this.instancedShaderProgram, "color");
+        this.instancedAttributeModel = glGetAttribLocation(this.instancedShaderProgram, "instanceModel");
+        this.instancedAttributeInstanceColor = glGetAttribLocation(this.instancedShaderProgram, "instanceColor");
+        this.uniformInstancedViewMatrix = glGetUniformLocation(this.instancedShaderProgram, "view");
+        this.uniformInstancedProjectionMatrix = glGetUniformLocation(this.instancedShaderProgram, "projection");
+        this.orbitShaderProgram = this.shaderManager.useShaders("orbit", "default");
+        this.uniformViewMatrix = glGetUniformLocation(this.orbitShaderProgram, "view");
+        this.uniformProjectionMatrix = glGetUniformLocation(this.orbitShaderProgram, "projection");
+        this.uniformMode = glGetUniformLocation(this.orbitShaderProgram, "mode");
+        this.uniformOrbitVertexCount = glGetUniformLocation(this.orbitShaderProgram, "vertexCount");
 
-        this.shaderAttributePosition = glGetAttribLocation(shaderProgram, "position");
-        this.shaderAttributeColor = glGetAttribLocation(shaderProgram, "color");
-        this.uniformModelMatrix = glGetUniformLocation(shaderProgram, "model");
-        this.uniformViewMatrix = glGetUniformLocation(shaderProgram, "view");
-        this.uniformProjectionMatrix = glGetUniformLocation(shaderProgram, "projection");
-        this.uniformMode = glGetUniformLocation(shaderProgram, "mode");
 
         //basic coordinate system lines
         int vao = glGenVertexArrays();
         glBindVertexArray(vao);
         try (MemoryStack stack = MemoryStack.stackPush()) {
-            DoubleBuffer vertices = stack.mallocDouble(6 * 7);
-            vertices.put(0d).put(0d).put(0d)
-                    .put(1d).put(0d).put(0d).put(1d);
-            vertices.put(1d).put(0d).put(0d)
-                    .put(1d).put(0d).put(0d).put(1d);
-            vertices.put(0d).put(0d).put(0d)
-                    .put(0d).put(1d).put(0d).put(1d);
-            vertices.put(0d).put(1d).put(0d)
-                    .put(0d).put(1d).put(0d).put(1d);
-            vertices.put(0d).put(0d).put(0d)
-                    .put(0d).put(0d).put(1d).put(1d);
-            vertices.put(0d).put(0d).put(1d)
-                    .put(0d).put(0d).put(1d).put(1d);
+            ByteBuffer vertices = stack.malloc(6 * PACKED_VERTEX_BYTES);
+            putPackedVertex(vertices, 0f, 0f, 0f, Color.RED);
+            putPackedVertex(vertices, 1f, 0f, 0f, Color.RED);
+            putPackedVertex(vertices, 0f, 0f, 0f, Color.GREEN);
+            putPackedVertex(vertices, 0f, 1f, 0f, Color.GREEN);
+            putPackedVertex(vertices, 0f, 0f, 0f, Color.BLUE);
+            putPackedVertex(vertices, 0f, 0f, 1f, Color.BLUE);
             vertices.flip();
             int vbo = glGenBuffers();
             glBindBuffer(GL_ARRAY_BUFFER, vbo);
             glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
         }
-        glEnableVertexAttribArray(this.shaderAttributePosition);
-        glVertexAttribPointer(this.shaderAttributePosition, 3, GL_DOUBLE, false, 7 * Double.BYTES, 0);
-        glEnableVertexAttribArray(this.shaderAttributeColor);
-        glVertexAttribPointer(this.shaderAttributeColor, 4, GL_DOUBLE, false, 7 * Double.BYTES, 3 * Double.BYTES);
-        this.coordinateSystemVao = vao;
+        glEnableVertexAttribArray(this.instancedAttributePosition);
+        glVertexAttribPointer(this.instancedAttributePosition, 3, GL_FLOAT, false, PACKED_VERTEX_BYTES, 0);
+        glEnableVertexAttribArray(this.instancedAttributeColor);
+        glVertexAttribPointer(this.instancedAttributeColor, 4, GL_UNSIGNED_BYTE, true, PACKED_VERTEX_BYTES, 3 * Float.BYTES);
+        this.coordinateSystems = new InstancedMesh(vao, GL_LINES, 6, this.instancedAttributeModel, this.instancedAttributeInstanceColor);
     }
 
     /**
@@ -340,7 +463,8 @@ public class GlVisualizer {
 
     /**
      * Sets the resolution to draw the orbits with. A total of 2^resolution vertices will be drawn for
-     * each orbit. The minimum value is three.
+     * each orbit, or fewer for orbits which are small on screen, see {@link GlVisualizer#setAdaptiveLevelOfDetail(boolean)}.
+     * The minimum value is three.
      *
      * @param resolution The new resolution to use for orbit drawing.
      * @return This GlVisualizer for fluent method calls.
@@ -351,7 +475,8 @@ public class GlVisualizer {
     }
 
     /**
-     * Sets the resolution to draw the celestial bodies with. The minimum value is 0.
+     * Sets the resolution to draw the celestial bodies with, or the highest resolution if the level of detail is
+     * adapted, see {@link GlVisualizer#setAdaptiveLevelOfDetail(boolean)}. The minimum value is 0.
      *
      * @param resolution The new resolution to use for body drawing.
      * @return This GlVisualizer for fluent method calls.
@@ -361,6 +486,41 @@ public class GlVisualizer {
         return this;
     }
 
+    /**
+     * Sets whether the level of detail of orbits and celestial bodies is adapted to their size on screen, every frame.
+     * Orbits and bodies are then drawn with just enough vertices that their outline deviates by less than half a
+     * pixel, up to the resolutions set by {@link GlVisualizer#setOrbitResolution(int)} and
+     * {@link GlVisualizer#setCelestialBodyResolution(int)}. Enabled by default.
+     *
+     * @param adaptive True to adapt the level of detail, false to draw everything at full resolution.
+     * @return This GlVisualizer for fluent method calls.
+     */
+    public GlVisualizer setAdaptiveLevelOfDetail(boolean adaptive) {
+        this.adaptiveLevelOfDetail = adaptive;
+        return this;
+    }
+
+    /**
+     * Gets the number of vertices drawn for orbits and celestial bodies in the last frame, and the number of
+     * vertices saved by the adaptive level of detail compared to drawing everything at full resolution.
+     * Orbits count their vertices twice, once for the line and once for the area.
+     *
+     * @return The drawn and the saved vertices.
+     */
+    public long[] getVertexStatistics() {
+        return new long[]{this.levelOfDetailStatistics[0], this.levelOfDetailStatistics[1]};
+    }
+
+    /**
+     * Gets the number of triangles drawn for orbit areas and celestial bodies in the last frame, and the number of
+     * triangles saved by the adaptive level of detail compared to drawing everything at full resolution.
+     *
+     * @return The drawn and the saved triangles.
+     */
+    public long[] getTriangleStatistics() {
+        return new long[]{this.levelOfDetailStatistics[2], this.levelOfDetailStatistics[3]};
+    }
+
     /**
      * Gets the speed with which celestial bodies and orbits are animated along their orbits.
      * 1.0 means real time.
@@ -575,28 +735,9 @@ public class GlVisualizer {
      * @return This GlVisualizer for fluent method calls.
      */
     public GlVisualizer addOrbit(Orbit orbit) {
-        int vao = glGenVertexArrays();
-        glBindVertexArray(vao);
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            DoubleBuffer vertices = stack.mallocDouble((Math.round((float) Math.pow(2, this.orbitResolution))) * 7);
-            Vector3d vertex;
-            double trueAnomaly = 0d;
-            for (int step = 0; step < Math.pow(2, this.orbitResolution); step++) {
-                trueAnomaly = step * ((2.0d * Math.PI) / Math.pow(2, this.orbitResolution));
-                vertex = orbit.getOrbitalPositionByTrueAnomaly(trueAnomaly);
-                vertices.put(vertex.getX()).put(vertex.getY()).put(vertex.getZ())
-                        .put(this.colorOrderOrbits[this.orbitColorIndex].getRed() / 255d).put(this.colorOrderOrbits[this.orbitColorIndex].getGreen() / 255d).put(this.colorOrderOrbits[this.orbitColorIndex].getBlue() / 255d).put(this.orbitColorAlpha);
-            }
-            vertices.flip();
-            int vbo = glGenBuffers();
-            glBindBuffer(GL_ARRAY_BUFFER, vbo);
-            glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
-        }
-        glEnableVertexAttribArray(this.shaderAttributePosition);
-        glVertexAttribPointer(this.shaderAttributePosition, 3, GL_DOUBLE, false, 7 * Double.BYTES, 0);
-        glEnableVertexAttribArray(this.shaderAttributeColor);
-        glVertexAttribPointer(this.shaderAttributeColor, 4, GL_DOUBLE, false, 7 * Double.BYTES, 3 * Double.BYTES);
-        this.orbits.put(orbit, vao);
+        Color color = this.colorOrderOrbits[this.orbitColorIndex];
+        this.orbits.put(orbit, new float[]{color.getRed() / 255f, color.getGreen() / 255f, color.getBlue() / 255f, this.orbitColorAlpha});
+        this.orbitLevels.put(orbit, this.orbitResolution);
         this.orbitColorIndex = (this.orbitColorIndex + 1) % this.colorOrderOrbits.length;
         return this;
     }
@@ -608,31 +749,76 @@ public class GlVisualizer {
      * @return This GlVisualizer for fluent method calls.
      */
     public GlVisualizer addCelestialBody(CelestialBody body) {
-        int vao = glGenVertexArrays();
-        glBindVertexArray(vao);
-        ArrayList<Vector3d> sphereMesh = new IcoSphereCreator().createIcoSphere(this.celestialBodyResolution);
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            DoubleBuffer vertices = stack.mallocDouble((sphereMesh.size()) * 7);
-            for (Vector3d vertex : sphereMesh) {
-                vertices.put(vertex.getX() * body.getRadius()).put(vertex.getY() * body.getRadius()).put(vertex.getZ() * body.getRadius())
-                        .put(this.colorOrderCelestialBodies[this.celestialBodyColorIndex].getRed() / 255d).put(this.colorOrderCelestialBodies[this.celestialBodyColorIndex].getGreen() / 255d).put(this.colorOrderCelestialBodies[this.celestialBodyColorIndex].getBlue() / 255d).put(this.celestialBodyColorAlpha);
-            }
-            vertices.flip();
-            int vbo = glGenBuffers();
-            glBindBuffer(GL_ARRAY_BUFFER, vbo);
-            glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
-        }
-        glEnableVertexAttribArray(this.shaderAttributePosition);
-        glVertexAttribPointer(this.shaderAttributePosition, 3, GL_DOUBLE, false, 7 * Double.BYTES, 0);
-        glEnableVertexAttribArray(this.shaderAttributeColor);
-        glVertexAttribPointer(this.shaderAttributeColor, 4, GL_DOUBLE, false, 7 * Double.BYTES, 3 * Double.BYTES);
-        this.celestialBodies.put(body, vao);
+        this.getSphereMesh(this.celestialBodyResolution);
+        Color color = this.colorOrderCelestialBodies[this.celestialBodyColorIndex];
+        this.celestialBodies.put(body, this.celestialBodyResolution);
         this.celestialBodyOrder.add(body);
-        this.celestialBodyVertexCounts.put(body, sphereMesh.size());
+        this.celestialBodyColors.put(body, new float[]{color.getRed() / 255f, color.getGreen() / 255f, color.getBlue() / 255f, this.celestialBodyColorAlpha});
         this.celestialBodyColorIndex = (this.celestialBodyColorIndex + 1) % this.colorOrderOrbits.length;
         return this;
     }
 
+    /**
+     * Gets the unit sphere mesh of an icosphere level, which is shared by all bodies drawn with that level.
+     * The mesh is created on first use.
+     *
+     * @param level The icosphere level, see {@link GlVisualizer#setCelestialBodyResolution(int)}.
+     * @return The instanced unit sphere mesh.
+     */
+    private InstancedMesh getSphereMesh(int level) {
+        InstancedMesh mesh = this.sphereMeshes.get(level);
+        if (mesh == null) {
+            int vao = glGenVertexArrays();
+            glBindVertexArray(vao);
+            IcoSphereCreator.IndexedIcoSphere sphere = IcoSphereCreator.getIndexedIcoSphere(level);
+            int vbo = glGenBuffers();
+            glBindBuffer(GL_ARRAY_BUFFER, vbo);
+            glBufferData(GL_ARRAY_BUFFER, sphere.getVertices(), GL_STATIC_DRAW);
+            glEnableVertexAttribArray(this.instancedAttributePosition);
+            glVertexAttribPointer(this.instancedAttributePosition, 3, GL_FLOAT, false, 3 * Float.BYTES, 0);
+            //The vertex color is left disabled, the constant white set before drawing is used instead
+            int[] indices = sphere.getIndices();
+            int indexType;
+            int ebo = glGenBuffers();
+            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
+            if (sphere.getVertexCount() <= 0x10000) {
+                //Up to level 6 all indices fit into unsigned shorts, which halves the element buffer
+                ShortBuffer shortIndices = BufferUtils.createShortBuffer(indices.length);
+                for (int index : indices) {
+                    shortIndices.put((short) index);
+                }
+                shortIndices.flip();
+                glBufferData(GL_ELEMENT_ARRAY_BUFFER, shortIndices, GL_STATIC_DRAW);
+                indexType = GL_UNSIGNED_SHORT;
+            } else {
+                glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+                indexType = GL_UNSIGNED_INT;
+            }
+            mesh = new InstancedMesh(vao, GL_TRIANGLES, indices.length, indexType, this.instancedAttributeModel, this.instancedAttributeInstanceColor);
+            this.sphereMeshes.put(level, mesh);
+        }
+        return mesh;
+    }
+
+    /**
+     * Gets the mesh drawing all orbits of a level of detail. The mesh is created on first use.
+     *
+     * @param level The level of detail, there are 2^level vertices drawn per orbit.
+     * @return The instanced orbit mesh.
+     */
+    private InstancedMesh getOrbitMesh(int level) {
+        InstancedMesh mesh = this.orbitMeshes.get(level);
+        if (mesh == null) {
+            //orbits have no vertex data, they are generated from the elements passed with each instance
+            mesh = new InstancedMesh(glGenVertexArrays(), GL_LINE_LOOP, 1 << level, GL_NONE,
+                    glGetAttribLocation(this.orbitShaderProgram, "instanceModel"),
+                    glGetAttribLocation(this.orbitShaderProgram, "instanceColor"),
+                    glGetAttribLocation(this.orbitShaderProgram, "instanceElements"));
+            this.orbitMeshes.put(level, mesh);
+        }
+        return mesh;
+    }
+
     /**
      * Shows the window and starts the visualization
      */
@@ -662,20 +848,27 @@ public class GlVisualizer {
             //projection matrix
             Matrix4f projectionMatrix;
             if (this.lookAtFixed == null) {
-                projectionMatrix = Matrix4f.perspective(90f, aspectRatio, (float) (0.05f * Scales.astronomicalUnit()), (float) (100f * Scales.astronomicalUnit()));
+                projectionMatrix = Matrix4f.perspective(FIELD_OF_VIEW, aspectRatio, (float) (0.05f * Scales.astronomicalUnit()), (float) (100f * Scales.astronomicalUnit()));
             } else {
-                projectionMatrix = Matrix4f.perspective(90f, aspectRatio, (float) (0.05f * this.cameraFixedDistanceSteps * this.lookAtFixed.getRadius()), (float) (100f * this.cameraFixedDistanceSteps * this.lookAtFixed.getRadius()));
+                projectionMatrix = Matrix4f.perspective(FIELD_OF_VIEW, aspectRatio, (float) (0.05f * this.cameraFixedDistanceSteps * this.lookAtFixed.getRadius()), (float) (100f * this.cameraFixedDistanceSteps * this.lookAtFixed.getRadius()));
             }
-            glUniformMatrix4fv(this.uniformProjectionMatrix, false, projectionMatrix.getData());
+            float[] projection = projectionMatrix.getData();
+            glUseProgram(this.instancedShaderProgram);
+            glUniformMatrix4fv(this.uniformInstancedProjectionMatrix, false, projection);
+            glUseProgram(this.orbitShaderProgram);
+            glUniformMatrix4fv(this.uniformProjectionMatrix, false, projection);
             //view matrix
-            Matrix4f uniformMatrix = this.cameraRotation.toGlRotationMatrix().transpose().multiply(
-                    new Matrix4f(
-                            new Vector4f(1f, 0f, 0f, (float) -cameraTranslation.getX()),
-                            new Vector4f(0f, 1f, 0f, (float) -cameraTranslation.getY()),
-                            new Vector4f(0f, 0f, 1f, (float) -cameraTranslation.getZ()),
-                            new Vector4f(0f, 0f, 0f, 1f)
-                    ).transpose());
-            glUniformMatrix4fv(this.uniformViewMatrix, false, uniformMatrix.getData());
+            ScratchPool scratch = ScratchPool.get().push();
+            try {
+                Matrix3d inverseRotation = this.cameraRotation.toRotationMatrix(scratch.matrix()).transpose(scratch.matrix());
+                Vector3d eye = inverseRotation.mult(this.cameraTranslation, scratch.vector());
+                TransformKernels.affine(inverseRotation.get(this.rotationScratch, 0), 1.0d, -eye.getX(), -eye.getY(), -eye.getZ(), this.viewMatrix);
+            } finally {
+                scratch.pop();
+            }
+            glUniformMatrix4fv(this.uniformViewMatrix, false, this.viewMatrix);
+            glUseProgram(this.instancedShaderProgram);
+            glUniformMatrix4fv(this.uniformInstancedViewMatrix, false, this.viewMatrix);
 
             //drawing
             glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT); // clear the framebuffer
@@ -698,115 +891,239 @@ public class GlVisualizer {
      * @param deltaTime The time elapsed since the last time this method was called, in seconds.
      */
     private void drawLoop(double deltaTime) {
+        glUseProgram(this.orbitShaderProgram);
         glUniform1i(this.uniformMode, 0);
         this.drawOrbits();
+        glUseProgram(this.instancedShaderProgram);
         this.drawCelestialBodies();
+        glUseProgram(this.orbitShaderProgram);
         glUniform1i(this.uniformMode, 1);
         this.drawOrbitAreas();
+        this.reportLevelOfDetail(deltaTime);
     }
 
     /**
-     * Draws all registered orbits
+     * Draws all registered orbits. Their current elements are collected into the instance buffers of the orbit
+     * meshes of their level of detail, from which the orbit shader generates all orbits of a level with a single
+     * draw call.
      */
     private void drawOrbits() {
-        Vector3d translation;
-        for (Map.Entry<Orbit, Integer> entry : this.orbits.entrySet()) {
-            translation = entry.getKey().getParentBody().getPosition(this.currentTime);
-            Matrix4f modelMatrix = Quat4d.identity().roll(90).toGlRotationMatrix().multiply( //rotate stuff to make it level on x-y plane
-                    new Matrix4f(
-                            new Vector4f(1f, 0f, 0f, (float) translation.getX()),
-                            new Vector4f(0f, 1f, 0f, (float) translation.getY()),
-                            new Vector4f(0f, 0f, 1f, (float) translation.getZ()),
-                            new Vector4f(0f, 0f, 0f, 1f)
-                    ).transpose()
-            );
-            glUniformMatrix4fv(this.uniformModelMatrix, false, modelMatrix.getData());
-            glBindVertexArray(entry.getValue());
-            glDrawArrays(GL_LINE_LOOP, 0, Math.round((float) Math.pow(2, this.orbitResolution)));
+        Arrays.fill(this.levelOfDetailStatistics, 0L);
+        for (InstancedMesh mesh : this.orbitMeshes.values()) {
+            mesh.clear();
+        }
+        long fullVertices = 1L << this.orbitResolution;
+        for (Map.Entry<Orbit, float[]> entry : this.orbits.entrySet()) {
+            OrbitKernel kernel = entry.getKey().getKernel();
+            float[] color = entry.getValue();
+            double semiMajorAxis = kernel.getSemiMajorAxis();
+            double eccentricity = kernel.getEccentricity();
+            //Moves samples from the apoapsis towards the periapsis, so the error relative to the distance from the
+            //parent body is the same at both: E = t - warp * sin(t)
+            double warp = kernel.getFocusDistance() > 0.0d ? (semiMajorAxis - kernel.getSemiMinorAxis()) / kernel.getFocusDistance() : 0.0d;
+            this.buildModelMatrix(entry.getKey().getParentBody().getPosition(this.currentTime), kernel.getRotation(this.orbitRotationScratch, 0), 1.0d);
+            int level = this.orbitResolution;
+            if (this.adaptiveLevelOfDetail) {
+                //The largest step of the eccentric anomaly is (1 + warp) * 2pi / n, at the apoapsis, where the
+                //ellipse deviates from its chord by a * step^2 / 8
+                double pixels = this.getPixelSize(semiMajorAxis, semiMajorAxis * (1.0d + eccentricity));
+                double ideal = log2(2.0d * Math.PI * (1.0d + warp) * Math.sqrt(pixels / (8.0d * LOD_PIXEL_ERROR)));
+                level = selectLevel(this.orbitLevels.get(entry.getKey()), ideal, 3, this.orbitResolution);
+            }
+            this.orbitLevels.put(entry.getKey(), level);
+            this.getOrbitMesh(level).add(this.modelMatrix, color[0], color[1], color[2], color[3],
+                    (float) semiMajorAxis, (float) eccentricity, (float) warp, 0f);
+            //line and area each shade all vertices, the area is a fan of n - 2 triangles
+            this.levelOfDetailStatistics[0] += 2L << level;
+            this.levelOfDetailStatistics[1] += 2L * (fullVertices - (1L << level));
+            this.levelOfDetailStatistics[2] += (1L << level) - 2L;
+            this.levelOfDetailStatistics[3] += fullVertices - (1L << level);
+        }
+        for (Map.Entry<Integer, InstancedMesh> entry : this.orbitMeshes.entrySet()) {
+            glUniform1i(this.uniformOrbitVertexCount, 1 << entry.getKey());
+            entry.getValue().draw(GL_LINE_LOOP, 1 << entry.getKey());
         }
     }
 
     /**
-     * Draws all registered orbits
+     * Draws the areas of all registered orbits, from the instances collected by {@link GlVisualizer#drawOrbits()}.
      */
     private void drawOrbitAreas() {
-        Vector3d translation;
-        for (Map.Entry<Orbit, Integer> entry : this.orbits.entrySet()) {
-            translation = entry.getKey().getParentBody().getPosition(this.currentTime);
-            Matrix4f modelMatrix = Quat4d.identity().roll(90).toGlRotationMatrix().multiply( //rotate stuff to make it level on x-y plane
-                    new Matrix4f(
-                            new Vector4f(1f, 0f, 0f, (float) translation.getX()),
-                            new Vector4f(0f, 1f, 0f, (float) translation.getY()),
-                            new Vector4f(0f, 0f, 1f, (float) translation.getZ()),
-                            new Vector4f(0f, 0f, 0f, 1f)
-                    ).transpose()
-            );
-            glUniformMatrix4fv(this.uniformModelMatrix, false, modelMatrix.getData());
-            glBindVertexArray(entry.getValue());
-            glDrawArrays(GL_TRIANGLE_FAN, 0, Math.round((float) Math.pow(2, this.orbitResolution)));
+        for (Map.Entry<Integer, InstancedMesh> entry : this.orbitMeshes.entrySet()) {
+            glUniform1i(this.uniformOrbitVertexCount, 1 << entry.getKey());
+            entry.getValue().draw(GL_TRIANGLE_FAN, 1 << entry.getKey());
         }
     }
 
     /**
-     * Draws all registered celestial bodies
+     * Draws all registered celestial bodies. The bodies are collected into the instance buffers of the sphere meshes
+     * and the coordinate systems, so each mesh is drawn with a single draw call for all bodies.
      */
     private void drawCelestialBodies() {
         Vector3d translation;
         Quat4d rotation;
-        Matrix4f scale;
-        Matrix4f scaleCoordinateSystem;
-        Matrix4f modelMatrix;
-        Matrix4f modelMatrixCoordinateSystem;
+        double scale;
+        double scaleCoordinateSystem;
+        for (InstancedMesh mesh : this.sphereMeshes.values()) {
+            mesh.clear();
+        }
+        this.coordinateSystems.clear();
         for (Map.Entry<CelestialBody, Integer> entry : this.celestialBodies.entrySet()) {
             translation = entry.getKey().getPosition(this.currentTime);
             rotation = entry.getKey().getGlobalRotation(this.currentTime);
             if (this.scaleBodies <= 1.0d) {
-                scale = new Matrix4f();
-                scaleCoordinateSystem = new Matrix4f(
-                        new Vector4f((float) (2d * entry.getKey().getRadius()), 0f, 0f, 0f),
-                        new Vector4f(0f, (float) (2d * entry.getKey().getRadius()), 0f, 0f),
-                        new Vector4f(0f, 0f, (float) (2d * entry.getKey().getRadius()), 0f),
-                        new Vector4f(0f, 0f, 0f, 1f)
-                ).transpose();
+                scale = entry.getKey().getRadius();
+                scaleCoordinateSystem = 2d * entry.getKey().getRadius();
             } else {
-                scale = new Matrix4f(
-                        new Vector4f((float) (this.scaleBodies / entry.getKey().getRadius()), 0f, 0f, 0f),
-                        new Vector4f(0f, (float) (this.scaleBodies / entry.getKey().getRadius()), 0f, 0f),
-                        new Vector4f(0f, 0f, (float) (this.scaleBodies / entry.getKey().getRadius()), 0f),
-                        new Vector4f(0f, 0f, 0f, 1f)
-                ).transpose();
-                scaleCoordinateSystem = new Matrix4f(
-                        new Vector4f((float) (2d * this.scaleBodies), 0f, 0f, 0f),
-                        new Vector4f(0f, (float) (2d * this.scaleBodies), 0f, 0f),
-                        new Vector4f(0f, 0f, (float) (2d * this.scaleBodies), 0f),
-                        new Vector4f(0f, 0f, 0f, 1f)
-                ).transpose();
+                scale = this.scaleBodies;
+                scaleCoordinateSystem = 2d * this.scaleBodies;
+            }
+            float[] color = this.celestialBodyColors.get(entry.getKey());
+            this.buildModelMatrix(translation, rotation, scale);
+            int level = this.celestialBodyResolution;
+            if (this.adaptiveLevelOfDetail) {
+                //The outline deviates from a great circle by r * angle^2 / 8, the angle between two vertices
+                //halves with each level
+                double ideal = log2(ICOSAHEDRON_EDGE_ANGLE * Math.sqrt(this.getPixelSize(scale, scale) / (8.0d * LOD_PIXEL_ERROR)));
+                level = selectLevel(entry.getValue(), ideal, 0, this.celestialBodyResolution);
+            }
+            entry.setValue(level);
+            this.getSphereMesh(level).add(this.modelMatrix, color[0], color[1], color[2], color[3]);
+            IcoSphereCreator.IndexedIcoSphere drawn = IcoSphereCreator.getIndexedIcoSphere(level);
+            IcoSphereCreator.IndexedIcoSphere full = IcoSphereCreator.getIndexedIcoSphere(this.celestialBodyResolution);
+            this.levelOfDetailStatistics[0] += drawn.getVertexCount();
+            this.levelOfDetailStatistics[1] += full.getVertexCount() - drawn.getVertexCount();
+            this.levelOfDetailStatistics[2] += drawn.getIndices().length / 3;
+            this.levelOfDetailStatistics[3] += (full.getIndices().length - drawn.getIndices().length) / 3;
+            this.buildModelMatrix(translation, rotation, scaleCoordinateSystem);
+            this.coordinateSystems.add(this.modelMatrix, 1f, 1f, 1f, 1f);
+        }
+        glVertexAttrib4f(this.instancedAttributeColor, 1f, 1f, 1f, 1f);
+        for (InstancedMesh mesh : this.sphereMeshes.values()) {
+            mesh.draw();
+        }
+        this.coordinateSystems.draw();
+    }
+
+    /**
+     * Projects a size at the position of the current model matrix onto the screen. The distance to the camera is
+     * reduced by the extent of the object, so the size is never underestimated for any part of it.
+     *
+     * @param size   The size to project.
+     * @param extent The largest distance of any part of the object from the position of the model matrix.
+     * @return The projected size in pixels, or infinity if the camera is within the extent of the object.
+     */
+    private double getPixelSize(double size, double extent) {
+        double x = this.modelMatrix[12] - this.cameraTranslation.getX();
+        double y = this.modelMatrix[13] - this.cameraTranslation.getY();
+        double z = this.modelMatrix[14] - this.cameraTranslation.getZ();
+        double distance = Math.sqrt(x * x + y * y + z * z) - extent;
+        if (distance <= 0.0d) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double focalLength = 0.5d * WINDOW_HEIGHT / Math.tan(Math.toRadians(0.5d * FIELD_OF_VIEW));
+        return focalLength * size / distance;
+    }
+
+    /**
+     * Selects a level of detail with hysteresis. The level is raised as soon as the ideal level exceeds it, but only
+     * lowered once the ideal level fell below the next lower level by {@link GlVisualizer#LOD_HYSTERESIS}.
+     *
+     * @param current The level currently drawn.
+     * @param ideal   The lowest level, which is still sufficient, as a real number.
+     * @param min     The lowest level.
+     * @param max     The highest level.
+     * @return The level to draw.
+     */
+    private static int selectLevel(int current, double ideal, int min, int max) {
+        int level = current;
+        if (ideal > current) {
+            level = (int) Math.ceil(ideal);
+        } else if (ideal < current - 1 - LOD_HYSTERESIS) {
+            level = (int) Math.ceil(ideal + LOD_HYSTERESIS);
+        }
+        return Math.max(min, Math.min(max, level));
+    }
+
+    /**
+     * Calculates the binary logarithm.
+     *
+     * @param x The argument.
+     * @return The binary logarithm of x.
+     */
+    private static double log2(double x) {
+        return Math.log(x) / Math.log(2.0d);
+    }
+
+    /**
+     * Shows the number of vertices and triangles drawn in the last frame and saved by the adaptive level of detail in
+     * the window title, once per second.
+     *
+     * @param deltaTime The time elapsed since the last time this method was called, in seconds.
+     */
+    private void reportLevelOfDetail(double deltaTime) {
+        this.levelOfDetailReportTime += deltaTime;
+        if (this.levelOfDetailReportTime >= 1.0d) {
+            this.levelOfDetailReportTime = 0.0d;
+            glfwSetWindowTitle(this.window, String.format("OrbitModeler Visualizer - vertices: %d (saved %d), triangles: %d (saved %d)",
+                    this.levelOfDetailStatistics[0], this.levelOfDetailStatistics[1], this.levelOfDetailStatistics[2], this.levelOfDetailStatistics[3]));
+        }
+    }
+
+    /**
+     * Writes a vertex in the packed format: three floats for the position, followed by the color as four
+     * unsigned bytes, which are normalized by the shader.
+     *
+     * @param buffer The buffer to write the vertex into, in native byte order.
+     * @param x      The x-coordinate of the vertex.
+     * @param y      The y-coordinate of the vertex.
+     * @param z      The z-coordinate of the vertex.
+     * @param color  The color of the vertex.
+     */
+    private static void putPackedVertex(ByteBuffer buffer, float x, float y, float z, Color color) {
+        buffer.putFloat(x).putFloat(y).putFloat(z)
+                .put((byte) color.getRed()).put((byte) color.getGreen()).put((byte) color.getBlue()).put((byte) color.getAlpha());
+    }
+
+    /**
+     * Builds the model matrix, which scales and rotates a model, moves it to a position and finally levels
+     * everything on the x-y plane.
+     *
+     * @param translation The position of the model.
+     * @param rotation    The rotation of the model, or null if it is not rotated.
+     * @param scale       The uniform scale of the model.
+     */
+    private void buildModelMatrix(Vector3d translation, Quat4d rotation, double scale) {
+        if (rotation == null) {
+            this.buildModelMatrix(translation, (double[]) null, scale);
+        } else {
+            ScratchPool scratch = ScratchPool.get().push();
+            try {
+                this.buildModelMatrix(translation, rotation.toRotationMatrix(scratch.matrix()).get(this.rotationScratch, 0), scale);
+            } finally {
+                scratch.pop();
             }
-            modelMatrix = (Quat4d.identity().roll(90).toGlRotationMatrix().multiply( //rotate stuff to make it level on x-y plane
-                    new Matrix4f(
-                            new Vector4f(1f, 0f, 0f, (float) translation.getX()),
-                            new Vector4f(0f, 1f, 0f, (float) translation.getY()),
-                            new Vector4f(0f, 0f, 1f, (float) translation.getZ()),
-                            new Vector4f(0f, 0f, 0f, 1f)
-                    ).transpose().multiply(rotation.toGlRotationMatrix()).multiply(scale)
-            ));
-            modelMatrixCoordinateSystem = (Quat4d.identity().roll(90).toGlRotationMatrix().multiply( //rotate stuff to make it level on x-y plane
-                    new Matrix4f(
-                            new Vector4f(1f, 0f, 0f, (float) translation.getX()),
-                            new Vector4f(0f, 1f, 0f, (float) translation.getY()),
-                            new Vector4f(0f, 0f, 1f, (float) translation.getZ()),
-                            new Vector4f(0f, 0f, 0f, 1f)
-                    ).transpose().multiply(rotation.toGlRotationMatrix()).multiply(scaleCoordinateSystem)
-            ));
-            glUniformMatrix4fv(this.uniformModelMatrix, false, modelMatrix.getData());
-            glBindVertexArray(entry.getValue());
-            glDrawArrays(GL_TRIANGLES, 0, this.celestialBodyVertexCounts.get(entry.getKey()));
-            glUniformMatrix4fv(this.uniformModelMatrix, false, modelMatrixCoordinateSystem.getData());
-            glBindVertexArray(this.coordinateSystemVao);
-            glDrawArrays(GL_LINES, 0, 6);
         }
     }
 
+    /**
+     * Builds the model matrix like {@link GlVisualizer#buildModelMatrix(Vector3d, Quat4d, double)}, from a rotation
+     * matrix.
+     *
+     * @param translation The position of the model.
+     * @param rotation    The rotation matrix of the model, row-first, or null if it is not rotated.
+     * @param scale       The uniform scale of the model.
+     */
+    private void buildModelMatrix(Vector3d translation, double[] rotation, double scale) {
+        double[] level = TransformKernels.transformPoints(LEVEL_ROTATION, 0.0d, 0.0d, 0.0d, translation.get(this.translationScratch, 0), this.translationScratch, 1);
+        if (rotation == null) {
+            System.arraycopy(LEVEL_ROTATION, 0, this.rotationScratch, 0, 9);
+        } else {
+            TransformKernels.mult3(LEVEL_ROTATION, rotation, this.rotationScratch);
+        }
+        TransformKernels.affine(this.rotationScratch, scale, level[0], level[1], level[2], this.modelMatrix);
+    }
+
     /**
      * Processes mouse and continous keyboard input
      *
@@ -854,20 +1171,21 @@ public class GlVisualizer {
         if (KeyListener.isKeyDown(GLFW_KEY_KP_4)) {
             this.setVisualizationSpeed(Scales.year());
         }
+        ScratchPool scratch = ScratchPool.get().push();
         if (!this.isCameraFixed()) { //free camera mode, control with WASD
-            Vector3d forward = this.cameraRotation.rotateVector(Vector3d.Z_AXIS_NEG).normalize();
-            Vector3d right = this.cameraRotation.rotateVector(Vector3d.X_AXIS).normalize();
+            Vector3d forward = this.cameraRotation.rotateVector(Vector3d.Z_AXIS_NEG, scratch.vector()).normalize(scratch.vector());
+            Vector3d right = this.cameraRotation.rotateVector(Vector3d.X_AXIS, scratch.vector()).normalize(scratch.vector());
             if (KeyListener.isKeyDown(GLFW_KEY_W)) {
-                this.cameraTranslation = this.cameraTranslation.add(forward.scale(this.cameraSpeed * deltaTime));
+                this.cameraTranslation.addScaled(forward, this.cameraSpeed * deltaTime, this.cameraTranslation);
             }
             if (KeyListener.isKeyDown(GLFW_KEY_A)) {
-                this.cameraTranslation = this.cameraTranslation.add(right.scale(-this.cameraSpeed * deltaTime));
+                this.cameraTranslation.addScaled(right, -this.cameraSpeed * deltaTime, this.cameraTranslation);
             }
             if (KeyListener.isKeyDown(GLFW_KEY_S)) {
-                this.cameraTranslation = this.cameraTranslation.add(forward.scale(-this.cameraSpeed * deltaTime));
+                this.cameraTranslation.addScaled(forward, -this.cameraSpeed * deltaTime, this.cameraTranslation);
             }
             if (KeyListener.isKeyDown(GLFW_KEY_D)) {
-                this.cameraTranslation = this.cameraTranslation.add(right.scale(this.cameraSpeed * deltaTime));
+                this.cameraTranslation.addScaled(right, this.cameraSpeed * deltaTime, this.cameraTranslation);
             }
             if (KeyListener.isKeyDown(GLFW_KEY_Q)) {
                 this.cameraRoll -= this.cameraTurnSpeed * deltaTime * 10d;
@@ -877,9 +1195,10 @@ public class GlVisualizer {
             }
         } else { //fixed camera mode
             this.cameraRoll = 0d;
-            this.cameraTranslation = Quat4d.identity().roll(90).rotateVector(this.lookAtFixed.getPosition(this.currentTime)).add(
-                    this.cameraRotation.rotateVector(Vector3d.Z_AXIS_NEG).scale(-1d).normalize().scale(this.lookAtDistance)
-            );
+            Vector3d offset = this.cameraRotation.rotateVector(Vector3d.Z_AXIS_NEG, scratch.vector()).scale(-1d, scratch.vector()).normalize(scratch.vector());
+            Quat4d level = scratch.quaternion().set(1.0d, 0.0d, 0.0d, 0.0d);
+            level.roll(90, level).rotateVector(this.lookAtFixed.getPosition(this.currentTime), this.cameraTranslation)
+                    .addScaled(offset, this.lookAtDistance, this.cameraTranslation);
             //zoom
             int mouseScroll = -ScrollListener.getMouseScroll();
             if (KeyListener.isKeyDown(GLFW_KEY_LEFT_SHIFT)) {
@@ -894,6 +1213,7 @@ public class GlVisualizer {
                 this.lookAtDistance -= (this.lookAtDistance - targetLookAtDistance) * deltaTime;
             }
         }
+        scratch.pop();
     }
 
     /**
@@ -913,7 +1233,7 @@ public class GlVisualizer {
         glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE); // the window will stay hidden after creation
         glfwWindowHint(GLFW_RESIZABLE, GLFW_FALSE); // the window will not be resizable
         glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3); // We want OpenGL 3.3
-        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 2);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
         glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE); //We don't want the old OpenGL
         glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GL_TRUE); // No deprecated functionality
 
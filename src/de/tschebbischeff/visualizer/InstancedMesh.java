@@ -0,0 +1,237 @@
+package de.tschebbischeff.visualizer;
+
+import org.lwjgl.BufferUtils;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL11.GL_FLOAT;
+import static org.lwjgl.opengl.GL11.GL_NONE;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
+import static org.lwjgl.opengl.GL20.glVertexAttribPointer;
+import static org.lwjgl.opengl.GL30.glBindVertexArray;
+import static org.lwjgl.opengl.GL31.glDrawArraysInstanced;
+import static org.lwjgl.opengl.GL31.glDrawElementsInstanced;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+
+/**
+ * A mesh, which is drawn many times with a single draw call, once for each instance added since the last
+ * {@link InstancedMesh#clear()}. Each instance has its own model matrix, color and optionally four parameters, which
+ * are collected on the CPU and uploaded into an instance buffer once per frame.
+ *
+ * @author Tarek
+ * @version 1.0.0
+ */
+public class InstancedMesh {
+
+    /**
+     * The number of floats per instance, sixteen for the model matrix, four for the color and four parameters.
+     */
+    private static final int INSTANCE_FLOATS = 24;
+    /**
+     * The number of instances the buffers can hold initially.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The vertex array object of the mesh.
+     */
+    private final int vao;
+    /**
+     * The primitive type the mesh is drawn with.
+     */
+    private final int mode;
+    /**
+     * The number of vertices of the mesh, or of indices if it is indexed.
+     */
+    private final int vertexCount;
+    /**
+     * The type of the indices in the element buffer of the vertex array object, or GL_NONE if the mesh is not indexed.
+     */
+    private final int indexType;
+    /**
+     * The buffer object holding the instance data on the GPU.
+     */
+    private final int instanceVbo;
+    /**
+     * The instance data collected for the next draw call.
+     */
+    private FloatBuffer instances;
+    /**
+     * The number of instances collected for the next draw call.
+     */
+    private int instanceCount = 0;
+    /**
+     * Whether instances were added or removed since they were last uploaded.
+     */
+    private boolean modified = true;
+
+    /**
+     * Creates an instanced mesh from a vertex array object, whose vertex attributes are already set up.
+     * The instance attributes are added to the vertex array object.
+     *
+     * @param vao            The vertex array object of the mesh.
+     * @param mode           The primitive type to draw the mesh with, e.g. GL_TRIANGLES.
+     * @param vertexCount    The number of vertices of the mesh.
+     * @param modelAttribute The location of the model matrix attribute, which occupies four consecutive locations.
+     * @param colorAttribute The location of the color attribute.
+     */
+    public InstancedMesh(int vao, int mode, int vertexCount, int modelAttribute, int colorAttribute) {
+        this(vao, mode, vertexCount, GL_NONE, modelAttribute, colorAttribute, -1);
+    }
+
+    /**
+     * Creates an indexed instanced mesh from a vertex array object, whose vertex attributes and element buffer are
+     * already set up. The instance attributes are added to the vertex array object.
+     *
+     * @param vao            The vertex array object of the mesh.
+     * @param mode           The primitive type to draw the mesh with, e.g. GL_TRIANGLES.
+     * @param indexCount     The number of indices in the element buffer.
+     * @param indexType      The type of the indices, GL_UNSIGNED_SHORT or GL_UNSIGNED_INT.
+     * @param modelAttribute The location of the model matrix attribute, which occupies four consecutive locations.
+     * @param colorAttribute The location of the color attribute.
+     */
+    public InstancedMesh(int vao, int mode, int indexCount, int indexType, int modelAttribute, int colorAttribute) {
+        this(vao, mode, indexCount, indexType, modelAttribute, colorAttribute, -1);
+    }
+
+    /**
+     * Creates an instanced mesh from a vertex array object, whose vertex attributes and element buffer are already set
+     * up. The instance attributes are added to the vertex array object. A mesh without any vertex attributes may
+     * generate its vertices in the shader, from the vertex id and the instance parameters.
+     *
+     * @param vao                 The vertex array object of the mesh.
+     * @param mode                The primitive type to draw the mesh with, e.g. GL_TRIANGLES.
+     * @param vertexCount         The number of vertices of the mesh, or of indices in the element buffer.
+     * @param indexType           The type of the indices, GL_UNSIGNED_SHORT or GL_UNSIGNED_INT, or GL_NONE if the mesh
+     *                            is not indexed.
+     * @param modelAttribute      The location of the model matrix attribute, which occupies four consecutive locations.
+     * @param colorAttribute      The location of the color attribute.
+     * @param parametersAttribute The location of the vec4 attribute receiving the parameters of the instance,
+     *                            or -1 if the shader does not use them.
+     */
+    public InstancedMesh(int vao, int mode, int vertexCount, int indexType, int modelAttribute, int colorAttribute, int parametersAttribute) {
+        this.vao = vao;
+        this.mode = mode;
+        this.vertexCount = vertexCount;
+        this.indexType = indexType;
+        this.instances = BufferUtils.createFloatBuffer(INITIAL_CAPACITY * INSTANCE_FLOATS);
+        this.instanceVbo = glGenBuffers();
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, this.instanceVbo);
+        int stride = INSTANCE_FLOATS * Float.BYTES;
+        for (int column = 0; column < 4; column++) {
+            glEnableVertexAttribArray(modelAttribute + column);
+            glVertexAttribPointer(modelAttribute + column, 4, GL_FLOAT, false, stride, 4 * column * Float.BYTES);
+            glVertexAttribDivisor(modelAttribute + column, 1);
+        }
+        glEnableVertexAttribArray(colorAttribute);
+        glVertexAttribPointer(colorAttribute, 4, GL_FLOAT, false, stride, 16 * Float.BYTES);
+        glVertexAttribDivisor(colorAttribute, 1);
+        if (parametersAttribute >= 0) {
+            glEnableVertexAttribArray(parametersAttribute);
+            glVertexAttribPointer(parametersAttribute, 4, GL_FLOAT, false, stride, 20 * Float.BYTES);
+            glVertexAttribDivisor(parametersAttribute, 1);
+        }
+    }
+
+    /**
+     * Removes all instances, usually at the start of a frame.
+     *
+     * @return This mesh for fluent method calls.
+     */
+    public InstancedMesh clear() {
+        this.instances.clear();
+        this.instanceCount = 0;
+        this.modified = true;
+        return this;
+    }
+
+    /**
+     * Adds an instance, which is drawn by the next call of {@link InstancedMesh#draw()}.
+     *
+     * @param model The model matrix of the instance, column-first.
+     * @param red   The red component of the color of the instance.
+     * @param green The green component of the color of the instance.
+     * @param blue  The blue component of the color of the instance.
+     * @param alpha The alpha component of the color of the instance.
+     * @return This mesh for fluent method calls.
+     */
+    public InstancedMesh add(float[] model, float red, float green, float blue, float alpha) {
+        return this.add(model, red, green, blue, alpha, 0f, 0f, 0f, 0f);
+    }
+
+    /**
+     * Adds an instance with parameters, which is drawn by the next call of {@link InstancedMesh#draw()}.
+     *
+     * @param model  The model matrix of the instance, column-first.
+     * @param red    The red component of the color of the instance.
+     * @param green  The green component of the color of the instance.
+     * @param blue   The blue component of the color of the instance.
+     * @param alpha  The alpha component of the color of the instance.
+     * @param first  The first parameter of the instance.
+     * @param second The second parameter of the instance.
+     * @param third  The third parameter of the instance.
+     * @param fourth The fourth parameter of the instance.
+     * @return This mesh for fluent method calls.
+     */
+    public InstancedMesh add(float[] model, float red, float green, float blue, float alpha, float first, float second, float third, float fourth) {
+        if (this.instances.remaining() < INSTANCE_FLOATS) {
+            FloatBuffer grown = BufferUtils.createFloatBuffer(2 * this.instances.capacity());
+            this.instances.flip();
+            this.instances = grown.put(this.instances);
+        }
+        this.instances.put(model, 0, 16).put(red).put(green).put(blue).put(alpha)
+                .put(first).put(second).put(third).put(fourth);
+        this.instanceCount++;
+        this.modified = true;
+        return this;
+    }
+
+    /**
+     * Gets the number of instances added since the last {@link InstancedMesh#clear()}.
+     *
+     * @return The number of instances.
+     */
+    public int getInstanceCount() {
+        return this.instanceCount;
+    }
+
+    /**
+     * Uploads the instances and draws all of them with a single draw call. Does nothing if there are no instances.
+     */
+    public void draw() {
+        this.draw(this.mode, this.vertexCount);
+    }
+
+    /**
+     * Draws all instances with a single draw call, using a different primitive type or number of vertices than the
+     * mesh was created with. The instances are only uploaded if they changed since the last draw call, so the same
+     * instances can be drawn repeatedly at no additional cost. Does nothing if there are no instances.
+     *
+     * @param mode        The primitive type to draw the mesh with, e.g. GL_TRIANGLES.
+     * @param vertexCount The number of vertices to draw, or of indices if the mesh is indexed.
+     */
+    public void draw(int mode, int vertexCount) {
+        if (this.instanceCount == 0) {
+            return;
+        }
+        if (this.modified) {
+            this.instances.flip();
+            glBindBuffer(GL_ARRAY_BUFFER, this.instanceVbo);
+            //Orphans the storage of the last frame, so the driver does not wait until it was drawn
+            glBufferData(GL_ARRAY_BUFFER, (long) this.instances.capacity() * Float.BYTES, GL_STREAM_DRAW);
+            glBufferSubData(GL_ARRAY_BUFFER, 0, this.instances);
+            this.instances.position(this.instances.limit());
+            this.instances.limit(this.instances.capacity());
+            this.modified = false;
+        }
+        glBindVertexArray(this.vao);
+        if (this.indexType == GL_NONE) {
+            glDrawArraysInstanced(mode, 0, vertexCount, this.instanceCount);
+        } else {
+            glDrawElementsInstanced(mode, vertexCount, this.indexType, 0, this.instanceCount);
+        }
+    }
+
+}